@@ -0,0 +1,218 @@
+package phonebook;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * <p>{@link AsyncPhonebook} serves a {@link Phonebook} to callers that should never block on it. Every method returns
+ * a {@link CompletableFuture} straight away, and the work is done elsewhere:</p>
+ *
+ * <ul>
+ *     <li><b>Writes go through a single writer lane.</b> A thread of its own applies them one at a time, in the order
+ *     that they were made, so writers never contend for a lock and a {@link Phonebook} is only ever changed by one
+ *     thread.</li>
+ *     <li><b>Lookups run on the executor of the readers.</b> That is, when the {@link Phonebook} is
+ *     {@link Phonebook#isThreadSafe() thread-safe}; lookups of any other {@link Phonebook} are queued on the writer
+ *     lane as well, which then owns the {@link Phonebook} outright.</li>
+ *     <li><b>Identical lookups are coalesced.</b> A lookup of a name or a number that is already being looked up
+ *     shares the pending result instead of probing the tables again, so a burst of requests for the same key costs a
+ *     single probe. A lookup never shares the result of a probe that may have started before a write which completed
+ *     in the meantime, so it still sees every write whose future has completed.</li>
+ * </ul>
+ *
+ * <p>The futures returned are the callers' own: cancelling or completing one of them does not affect the others that
+ * share its lookup. Failures, such as the {@link IllegalArgumentException} of a {@code null} entry, complete the future
+ * exceptionally.</p>
+ *
+ * <p>Any {@link Executor} can run the lookups. The default is {@link ForkJoinPool#commonPool()}; on a JVM with virtual
+ * threads, {@code Executors.newVirtualThreadPerTaskExecutor()} runs each lookup on a virtual thread of its own. An
+ * {@link AsyncPhonebook} should be {@link #close() closed} once it is no longer needed, which stops the writer
+ * lane.</p>
+ *
+ * @see Phonebook
+ * @see ShardedPhonebook
+ */
+public class AsyncPhonebook implements AutoCloseable {
+
+    /* A lookup in progress, and the generation of writes that it started in. */
+    private static final class Flight {
+        final long generation;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+
+        Flight(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private final Phonebook phonebook;
+    private final Executor readers;
+    private final ExecutorService writer;
+    private final Map<String, Flight> numberLookups = new ConcurrentHashMap<>();
+    private final Map<String, Flight> ownerLookups = new ConcurrentHashMap<>();
+
+    // Odd while the writer lane applies a write, and even otherwise. Only the writer lane changes it.
+    private volatile long generation;
+
+    /**
+     * Serves phonebook, running lookups on {@link ForkJoinPool#commonPool()}.
+     * @param phonebook The {@link Phonebook} to serve. It should not be used directly afterwards.
+     * @throws IllegalArgumentException if phonebook is {@code null}.
+     */
+    public AsyncPhonebook(Phonebook phonebook) {
+        this(phonebook, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Serves phonebook, running lookups on readers.
+     * @param phonebook The {@link Phonebook} to serve. It should not be used directly afterwards.
+     * @param readers The {@link Executor} that runs the lookups of a thread-safe {@link Phonebook}.
+     * @throws IllegalArgumentException if phonebook or readers is {@code null}.
+     */
+    public AsyncPhonebook(Phonebook phonebook, Executor readers) {
+        if(phonebook == null || readers == null)
+            throw new IllegalArgumentException("Provided: phonebook=" + phonebook + " and readers= " + readers);
+        this.phonebook = phonebook;
+        this.readers = phonebook.isThreadSafe() ? readers : null;
+        this.writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "phonebook-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Looks up the phone number of name, as {@link Phonebook#getNumberOf(String)} does.
+     * @param name The full name of the person whose phone number is being searched for.
+     * @return A future of the phone number of name, or of {@code null} if name is {@code null} or not in the
+     * {@link Phonebook}.
+     */
+    public CompletableFuture<String> getNumberOfAsync(String name) {
+        if(name == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return coalesced(numberLookups, name, () -> phonebook.getNumberOf(name));
+    }
+
+    /**
+     * Looks up the owner of number, as {@link Phonebook#getOwnerOf(String)} does.
+     * @param number The phone number whose owner is being searched for.
+     * @return A future of the full name of the owner of number, or of {@code null} if number is {@code null} or not in
+     * the {@link Phonebook}.
+     */
+    public CompletableFuture<String> getOwnerOfAsync(String number) {
+        if(number == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return coalesced(ownerLookups, number, () -> phonebook.getOwnerOf(number));
+    }
+
+    /**
+     * Looks up the phone numbers of every name at once, as {@link Phonebook#getNumbersOf(String[])} does. The whole
+     * batch is a single task, which is answered by a single version of a copy-on-write {@link Phonebook}.
+     * @param names The full names of the people whose phone numbers are being searched for.
+     * @return A future of an array as long as names whose i-th element is the phone number of the i-th name, or
+     * {@code null} if that name is {@code null} or not in the {@link Phonebook}.
+     */
+    public CompletableFuture<String[]> getNumbersOfAsync(String[] names) {
+        return read(() -> phonebook.getNumbersOf(names));
+    }
+
+    /**
+     * Looks up the owners of every number at once, as {@link Phonebook#getOwnersOf(String[])} does.
+     * @param numbers The phone numbers whose owners are being searched for.
+     * @return A future of an array as long as numbers whose i-th element is the owner of the i-th number, or
+     * {@code null} if that number is {@code null} or not in the {@link Phonebook}.
+     */
+    public CompletableFuture<String[]> getOwnersOfAsync(String[] numbers) {
+        return read(() -> phonebook.getOwnersOf(numbers));
+    }
+
+    /**
+     * Queues {@link Phonebook#addEntry(String, String)} on the writer lane.
+     * @param name The full name of the person.
+     * @param number The phone number of the person.
+     * @return A future that completes once the entry has been added, and is seen by every later lookup.
+     */
+    public CompletableFuture<Void> addEntryAsync(String name, String number) {
+        return write(() -> phonebook.addEntry(name, number));
+    }
+
+    /**
+     * Queues {@link Phonebook#deleteEntry(String, String)} on the writer lane.
+     * @param name The full name of the person.
+     * @param number The phone number of the person.
+     * @return A future that completes once the entry has been deleted, if it was there.
+     */
+    public CompletableFuture<Void> deleteEntryAsync(String name, String number) {
+        return write(() -> phonebook.deleteEntry(name, number));
+    }
+
+    /**
+     * Queues {@link Phonebook#addEntries(Iterable)} on the writer lane, as a single write.
+     * @param entries The tuples to add, as &lt; name, number &gt; {@link Map.Entry} instances.
+     * @return A future that completes once every entry has been added.
+     */
+    public CompletableFuture<Void> addEntriesAsync(List<Map.Entry<String, String>> entries) {
+        return write(() -> phonebook.addEntries(entries));
+    }
+
+    /**
+     * Queues {@link Phonebook#deleteEntries(Iterable)} on the writer lane, as a single write.
+     * @param entries The tuples to delete, as &lt; name, number &gt; {@link Map.Entry} instances.
+     * @return A future that completes once every entry has been deleted, if it was there.
+     */
+    public CompletableFuture<Void> deleteEntriesAsync(List<Map.Entry<String, String>> entries) {
+        return write(() -> phonebook.deleteEntries(entries));
+    }
+
+    /**
+     * Stops the writer lane, once it has applied the writes that it was given. This {@link AsyncPhonebook} cannot be
+     * used afterwards.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+    }
+
+    /* Joins the lookup of key that started in the current generation, or starts one. */
+    private CompletableFuture<String> coalesced(Map<String, Flight> lookups, String key, Supplier<String> lookup) {
+        long current = generation;
+        Flight mine = new Flight(current);
+        // a lookup of an older generation may have missed a completed write, so it is replaced rather than joined
+        Flight flight = lookups.compute(key, (k, pending) ->
+                (pending != null && pending.generation == current) ? pending : mine);
+        if(flight == mine) {
+            read(lookup).whenComplete((value, failure) -> {
+                lookups.remove(key, mine);
+                if(failure == null) {
+                    mine.result.complete(value);
+                } else {
+                    mine.result.completeExceptionally(failure);
+                }
+            });
+        }
+        return flight.result.copy();
+    }
+
+    private <T> CompletableFuture<T> read(Supplier<T> lookup) {
+        return CompletableFuture.supplyAsync(lookup, (readers != null) ? readers : writer);
+    }
+
+    private CompletableFuture<Void> write(Runnable update) {
+        return CompletableFuture.runAsync(() -> {
+            generation++;
+            try {
+                update.run();
+            } finally {
+                generation++;
+            }
+        }, writer);
+    }
+}
@@ -0,0 +1,202 @@
+package phonebook;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>{@link BulkLoader} fills an empty {@link Phonebook} from a large dataset with the workers of a
+ * {@link ForkJoinPool}. Loading the entries through {@link Phonebook#addEntries(Iterable)} visits them in order, because
+ * an entry may evict earlier ones with the same name or number. A {@link BulkLoader} does the order-dependent part in
+ * parallel instead: an entry is still there once every entry has been added if, and only if, it is the <b>last</b> one
+ * with its name and the last one with its number. So the workers, each on a range of the dataset:</p>
+ *
+ * <ol>
+ *     <li>Validate their entries, compute the hash codes of their names and numbers, which {@link String}s cache for
+ *     the tables to reuse, and record the last position of every name and every number.</li>
+ *     <li>Keep the entries that are last in both respects. These survivors have distinct names and distinct numbers, so
+ *     they can be added in any order and evict nothing.</li>
+ *     <li>Add the survivors, after the {@link Phonebook} has been sized for all of them at once. Only a
+ *     {@link Phonebook#isThreadSafe() thread-safe} {@link Phonebook} is filled by all workers at the same time; any
+ *     other is filled by the calling thread.</li>
+ * </ol>
+ *
+ * <p>The result is the same as that of {@link Phonebook#addEntries(Iterable)}, and a dataset with a {@code null} entry,
+ * name or number is rejected before anything is added.</p>
+ *
+ * @see Phonebook#addEntries(Iterable)
+ */
+public class BulkLoader {
+
+    /* The number of entries below which a worker stops splitting its range. */
+    private static final int LEAF_SIZE = 1024;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a {@link BulkLoader} that runs on {@link ForkJoinPool#commonPool()}.
+     */
+    public BulkLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a {@link BulkLoader} that runs on pool.
+     * @param pool The {@link ForkJoinPool} whose workers load the entries.
+     * @throws IllegalArgumentException if pool is {@code null}.
+     */
+    public BulkLoader(ForkJoinPool pool) {
+        if(pool == null)
+            throw new IllegalArgumentException("Provided a null pool.");
+        this.pool = pool;
+    }
+
+    /**
+     * Adds every tuple &lt; name, number &gt; of entries to phonebook, as {@link Phonebook#addEntries(Iterable)} would.
+     * @param phonebook An empty {@link Phonebook}.
+     * @param entries The tuples to add, as &lt; name, number &gt; {@link Map.Entry} instances.
+     * @throws IllegalArgumentException if phonebook or entries is {@code null}, if phonebook is not empty, or if entries
+     * contains a {@code null} entry, name or number. In that case, no entry has been added.
+     */
+    public void load(Phonebook phonebook, List<Map.Entry<String, String>> entries) {
+        if(phonebook == null || entries == null)
+            throw new IllegalArgumentException("Provided: phonebook=" + phonebook + " and entries= " + entries);
+        if(!phonebook.isEmpty())
+            throw new IllegalArgumentException("Provided a Phonebook with " + phonebook.size() + " entries.");
+        Map<String, Integer> lastOfName = new ConcurrentHashMap<>(2 * entries.size());
+        Map<String, Integer> lastOfNumber = new ConcurrentHashMap<>(2 * entries.size());
+        pool.invoke(new Scan(entries, lastOfName, lastOfNumber, 0, entries.size()));
+        List<Map.Entry<String, String>> survivors = pool.invoke(new Select(entries, lastOfName, lastOfNumber, 0,
+                entries.size()));
+        phonebook.ensureCapacity(survivors.size());
+        if(phonebook.isThreadSafe()) {
+            pool.invoke(new Place(phonebook, survivors, 0, survivors.size()));
+        } else {
+            phonebook.addEntries(survivors);
+        }
+    }
+
+    /**
+     * Adds every tuple &lt; name, number &gt; of entries to phonebook, in the order of the stream, as
+     * {@link #load(Phonebook, List)} does. The stream is collected first.
+     * @param phonebook An empty {@link Phonebook}.
+     * @param entries The tuples to add, as &lt; name, number &gt; {@link Map.Entry} instances.
+     * @throws IllegalArgumentException if phonebook or entries is {@code null}, if phonebook is not empty, or if entries
+     * contains a {@code null} entry, name or number. In that case, no entry has been added.
+     */
+    public void load(Phonebook phonebook, Stream<Map.Entry<String, String>> entries) {
+        if(entries == null)
+            throw new IllegalArgumentException("Provided a null stream of entries.");
+        load(phonebook, entries.collect(Collectors.toList()));
+    }
+
+    /* Validates and hashes a range of entries, and records the last position of their names and numbers. */
+    @SuppressWarnings("serial") // ForkJoinTask is Serializable, but these tasks never leave the JVM
+    private static final class Scan extends RecursiveAction {
+        private final List<Map.Entry<String, String>> entries;
+        private final Map<String, Integer> lastOfName;
+        private final Map<String, Integer> lastOfNumber;
+        private final int from;
+        private final int to;
+
+        Scan(List<Map.Entry<String, String>> entries, Map<String, Integer> lastOfName,
+             Map<String, Integer> lastOfNumber, int from, int to) {
+            this.entries = entries;
+            this.lastOfName = lastOfName;
+            this.lastOfNumber = lastOfNumber;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from > LEAF_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Scan(entries, lastOfName, lastOfNumber, from, middle),
+                        new Scan(entries, lastOfName, lastOfNumber, middle, to));
+                return;
+            }
+            for(int i = from; i < to; i++) {
+                Map.Entry<String, String> entry = entries.get(i);
+                if(entry == null || entry.getKey() == null || entry.getValue() == null)
+                    throw new IllegalArgumentException("Provided: entry=" + entry);
+                entry.getKey().hashCode();
+                entry.getValue().hashCode();
+                lastOfName.merge(entry.getKey(), i, Math::max);
+                lastOfNumber.merge(entry.getValue(), i, Math::max);
+            }
+        }
+    }
+
+    /* Collects the entries of a range that are the last ones with their name and with their number, in order. */
+    @SuppressWarnings("serial") // ForkJoinTask is Serializable, but these tasks never leave the JVM
+    private static final class Select extends RecursiveTask<List<Map.Entry<String, String>>> {
+        private final List<Map.Entry<String, String>> entries;
+        private final Map<String, Integer> lastOfName;
+        private final Map<String, Integer> lastOfNumber;
+        private final int from;
+        private final int to;
+
+        Select(List<Map.Entry<String, String>> entries, Map<String, Integer> lastOfName,
+               Map<String, Integer> lastOfNumber, int from, int to) {
+            this.entries = entries;
+            this.lastOfName = lastOfName;
+            this.lastOfNumber = lastOfNumber;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Map.Entry<String, String>> compute() {
+            if(to - from > LEAF_SIZE) {
+                int middle = (from + to) >>> 1;
+                Select right = new Select(entries, lastOfName, lastOfNumber, middle, to);
+                right.fork();
+                List<Map.Entry<String, String>> survivors = new Select(entries, lastOfName, lastOfNumber, from,
+                        middle).compute();
+                survivors.addAll(right.join());
+                return survivors;
+            }
+            List<Map.Entry<String, String>> survivors = new ArrayList<>();
+            for(int i = from; i < to; i++) {
+                Map.Entry<String, String> entry = entries.get(i);
+                if(lastOfName.get(entry.getKey()) == i && lastOfNumber.get(entry.getValue()) == i) {
+                    survivors.add(entry);
+                }
+            }
+            return survivors;
+        }
+    }
+
+    /* Adds a range of survivors to a thread-safe Phonebook. */
+    @SuppressWarnings("serial") // ForkJoinTask is Serializable, but these tasks never leave the JVM
+    private static final class Place extends RecursiveAction {
+        private final Phonebook phonebook;
+        private final List<Map.Entry<String, String>> survivors;
+        private final int from;
+        private final int to;
+
+        Place(Phonebook phonebook, List<Map.Entry<String, String>> survivors, int from, int to) {
+            this.phonebook = phonebook;
+            this.survivors = survivors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from > LEAF_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Place(phonebook, survivors, from, middle), new Place(phonebook, survivors, middle, to));
+                return;
+            }
+            phonebook.addEntries(survivors.subList(from, to));
+        }
+    }
+}
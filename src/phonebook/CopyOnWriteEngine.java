@@ -0,0 +1,140 @@
+package phonebook;
+
+import phonebook.hashes.PersistentHashTable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>{@link CopyOnWriteEngine} is a {@link PhonebookEngine} for data that is read far more often than it changes.
+ * Both directions of the entries are kept in a {@link Version}: a pair of immutable {@link PersistentHashTable}s
+ * behind a single {@code volatile} reference. A lookup is one volatile load followed by plain reads of a table that
+ * never changes, so readers take no locks and never see a resize or half of an update.</p>
+ *
+ * <p>Writers take turns on the lock of the engine. Each one edits the current {@link Version}, copying only the
+ * segments that it writes to, and publishes the result by swapping the reference. Batches publish once, so
+ * {@link #addEntries(List)} and {@link #deleteEntries(List)} are much cheaper than the same changes one at a
+ * time.</p>
+ *
+ * @see Phonebook#copyOnWrite()
+ */
+class CopyOnWriteEngine implements PhonebookEngine {
+
+    /* An immutable state of the phonebook. */
+    private static final class Version {
+        final PersistentHashTable namesToNumbers;
+        final PersistentHashTable numbersToNames;
+
+        Version(PersistentHashTable namesToNumbers, PersistentHashTable numbersToNames) {
+            this.namesToNumbers = namesToNumbers;
+            this.numbersToNames = numbersToNames;
+        }
+    }
+
+    private volatile Version current = new Version(new PersistentHashTable(), new PersistentHashTable());
+
+    @Override
+    public String getNumberOf(String name) {
+        return current.namesToNumbers.get(name);
+    }
+
+    @Override
+    public String getOwnerOf(String number) {
+        return current.numbersToNames.get(number);
+    }
+
+    @Override
+    public String[] getNumbersOf(String[] names) {
+        // a single version answers the whole batch
+        PersistentHashTable namesToNumbers = current.namesToNumbers;
+        String[] numbers = new String[names.length];
+        for(int i = 0; i < names.length; i++) {
+            numbers[i] = namesToNumbers.get(names[i]);
+        }
+        return numbers;
+    }
+
+    @Override
+    public String[] getOwnersOf(String[] numbers) {
+        PersistentHashTable numbersToNames = current.numbersToNames;
+        String[] names = new String[numbers.length];
+        for(int i = 0; i < numbers.length; i++) {
+            names[i] = numbersToNames.get(numbers[i]);
+        }
+        return names;
+    }
+
+    @Override
+    public synchronized void addEntry(String name, String number) {
+        PersistentHashTable.Editor namesToNumbers = current.namesToNumbers.edit();
+        PersistentHashTable.Editor numbersToNames = current.numbersToNames.edit();
+        add(namesToNumbers, numbersToNames, name, number);
+        publish(namesToNumbers, numbersToNames);
+    }
+
+    @Override
+    public synchronized void deleteEntry(String name, String number) {
+        if(!number.equals(current.namesToNumbers.get(name))) {
+            return;
+        }
+        PersistentHashTable.Editor namesToNumbers = current.namesToNumbers.edit();
+        PersistentHashTable.Editor numbersToNames = current.numbersToNames.edit();
+        namesToNumbers.remove(name);
+        numbersToNames.remove(number);
+        publish(namesToNumbers, numbersToNames);
+    }
+
+    @Override
+    public synchronized void addEntries(List<Map.Entry<String, String>> entries) {
+        PersistentHashTable.Editor namesToNumbers = current.namesToNumbers.edit();
+        PersistentHashTable.Editor numbersToNames = current.numbersToNames.edit();
+        namesToNumbers.ensureCapacity(namesToNumbers.size() + entries.size());
+        numbersToNames.ensureCapacity(numbersToNames.size() + entries.size());
+        for(Map.Entry<String, String> entry : entries) {
+            add(namesToNumbers, numbersToNames, entry.getKey(), entry.getValue());
+        }
+        publish(namesToNumbers, numbersToNames);
+    }
+
+    @Override
+    public synchronized void deleteEntries(List<Map.Entry<String, String>> entries) {
+        PersistentHashTable.Editor namesToNumbers = current.namesToNumbers.edit();
+        PersistentHashTable.Editor numbersToNames = current.numbersToNames.edit();
+        for(Map.Entry<String, String> entry : entries) {
+            if(entry.getValue().equals(namesToNumbers.get(entry.getKey()))) {
+                namesToNumbers.remove(entry.getKey());
+                numbersToNames.remove(entry.getValue());
+            }
+        }
+        publish(namesToNumbers, numbersToNames);
+    }
+
+    @Override
+    public int size() {
+        return current.namesToNumbers.size();
+    }
+
+    @Override
+    public synchronized void ensureCapacity(int size) {
+        PersistentHashTable.Editor namesToNumbers = current.namesToNumbers.edit();
+        PersistentHashTable.Editor numbersToNames = current.numbersToNames.edit();
+        namesToNumbers.ensureCapacity(size);
+        numbersToNames.ensureCapacity(size);
+        publish(namesToNumbers, numbersToNames);
+    }
+
+    /* The same evictions as PairedTablesEngine.addEntry(). */
+    private static void add(PersistentHashTable.Editor namesToNumbers, PersistentHashTable.Editor numbersToNames,
+                            String name, String number) {
+        String oldNumber = namesToNumbers.put(name, number);
+        String oldOwner = numbersToNames.put(number, name);
+        if(oldNumber != null && !oldNumber.equals(number))
+            numbersToNames.remove(oldNumber);
+        if(oldOwner != null && !oldOwner.equals(name))
+            namesToNumbers.remove(oldOwner);
+    }
+
+    private void publish(PersistentHashTable.Editor namesToNumbers, PersistentHashTable.Editor numbersToNames) {
+        current = new Version(namesToNumbers.publish(), numbersToNames.publish());
+    }
+}
@@ -0,0 +1,271 @@
+package phonebook;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * <p>{@link MultiVersionEngine} is a {@link PhonebookEngine} with <b>multi-version concurrency control</b>. Every name
+ * and every number keeps a chain of the values that it had, newest first, each tagged with the version of the
+ * {@link Phonebook} that wrote it; a deletion is a version without a value. Writers take turns on the lock of the
+ * engine, write every change of an update, or of a whole batch, under the next version number, and then publish that
+ * number. Readers ignore the versions that are newer than the one they read at, so they never lock and never see
+ * half of an update.</p>
+ *
+ * <p>A {@link PhonebookSnapshot} pins the version that it was opened at, and answers every lookup from the values of
+ * that version for as long as it is open, whatever writers do in the meantime. Old versions are reclaimed in order:
+ * every update that supersedes a value retires the key with the version that superseded it, and once no open snapshot
+ * is older than that version, the next update unlinks the values that nobody can read anymore, and forgets the keys
+ * whose latest version is a deletion.</p>
+ *
+ * @see Phonebook#multiVersion()
+ */
+class MultiVersionEngine implements PhonebookEngine {
+
+    /* A value of a key, or a deletion if value is null, as of a version. */
+    private static final class Version {
+        final long version;
+        final String value;
+        volatile Version older;
+
+        Version(long version, String value, Version older) {
+            this.version = version;
+            this.value = value;
+            this.older = older;
+        }
+    }
+
+    /* A key whose older values can be reclaimed once no snapshot precedes version. */
+    private static final class Retired {
+        final Map<String, Version> index;
+        final String key;
+        final long version;
+
+        Retired(Map<String, Version> index, String key, long version) {
+            this.index = index;
+            this.key = key;
+            this.version = version;
+        }
+    }
+
+    private final Map<String, Version> namesToNumbers = new ConcurrentHashMap<>();
+    private final Map<String, Version> numbersToNames = new ConcurrentHashMap<>();
+    private final Set<PhonebookSnapshot> snapshots = ConcurrentHashMap.newKeySet();
+    private final Queue<Retired> retired = new ArrayDeque<>();
+    private volatile long committed;
+    // No version older than this may be read by snapshots that open from now on. Raised to committed while the oldest
+    // snapshot is being looked for, so that snapshots that open meanwhile retry.
+    private volatile long reclaimed;
+    private volatile int size;
+
+    @Override
+    public String getNumberOf(String name) {
+        return latest(namesToNumbers, name);
+    }
+
+    @Override
+    public String getOwnerOf(String number) {
+        return latest(numbersToNames, number);
+    }
+
+    @Override
+    public synchronized void addEntry(String name, String number) {
+        long version = committed + 1;
+        add(name, number, version);
+        commit(version);
+    }
+
+    @Override
+    public synchronized void deleteEntry(String name, String number) {
+        long version = committed + 1;
+        delete(name, number, version);
+        commit(version);
+    }
+
+    @Override
+    public synchronized void addEntries(List<Map.Entry<String, String>> entries) {
+        long version = committed + 1;
+        for(Map.Entry<String, String> entry : entries) {
+            add(entry.getKey(), entry.getValue(), version);
+        }
+        commit(version);
+    }
+
+    @Override
+    public synchronized void deleteEntries(List<Map.Entry<String, String>> entries) {
+        long version = committed + 1;
+        for(Map.Entry<String, String> entry : entries) {
+            delete(entry.getKey(), entry.getValue(), version);
+        }
+        commit(version);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /* The latest published version. */
+    long version() {
+        return committed;
+    }
+
+    /* Opens a snapshot at the latest published version. */
+    PhonebookSnapshot open() {
+        while(true) {
+            PhonebookSnapshot snapshot = new PhonebookSnapshot(this, committed);
+            snapshots.add(snapshot);
+            // a writer that looked for the oldest snapshot before this one was added may be unlinking its versions
+            if(reclaimed <= snapshot.getVersion()) {
+                return snapshot;
+            }
+            snapshots.remove(snapshot);
+        }
+    }
+
+    /* Opens a snapshot at an earlier version, which no writer may reclaim meanwhile. */
+    synchronized PhonebookSnapshot open(long version) {
+        if(version > committed)
+            throw new IllegalArgumentException("Provided version " + version + ", but the latest one is " + committed + ".");
+        if(version < reclaimed)
+            throw new IllegalStateException("Version " + version + " has been reclaimed; the oldest one left is "
+                    + reclaimed + ".");
+        PhonebookSnapshot snapshot = new PhonebookSnapshot(this, version);
+        snapshots.add(snapshot);
+        return snapshot;
+    }
+
+    void close(PhonebookSnapshot snapshot) {
+        snapshots.remove(snapshot);
+    }
+
+    String getNumberOf(String name, long version) {
+        return at(namesToNumbers, name, version);
+    }
+
+    String getOwnerOf(String number, long version) {
+        return at(numbersToNames, number, version);
+    }
+
+    /* The entries of a version, keyed by name. */
+    Stream<Map.Entry<String, String>> entries(long version) {
+        return namesToNumbers.keySet().stream()
+                .map(name -> {
+                    String number = at(namesToNumbers, name, version);
+                    return (number == null) ? null : Map.entry(name, number);
+                })
+                .filter(entry -> entry != null);
+    }
+
+    /* The same evictions as PairedTablesEngine.addEntry(), all at version. */
+    private void add(String name, String number, long version) {
+        String oldNumber = current(namesToNumbers, name);
+        if(number.equals(oldNumber)) {
+            return;
+        }
+        String oldOwner = current(numbersToNames, number);
+        write(namesToNumbers, name, number, version);
+        write(numbersToNames, number, name, version);
+        int evicted = 0;
+        if(oldNumber != null) {
+            write(numbersToNames, oldNumber, null, version);
+            evicted++;
+        }
+        if(oldOwner != null) {
+            write(namesToNumbers, oldOwner, null, version);
+            evicted++;
+        }
+        size += 1 - evicted;
+    }
+
+    private void delete(String name, String number, long version) {
+        if(number.equals(current(namesToNumbers, name))) {
+            write(namesToNumbers, name, null, version);
+            write(numbersToNames, number, null, version);
+            size--;
+        }
+    }
+
+    /* The value of key as far as the writer holding the lock is concerned, including the changes it has not
+     * published yet. */
+    private static String current(Map<String, Version> index, String key) {
+        Version head = index.get(key);
+        return (head == null) ? null : head.value;
+    }
+
+    private void write(Map<String, Version> index, String key, String value, long version) {
+        Version head = index.get(key);
+        if(head != null && head.version == version) {
+            // written earlier in the same batch, which no reader can see yet
+            head = head.older;
+        } else if(head != null) {
+            retired.add(new Retired(index, key, version));
+        }
+        if(head == null && value == null) {
+            index.remove(key);
+        } else {
+            index.put(key, new Version(version, value, head));
+        }
+    }
+
+    private void commit(long version) {
+        committed = version;
+        reclaim();
+    }
+
+    /* Unlinks the values that are older than what the oldest snapshot can see. */
+    private void reclaim() {
+        long oldest = committed;
+        reclaimed = oldest;
+        for(PhonebookSnapshot snapshot : snapshots) {
+            oldest = Math.min(oldest, snapshot.getVersion());
+        }
+        reclaimed = oldest;
+        while(!retired.isEmpty() && retired.peek().version <= oldest) {
+            Retired key = retired.poll();
+            Version head = key.index.get(key.key);
+            Version visible = head;
+            while(visible != null && visible.version > oldest) {
+                visible = visible.older;
+            }
+            if(visible == null) {
+                continue;
+            }
+            visible.older = null;
+            if(visible == head && head.value == null) {
+                key.index.remove(key.key, head);
+            }
+        }
+    }
+
+    /* The latest published value of key. */
+    private String latest(Map<String, Version> index, String key) {
+        Version head = index.get(key);
+        if(head == null) {
+            return null;
+        }
+        if(head.version <= committed) {
+            return head.value;
+        }
+        // head is being written, so the value before it is the latest published one; but if the write is published
+        // and reclaims that value meanwhile, head is the latest published one instead
+        Version older = head.older;
+        if(older == null && head.version <= committed) {
+            return head.value;
+        }
+        return (older == null) ? null : older.value;
+    }
+
+    /* The value of key as of version, which must be pinned by an open snapshot. */
+    private static String at(Map<String, Version> index, String key, long version) {
+        Version value = index.get(key);
+        while(value != null && value.version > version) {
+            value = value.older;
+        }
+        return (value == null) ? null : value.value;
+    }
+}
@@ -0,0 +1,214 @@
+package phonebook;
+
+import phonebook.hashes.*;
+import phonebook.utils.SipHash;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>{@link PairedTablesEngine} is the classic {@link PhonebookEngine}: it maintains a pair of {@link HashTable}s
+ * from {@link String}s to {@link String}s, one with the person's name as a key and the phone number as a value,
+ * and the other one with the phone number as a key and the name as a value. The {@link CollisionResolver}
+ * of either table can be chosen independently.</p>
+ *
+ * @see CollisionResolver
+ * @see SharedEntryEngine
+ */
+class PairedTablesEngine implements PhonebookEngine {
+
+    private HashTable namesToNumbers ;
+    private HashTable numbersToNames ;
+
+    PairedTablesEngine(CollisionResolver namesToNumbersHash, CollisionResolver numbersToNamesHash) {
+        this(namesToNumbersHash, numbersToNamesHash, false);
+    }
+
+    PairedTablesEngine(CollisionResolver namesToNumbersHash, CollisionResolver numbersToNamesHash, boolean seededHash) {
+
+        switch(namesToNumbersHash){
+            case SEPARATE_CHAINING:
+                namesToNumbers = new SeparateChainingHashTable();
+                break;
+            case LINEAR_PROBING:
+                namesToNumbers = new LinearProbingHashTable(false);
+                break;
+            case ORDERED_LINEAR_PROBING:
+                namesToNumbers = new OrderedLinearProbingHashTable(false);
+                break;
+            case QUADRATIC_PROBING:
+                namesToNumbers = new QuadraticProbingHashTable(false);
+                break;
+            case CONCURRENT_SEPARATE_CHAINING:
+                namesToNumbers = new ConcurrentSeparateChainingHashTable();
+                break;
+            case CONCURRENT_LINEAR_PROBING:
+                namesToNumbers = new ConcurrentLinearProbingHashTable();
+                break;
+            default:
+                throw new RuntimeException("Encountered unsupported CollisionResolver argument: " + namesToNumbersHash  + "." );
+        }
+
+        switch(numbersToNamesHash){
+            case SEPARATE_CHAINING:
+                numbersToNames = new SeparateChainingHashTable();
+                break;
+            case LINEAR_PROBING:
+                numbersToNames = new LinearProbingHashTable(false);
+                break;
+            case ORDERED_LINEAR_PROBING:
+                numbersToNames = new OrderedLinearProbingHashTable(false);
+                break;
+            case QUADRATIC_PROBING:
+                numbersToNames = new QuadraticProbingHashTable(false);
+                break;
+            case CONCURRENT_SEPARATE_CHAINING:
+                numbersToNames = new ConcurrentSeparateChainingHashTable();
+                break;
+            case CONCURRENT_LINEAR_PROBING:
+                numbersToNames = new ConcurrentLinearProbingHashTable();
+                break;
+            default:
+                throw new RuntimeException("Encountered unsupported Collision Resolver " + numbersToNamesHash + ".");
+        }
+
+        if(seededHash) {
+            seed(namesToNumbers);
+            seed(numbersToNames);
+        }
+    }
+
+    /* Gives table a keyed hash function of its own, so that the two tables collide on different keys. */
+    private static void seed(HashTable table) {
+        if(table instanceof OpenAddressingHashTable) {
+            ((OpenAddressingHashTable) table).useSeededHash(SipHash.random());
+        } else if(table instanceof SeparateChainingHashTable) {
+            ((SeparateChainingHashTable) table).useSeededHash(SipHash.random());
+        } else if(table instanceof ConcurrentSeparateChainingHashTable) {
+            ((ConcurrentSeparateChainingHashTable) table).useSeededHash(SipHash.random());
+        } else if(table instanceof ConcurrentLinearProbingHashTable) {
+            ((ConcurrentLinearProbingHashTable) table).useSeededHash(SipHash.random());
+        }
+    }
+
+    @Override
+    public String getNumberOf(String name) {
+        return namesToNumbers.get(name);
+    }
+
+    @Override
+    public String getOwnerOf(String number) {
+        return numbersToNames.get(number);
+    }
+
+    @Override
+    public String[] getNumbersOf(String[] names) {
+        return namesToNumbers.getAll(names);
+    }
+
+    @Override
+    public String[] getOwnersOf(String[] numbers) {
+        return numbersToNames.getAll(numbers);
+    }
+
+    @Override
+    public void addEntry(String name, String number) {
+        // Each upsert reports the counterpart it displaced, so the stale reverse mappings can be
+        // evicted without any additional lookups.
+        String oldNumber = namesToNumbers.upsert(name, number);
+        String oldOwner = numbersToNames.upsert(number, name);
+        if(oldNumber != null && !oldNumber.equals(number))
+            numbersToNames.remove(oldNumber);
+        if(oldOwner != null && !oldOwner.equals(name))
+            namesToNumbers.remove(oldOwner);
+    }
+
+    @Override
+    public void deleteEntry(String name, String number) {
+        if(number.equals(namesToNumbers.get(name))) {
+            namesToNumbers.remove(name);
+            numbersToNames.remove(number);
+        }
+    }
+
+    @Override
+    public void addEntries(List<Map.Entry<String, String>> entries) {
+        // Replay the evictions of addEntry() over the keys that the batch touches, where null marks an evicted key,
+        // then apply the net changes to each table as one removeAll() and one putAll().
+        Map<String, String> names = new LinkedHashMap<>();
+        Map<String, String> numbers = new LinkedHashMap<>();
+        for(Map.Entry<String, String> entry : entries) {
+            String name = entry.getKey(), number = entry.getValue();
+            String oldNumber = names.containsKey(name) ? names.get(name) : namesToNumbers.get(name);
+            String oldOwner = numbers.containsKey(number) ? numbers.get(number) : numbersToNames.get(number);
+            names.put(name, number);
+            numbers.put(number, name);
+            if(oldNumber != null && !oldNumber.equals(number))
+                numbers.put(oldNumber, null);
+            if(oldOwner != null && !oldOwner.equals(name))
+                names.put(oldOwner, null);
+        }
+        apply(namesToNumbers, names);
+        apply(numbersToNames, numbers);
+    }
+
+    /* Removes the keys that changes maps to null from table, then upserts the others as a single batch. */
+    private static void apply(HashTable table, Map<String, String> changes) {
+        List<String> evicted = new ArrayList<>();
+        List<Map.Entry<String, String>> upserts = new ArrayList<>();
+        for(Map.Entry<String, String> change : changes.entrySet()) {
+            if(change.getValue() == null) {
+                evicted.add(change.getKey());
+            } else {
+                upserts.add(Map.entry(change.getKey(), change.getValue()));
+            }
+        }
+        table.removeAll(evicted);
+        table.putAll(upserts);
+    }
+
+    @Override
+    public void deleteEntries(List<Map.Entry<String, String>> entries) {
+        List<String> names = new ArrayList<>();
+        List<String> numbers = new ArrayList<>();
+        for(Map.Entry<String, String> entry : entries) {
+            if(entry.getValue().equals(namesToNumbers.get(entry.getKey()))) {
+                names.add(entry.getKey());
+                numbers.add(entry.getValue());
+            }
+        }
+        namesToNumbers.removeAll(names);
+        numbersToNames.removeAll(numbers);
+    }
+
+    @Override
+    public int size() {
+        assert namesToNumbers.size() == numbersToNames.size() :
+                "Mismatch in internal hash table counts. Names->Numbers has count: " +
+                        namesToNumbers.size() + ", while Numbers->Names has count:  " +
+                        numbersToNames.size() + ".";
+        return namesToNumbers.size();
+    }
+
+    @Override
+    public void ensureCapacity(int size) {
+        namesToNumbers.ensureCapacity(size);
+        numbersToNames.ensureCapacity(size);
+    }
+
+    @Override
+    public void compact() {
+        namesToNumbers.compact();
+        numbersToNames.compact();
+    }
+
+    @Override
+    public Map<String, HashTable> tables() {
+        Map<String, HashTable> tables = new LinkedHashMap<>();
+        tables.put("namesToNumbers", namesToNumbers);
+        tables.put("numbersToNames", numbersToNames);
+        return tables;
+    }
+}
@@ -1,6 +1,22 @@
 package phonebook;
 
 import phonebook.hashes.*;
+import phonebook.utils.LatencyHistogram;
+import phonebook.utils.LatencyRecorder;
+import phonebook.utils.TableStats;
+import phonebook.utils.Trace;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>{@link Phonebook} is an abstraction over phonebooks: databases of &lt; Full Name,
@@ -8,6 +24,17 @@ import phonebook.hashes.*;
  * <em>amortized constant</em> time. The efficiency of either search will be dependent on
  * the nature of the underlying hash table. No {@code null} entries are allowed. </p>
  *
+ * <p>By default, {@link Phonebook} internally maintains a pair of hash tables, one keyed by name and one keyed by
+ * number, whose collision resolution strategies are chosen independently. Alternatively, a {@link Phonebook} can be
+ * backed by a single {@link BidirectionalHashTable}, which stores every entry once and indexes it by both name and
+ * number, roughly halving the memory spent on entries.</p>
+ *
+ * <p>{@link Phonebook}s are not thread-safe, except for the ones built with
+ * {@link #Phonebook(CollisionResolver, CollisionResolver, int)} over thread-safe {@link CollisionResolver}s and the
+ * copy-on-write ones of {@link #copyOnWrite()}, which readers and writers can share without any external lock; see
+ * {@link #isThreadSafe()}. The multi-version ones of {@link #multiVersion()} are thread-safe too, and also open
+ * {@link PhonebookSnapshot}s, which keep answering from the entries of one version while writers carry on.</p>
+ *
  * <p>{@link Phonebook} only allows for <b>unique</b> Person / Phone pairs. That is, every person will have
  * <b>exactly one</b> phone number associated with them, and every phone number will be associated with
  * <b>exactly one</b> person. Study the implementation of this class to see for yourselves how this is attained by
@@ -18,6 +45,13 @@ import phonebook.hashes.*;
  * {@link Phonebook} instances in all 3^2 = 9 possible ways, we can run the same tests against all of the hash
  * tables that you will have to implement. </p>
  *
+ * <p>When the JVM runs with {@code -Dphonebook.latency=true}, {@link Phonebook} records the latency of every
+ * {@link Operation}. All {@link Phonebook}s with the same pair of {@link CollisionResolver}s share their latency
+ * histograms, which {@link #latencySnapshot()} reports, so that resolver choices can be compared on real traffic.</p>
+ *
+ * <p>{@link #registerMBeans(String)} exposes a {@link Phonebook} and each of its {@link HashTable}s to JMX consoles,
+ * where operators can watch their health and compact them or reserve capacity while the application runs.</p>
+ *
  * <p><b>**** STUDY, BUT DO NOT EDIT THIS CLASS' SOURCE CODE! </b></p>
  *
  * @author <a href="https://github.com/JasonFil">Jason Filippou</a>
@@ -25,11 +59,37 @@ import phonebook.hashes.*;
  * @see SeparateChainingHashTable
  * @see LinearProbingHashTable
  * @see QuadraticProbingHashTable
+ * @see BidirectionalHashTable
+ * @see LatencyRecorder
+ * @see PhonebookMXBean
  */
 public class Phonebook {
 
-    private HashTable namesToNumbers ;
-    private HashTable numbersToNames ;
+    /**
+     * The operations of {@link Phonebook} whose latencies are recorded.
+     * @see #latencySnapshot()
+     */
+    public enum Operation {
+        /** {@link Phonebook#addEntry(String, String)}. */
+        ADD_ENTRY,
+        /** {@link Phonebook#deleteEntry(String, String)}. */
+        DELETE_ENTRY,
+        /** {@link Phonebook#getNumberOf(String)}. */
+        GET_NUMBER_OF,
+        /** {@link Phonebook#getOwnerOf(String)}. */
+        GET_OWNER_OF
+    }
+
+    /* One recorder per configuration, shared by every Phonebook with that configuration. */
+    private static final Map<String, LatencyRecorder<Operation>> LATENCIES = new ConcurrentHashMap<>();
+
+    // replaced by startRecording() and stopRecording() while other threads may be using a thread-safe Phonebook
+    private volatile PhonebookEngine engine;
+    private String configuration;
+    private LatencyRecorder<Operation> latency;
+    private boolean threadSafe;
+    private MultiVersionEngine versions;
+    private List<ObjectName> mbeans = new ArrayList<>();
 
 
     /**
@@ -43,40 +103,113 @@ public class Phonebook {
      * @see CollisionResolver
      */
     public Phonebook(CollisionResolver namesToNumbersHash, CollisionResolver numbersToNamesHash) {
+        this(namesToNumbersHash, numbersToNamesHash, false);
+    }
 
-        switch(namesToNumbersHash){
-            case SEPARATE_CHAINING:
-                namesToNumbers = new SeparateChainingHashTable();
-                break;
-            case LINEAR_PROBING:
-                namesToNumbers = new LinearProbingHashTable(false);
-                break;
-            case ORDERED_LINEAR_PROBING:
-                namesToNumbers = new OrderedLinearProbingHashTable(false);
-                break;
-            case QUADRATIC_PROBING:
-                namesToNumbers = new QuadraticProbingHashTable(false);
-                break;
-            default:
-                throw new RuntimeException("Encountered unsupported CollisionResolver argument: " + namesToNumbersHash  + "." );
-        }
+    /**
+     * Instantiates a new {@link Phonebook}, optionally hashing with a randomly keyed {@link phonebook.utils.SipHash}
+     * instead of {@link String#hashCode()}. Names and numbers that reach the {@link Phonebook} from untrusted sources
+     * should be hashed that way: colliding {@link String#hashCode()}s are trivial to generate, and enough of them
+     * degrade every lookup to a linear scan.
+     *
+     * @param namesToNumbersHash A {@link CollisionResolver} that will govern which subtype of {@link HashTable} will be used to
+     *                           create our hash table with <b>peoples' names</b> as keys.
+     * @param numbersToNamesHash A {@link CollisionResolver} that will govern which subtype of {@link HashTable} will be used to
+     *                           create our hash table with <b>phone numbers</b> as keys.
+     * @param seededHash {@code true} if and only if both tables should hash with a random key of their own.
+     * @see CollisionResolver
+     * @see OpenAddressingHashTable#useSeededHash(phonebook.utils.SipHash)
+     */
+    public Phonebook(CollisionResolver namesToNumbersHash, CollisionResolver numbersToNamesHash, boolean seededHash) {
+        engine = new PairedTablesEngine(namesToNumbersHash, numbersToNamesHash, seededHash);
+        configuration = namesToNumbersHash + "/" + numbersToNamesHash + (seededHash ? "+SEEDED" : "");
+        latency = recorderOf(configuration);
+    }
 
-        switch(numbersToNamesHash){
-            case SEPARATE_CHAINING:
-                numbersToNames = new SeparateChainingHashTable();
-                break;
-            case LINEAR_PROBING:
-                numbersToNames = new LinearProbingHashTable(false);
-                break;
-            case ORDERED_LINEAR_PROBING:
-                numbersToNames = new OrderedLinearProbingHashTable(false);
-                break;
-            case QUADRATIC_PROBING:
-                numbersToNames = new QuadraticProbingHashTable(false);
-                break;
-            default:
-                throw new RuntimeException("Encountered unsupported Collision Resolver " + numbersToNamesHash + ".");
-        }
+    /**
+     * Instantiates a new <b>thread-safe</b> {@link Phonebook} over two thread-safe hash tables. Every name and number
+     * belongs to one of stripes {@link java.util.concurrent.locks.StampedLock}s: {@link #addEntry(String, String)} and
+     * {@link #deleteEntry(String, String)} lock the stripes of every name and number that they change, so that both
+     * directions of an entry change at once, while {@link #getNumberOf(String)} and {@link #getOwnerOf(String)} read
+     * optimistically and only lock when a writer got in their way. More stripes let more writers proceed in parallel.
+     *
+     * @param namesToNumbersHash A thread-safe {@link CollisionResolver} for the table with <b>peoples' names</b> as keys.
+     * @param numbersToNamesHash A thread-safe {@link CollisionResolver} for the table with <b>phone numbers</b> as keys.
+     * @param stripes The number of lock stripes.
+     * @throws IllegalArgumentException if either {@link CollisionResolver} is neither
+     * {@link CollisionResolver#CONCURRENT_SEPARATE_CHAINING} nor {@link CollisionResolver#CONCURRENT_LINEAR_PROBING},
+     * or if stripes is not positive.
+     */
+    public Phonebook(CollisionResolver namesToNumbersHash, CollisionResolver numbersToNamesHash, int stripes) {
+        if(!isConcurrent(namesToNumbersHash) || !isConcurrent(numbersToNamesHash))
+            throw new IllegalArgumentException("Provided: namesToNumbersHash=" + namesToNumbersHash
+                    + " and numbersToNamesHash=" + numbersToNamesHash + ", which are not both thread-safe.");
+        engine = new StripedLockEngine(new PairedTablesEngine(namesToNumbersHash, numbersToNamesHash, false), stripes);
+        configuration = namesToNumbersHash + "/" + numbersToNamesHash + "+STRIPED";
+        latency = recorderOf(configuration);
+        threadSafe = true;
+    }
+
+    private Phonebook(PhonebookEngine engine, String configuration) {
+        this.engine = engine;
+        this.configuration = configuration;
+        this.latency = recorderOf(configuration);
+        this.threadSafe = true;
+    }
+
+    /**
+     * Creates a new <b>copy-on-write</b> {@link Phonebook}, for data that is read far more often than it changes.
+     * Readers find both directions of the entries in immutable, compactly laid out tables behind a single
+     * {@code volatile} reference, so they never lock, never wait and never see a resize. Every update, or every batch
+     * of {@link #addEntries(Iterable)} and {@link #deleteEntries(Iterable)}, publishes a new version of the tables,
+     * which shares every segment that it did not change with the previous one. The {@link Phonebook} is thread-safe;
+     * writers take turns.
+     *
+     * @return An empty {@link Phonebook} whose configuration is &quot;COPY_ON_WRITE&quot;.
+     * @see PersistentHashTable
+     */
+    public static Phonebook copyOnWrite() {
+        return new Phonebook(new CopyOnWriteEngine(), "COPY_ON_WRITE");
+    }
+
+    /**
+     * Creates a new <b>multi-version</b> {@link Phonebook}, for data that is exported or audited while it changes.
+     * Every update, or every batch of {@link #addEntries(Iterable)} and {@link #deleteEntries(Iterable)}, is tagged
+     * with the next version number, and {@link #openSnapshot()} opens a {@link PhonebookSnapshot} that answers
+     * {@link PhonebookSnapshot#getNumberOf(String)} and {@link PhonebookSnapshot#getOwnerOf(String)} as of a version,
+     * consistently across both directions, however long it stays open. Neither snapshots nor lookups ever block
+     * writers, who take turns. The values superseded by an update are reclaimed by a later update, once every
+     * snapshot that could read them has been closed.
+     *
+     * @return An empty {@link Phonebook} whose configuration is &quot;MULTI_VERSION&quot;.
+     * @see PhonebookSnapshot
+     */
+    public static Phonebook multiVersion() {
+        MultiVersionEngine engine = new MultiVersionEngine();
+        Phonebook phonebook = new Phonebook(engine, "MULTI_VERSION");
+        phonebook.versions = engine;
+        return phonebook;
+    }
+
+    private static boolean isConcurrent(CollisionResolver resolver) {
+        return resolver == CollisionResolver.CONCURRENT_SEPARATE_CHAINING
+                || resolver == CollisionResolver.CONCURRENT_LINEAR_PROBING;
+    }
+
+    /**
+     * Instantiates a new {@link Phonebook} in <b>shared-entry</b> mode: every entry is stored once in the provided
+     * {@link BidirectionalHashTable}, which indexes it by both name and number.
+     *
+     * @param entries An empty {@link BidirectionalHashTable} that will hold the entries of this {@link Phonebook}.
+     * @throws IllegalArgumentException if entries is {@code null}.
+     * @see BidirectionalHashTable
+     */
+    public Phonebook(BidirectionalHashTable entries) {
+        if(entries == null)
+            throw new IllegalArgumentException("Provided a null BidirectionalHashTable.");
+        engine = new SharedEntryEngine(entries);
+        configuration = "SHARED_ENTRY";
+        latency = recorderOf(configuration);
     }
 
     /** Retrieves the phone number associated with the provided full name. If the name is not in the database,
@@ -86,8 +219,11 @@ public class Phonebook {
      * is not in the {@link Phonebook}.
      */
     public String getNumberOf(String name) {
-    	System.out.println("Get number of: "+name);
-        return (name == null) ? null : namesToNumbers.get(name);
+        if(Trace.OPERATIONS) Trace.record("Phonebook.getNumberOf", name, null);
+        long start = LatencyRecorder.ENABLED ? System.nanoTime() : 0;
+        String number = (name == null) ? null : engine.getNumberOf(name);
+        if(LatencyRecorder.ENABLED) latency.record(Operation.GET_NUMBER_OF, System.nanoTime() - start);
+        return number;
     }
 
     /** Retrieves the full name of the owner of the provided phone number. If the phone number is not in the database,
@@ -97,8 +233,39 @@ public class Phonebook {
      * is not in the {@link Phonebook}.
      */
     public String getOwnerOf(String number) {
-    	System.out.println("Get name of: "+number);
-        return (number == null) ? null : numbersToNames.get(number);
+        if(Trace.OPERATIONS) Trace.record("Phonebook.getOwnerOf", number, null);
+        long start = LatencyRecorder.ENABLED ? System.nanoTime() : 0;
+        String owner = (number == null) ? null : engine.getOwnerOf(number);
+        if(LatencyRecorder.ENABLED) latency.record(Operation.GET_OWNER_OF, System.nanoTime() - start);
+        return owner;
+    }
+
+    /** Retrieves the phone numbers associated with every provided full name. All names are hashed up front, and the
+     * underlying storage is probed in address order rather than in the order of names, which makes this considerably
+     * faster than calling {@link #getNumberOf(String)} in a loop for large batches.
+     * @param names The full names whose phone numbers are being searched for.
+     * @return An array as long as names whose i-th element is the phone number associated with the i-th name, or
+     * {@code null} if that name is {@code null} or not in the {@link Phonebook}.
+     * @throws IllegalArgumentException if names is {@code null}.
+     */
+    public String[] getNumbersOf(String[] names) {
+        if(names == null)
+            throw new IllegalArgumentException("Provided a null array of names.");
+        return engine.getNumbersOf(names);
+    }
+
+    /** Retrieves the full names of the owners of every provided phone number. All numbers are hashed up front, and the
+     * underlying storage is probed in address order rather than in the order of numbers, which makes this considerably
+     * faster than calling {@link #getOwnerOf(String)} in a loop for large batches.
+     * @param numbers The phone numbers whose owners are being searched for.
+     * @return An array as long as numbers whose i-th element is the owner of the i-th number, or {@code null} if that
+     * number is {@code null} or not in the {@link Phonebook}.
+     * @throws IllegalArgumentException if numbers is {@code null}.
+     */
+    public String[] getOwnersOf(String[] numbers) {
+        if(numbers == null)
+            throw new IllegalArgumentException("Provided a null array of numbers.");
+        return engine.getOwnersOf(numbers);
     }
 
     /** Adds the tuple &lt; name, number &gt; in the {@link Phonebook}. If either name or
@@ -110,8 +277,9 @@ public class Phonebook {
     public void addEntry(String name, String number) {
         if(name == null || number == null)
             throw new IllegalArgumentException("Provided: name=" + name + " and number= " + number);
-        namesToNumbers.put(name, number);
-        numbersToNames.put(number, name);
+        long start = LatencyRecorder.ENABLED ? System.nanoTime() : 0;
+        engine.addEntry(name, number);
+        if(LatencyRecorder.ENABLED) latency.record(Operation.ADD_ENTRY, System.nanoTime() - start);
     }
 
     /** Deletes the entry characterized by the arguments provided. If either argument is {@code null}, or if the
@@ -123,19 +291,236 @@ public class Phonebook {
     public void deleteEntry(String name, String number) {
         if(number == null || name == null)
             throw new IllegalArgumentException("Provided: name=" + name + " and number= " + number);
-        namesToNumbers.remove(name);
-        numbersToNames.remove(number);
+        long start = LatencyRecorder.ENABLED ? System.nanoTime() : 0;
+        engine.deleteEntry(name, number);
+        if(LatencyRecorder.ENABLED) latency.record(Operation.DELETE_ENTRY, System.nanoTime() - start);
+    }
+
+    /** Adds every tuple &lt; name, number &gt; of entries in the {@link Phonebook}, in order, as if by
+     * {@link #addEntry(String, String)}. The internal storage is sized <b>once</b> for the whole batch, which makes
+     * this considerably faster than adding the entries one at a time.
+     * @param entries The tuples to add, as &lt; name, number &gt; {@link Map.Entry} instances.
+     * @throws IllegalArgumentException if entries is {@code null} or contains a {@code null} name or number. In that
+     * case, no entry has been added.
+     */
+    public void addEntries(Iterable<Map.Entry<String, String>> entries) {
+        engine.addEntries(validated(entries));
+    }
+
+    /** Deletes every tuple &lt; name, number &gt; of entries from the {@link Phonebook}, as if by
+     * {@link #deleteEntry(String, String)}. Tuples that are not contained by this {@link Phonebook} are ignored.
+     * @param entries The tuples to delete, as &lt; name, number &gt; {@link Map.Entry} instances.
+     * @throws IllegalArgumentException if entries is {@code null} or contains a {@code null} name or number. In that
+     * case, no entry has been deleted.
+     */
+    public void deleteEntries(Iterable<Map.Entry<String, String>> entries) {
+        engine.deleteEntries(validated(entries));
+    }
+
+    private static List<Map.Entry<String, String>> validated(Iterable<Map.Entry<String, String>> entries) {
+        if(entries == null)
+            throw new IllegalArgumentException("Provided a null collection of entries.");
+        List<Map.Entry<String, String>> batch = new ArrayList<>();
+        for(Map.Entry<String, String> entry : entries) {
+            if(entry == null || entry.getKey() == null || entry.getValue() == null)
+                throw new IllegalArgumentException("Provided: entry=" + entry);
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    /** Reports the latencies recorded so far by every {@link Phonebook} in this JVM, merged across threads and grouped
+     * by configuration. A configuration is either the pair of {@link CollisionResolver}s of the {@link Phonebook}, as in
+     * &quot;LINEAR_PROBING/QUADRATIC_PROBING&quot;, or &quot;SHARED_ENTRY&quot;. The p50, p99, p999 and max of every
+     * {@link Operation} are available from its {@link LatencyHistogram}.
+     * @return The latency histograms of every configuration, by configuration name and then by {@link Operation}.
+     * Empty unless latency recording is enabled.
+     * @see LatencyRecorder#ENABLED
+     */
+    public static Map<String, Map<Operation, LatencyHistogram>> latencySnapshot() {
+        Map<String, Map<Operation, LatencyHistogram>> snapshot = new TreeMap<>();
+        for(Map.Entry<String, LatencyRecorder<Operation>> configuration : LATENCIES.entrySet()) {
+            snapshot.put(configuration.getKey(), configuration.getValue().snapshot());
+        }
+        return snapshot;
+    }
+
+    /** Resizes the internal storage, at most once, so that this {@link Phonebook} can hold size entries without
+     * resizing again. The storage is never shrunk.
+     * @param size The number of entries that this should be able to hold.
+     */
+    public void ensureCapacity(int size) {
+        engine.ensureCapacity(size);
+    }
+
+    /** Discards every tombstone left behind in the internal storage by deletions, without changing its capacity.
+     */
+    public void compact() {
+        engine.compact();
+    }
+
+    /** Returns the configuration of this {@link Phonebook}: the names of its two {@link CollisionResolver}s,
+     * as in &quot;LINEAR_PROBING/QUADRATIC_PROBING&quot;, followed by &quot;+SEEDED&quot; if it hashes with a keyed hash
+     * function or by &quot;+STRIPED&quot; if it is thread-safe, &quot;SHARED_ENTRY&quot;, &quot;COPY_ON_WRITE&quot; or
+     * &quot;MULTI_VERSION&quot;.
+     * @return The configuration of this {@link Phonebook}.
+     */
+    public String getConfiguration() {
+        return configuration;
+    }
+
+    /** Tells whether this {@link Phonebook} can be shared between threads without any external synchronization.
+     * @return {@code true} if, and only if, this was built with
+     * {@link #Phonebook(CollisionResolver, CollisionResolver, int)}, {@link #copyOnWrite()} or
+     * {@link #multiVersion()}.
+     */
+    public boolean isThreadSafe() {
+        return threadSafe;
+    }
+
+    /** Returns the version of this {@link Phonebook}: the number of updates and batches applied to it so far.
+     * @return The latest version of this {@link Phonebook}.
+     * @throws UnsupportedOperationException if this was not built with {@link #multiVersion()}.
+     */
+    public long getVersion() {
+        return multiVersionEngine().version();
+    }
+
+    /** Opens a {@link PhonebookSnapshot} of the latest version of this {@link Phonebook}. The snapshot should be
+     * closed as soon as it is no longer needed, since the values that it can read are kept until then.
+     * @return A {@link PhonebookSnapshot} of the version returned by {@link #getVersion()}.
+     * @throws UnsupportedOperationException if this was not built with {@link #multiVersion()}.
+     */
+    public PhonebookSnapshot openSnapshot() {
+        return multiVersionEngine().open();
+    }
+
+    /** Opens a {@link PhonebookSnapshot} of an earlier version of this {@link Phonebook}. Only the versions that some
+     * open snapshot still holds, and the latest one, can be opened; any other may have been reclaimed.
+     * @param version The version to read at.
+     * @return A {@link PhonebookSnapshot} of version.
+     * @throws UnsupportedOperationException if this was not built with {@link #multiVersion()}.
+     * @throws IllegalArgumentException if version is newer than {@link #getVersion()}.
+     * @throws IllegalStateException if version is older than every open snapshot and than the latest version.
+     */
+    public PhonebookSnapshot openSnapshot(long version) {
+        return multiVersionEngine().open(version);
+    }
+
+    /** Starts reporting every operation served by this {@link Phonebook} to recorder, until
+     * {@link #stopRecording()} is called. Recording an already recording {@link Phonebook} switches it to the new
+     * recorder. On a {@link #isThreadSafe() thread-safe} {@link Phonebook}, recording may start while other threads
+     * use it: the operations that are already running when it starts are not recorded, and every operation that
+     * starts after this method returns is.
+     * @param recorder The {@link WorkloadRecorder} that writes the trace.
+     * @throws IllegalArgumentException if recorder is {@code null}.
+     * @see WorkloadTrace
+     */
+    public synchronized void startRecording(WorkloadRecorder recorder) {
+        if(recorder == null)
+            throw new IllegalArgumentException("Provided a null WorkloadRecorder.");
+        stopRecording();
+        engine = new RecordingEngine(engine, recorder);
+    }
+
+    /** Stops reporting operations to the {@link WorkloadRecorder} of {@link #startRecording(WorkloadRecorder)}. The
+     * recorder itself is left open. Has no effect if this {@link Phonebook} is not being recorded. The operations
+     * that are already running when recording stops may still be reported to the recorder until they return, so the
+     * recorder should only be closed once they have.
+     */
+    public synchronized void stopRecording() {
+        if(engine instanceof RecordingEngine)
+            engine = ((RecordingEngine) engine).unwrap();
+    }
+
+    /** Returns a {@link TableStats} snapshot of every {@link HashTable} that stores the entries of this
+     * {@link Phonebook}, keyed by the role of the table: &quot;namesToNumbers&quot; or &quot;numbersToNames&quot;.
+     * Shared-entry {@link Phonebook}s have no such tables.
+     * @return The probe statistics of the underlying tables.
+     */
+    public Map<String, TableStats> tableStats() {
+        Map<String, TableStats> stats = new LinkedHashMap<>();
+        for(Map.Entry<String, HashTable> table : engine.tables().entrySet()) {
+            stats.put(table.getKey(), table.getValue().snapshot());
+        }
+        return stats;
+    }
+
+    /** Registers a {@link PhonebookMXBean} for this {@link Phonebook} with the platform MBean server, under
+     * {@code phonebook:type=Phonebook,name=<name>}, and a {@link HashTableMXBean} for each of its {@link HashTable}s,
+     * under {@code phonebook:type=HashTable,phonebook=<name>,role=<role>}. Their operations synchronize on this
+     * {@link Phonebook}, so an application that shares it between threads should synchronize on it too.
+     * @param name A name that is unique among the registered {@link Phonebook}s.
+     * @throws IllegalArgumentException if name is {@code null}.
+     * @throws IllegalStateException if the MBeans could not be registered, e.g because name is already taken. In that
+     * case, none of the MBeans of this call is registered.
+     * @see #unregisterMBeans()
+     */
+    public void registerMBeans(String name) {
+        if(name == null)
+            throw new IllegalArgumentException("Provided a null name.");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        int registered = mbeans.size();
+        try {
+            register(server, new ObjectName("phonebook:type=Phonebook,name=" + ObjectName.quote(name)),
+                    new PhonebookMonitor(this));
+            for(Map.Entry<String, HashTable> table : engine.tables().entrySet()) {
+                register(server, new ObjectName("phonebook:type=HashTable,phonebook=" + ObjectName.quote(name)
+                        + ",role=" + table.getKey()), new HashTableMonitor(table.getValue(), this));
+            }
+        } catch(JMException e) {
+            // Roll back this call only; MBeans registered under other names stay.
+            List<ObjectName> added = mbeans.subList(registered, mbeans.size());
+            for(ObjectName mbean : added) {
+                unregister(server, mbean);
+            }
+            added.clear();
+            throw new IllegalStateException("Could not register the MBeans of Phonebook " + name + ".", e);
+        }
+    }
+
+    /** Unregisters every MBean registered by {@link #registerMBeans(String)}. MBeans that are already gone are
+     * ignored.
+     */
+    public void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for(ObjectName mbean : mbeans) {
+            unregister(server, mbean);
+        }
+        mbeans.clear();
+    }
+
+    private static void unregister(MBeanServer server, ObjectName name) {
+        try {
+            server.unregisterMBean(name);
+        } catch(JMException e) {
+            // Already unregistered by someone else: nothing left to do.
+        }
+    }
+
+    private void register(MBeanServer server, ObjectName name, Object mbean) throws JMException {
+        server.registerMBean(mbean, name);
+        mbeans.add(name);
+    }
+
+    private MultiVersionEngine multiVersionEngine() {
+        if(versions == null)
+            throw new UnsupportedOperationException("Only multi-version Phonebooks have versions; this one is "
+                    + configuration + ".");
+        return versions;
+    }
+
+    private static LatencyRecorder<Operation> recorderOf(String configuration) {
+        if(!LatencyRecorder.ENABLED)
+            return null;
+        return LATENCIES.computeIfAbsent(configuration, c -> new LatencyRecorder<>(Operation.class));
     }
 
     /** Returns the number of entries in the phonebook.
      * @return the number of entries in the phonebook.
      */
     public int size() {
-        assert namesToNumbers.size() == numbersToNames.size() :
-                "Mismatch in internal hash table counts. Names->Numbers has count: " +
-                        namesToNumbers.size() + ", while Numbers->Names has count:  " +
-                        numbersToNames.size() + ".";
-        return namesToNumbers.size();
+        return engine.size();
     }
 
     /** Queries the phonebook for emptiness.
@@ -0,0 +1,128 @@
+package phonebook;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import phonebook.hashes.HashTable;
+
+/**
+ * <p>{@link PhonebookEngine} is the storage strategy behind a {@link Phonebook}. {@link Phonebook} validates its
+ * arguments and then delegates every query and update to its engine, which is responsible for keeping the
+ * name-based and the number-based views of the data consistent with each other.</p>
+ *
+ * @see Phonebook
+ * @see PairedTablesEngine
+ * @see SharedEntryEngine
+ */
+interface PhonebookEngine {
+
+    /**
+     * Retrieves the phone number associated with a non-{@code null} full name.
+     * @param name The full name to search for.
+     * @return The associated phone number, or {@code null} if name is not stored.
+     */
+    String getNumberOf(String name);
+
+    /**
+     * Retrieves the owner of a non-{@code null} phone number.
+     * @param number The phone number to search for.
+     * @return The associated full name, or {@code null} if number is not stored.
+     */
+    String getOwnerOf(String number);
+
+    /**
+     * Retrieves the phone numbers associated with every full name in names. The default implementation loops over
+     * {@link #getNumberOf(String)}.
+     * @param names The full names to search for; may contain {@code null}s.
+     * @return The associated phone numbers, in the order of names, with {@code null} for names that are {@code null}
+     * or not stored.
+     */
+    default String[] getNumbersOf(String[] names) {
+        String[] numbers = new String[names.length];
+        for(int i = 0; i < names.length; i++) {
+            numbers[i] = (names[i] == null) ? null : getNumberOf(names[i]);
+        }
+        return numbers;
+    }
+
+    /**
+     * Retrieves the owners of every phone number in numbers. The default implementation loops over
+     * {@link #getOwnerOf(String)}.
+     * @param numbers The phone numbers to search for; may contain {@code null}s.
+     * @return The associated full names, in the order of numbers, with {@code null} for numbers that are {@code null}
+     * or not stored.
+     */
+    default String[] getOwnersOf(String[] numbers) {
+        String[] names = new String[numbers.length];
+        for(int i = 0; i < numbers.length; i++) {
+            names[i] = (numbers[i] == null) ? null : getOwnerOf(numbers[i]);
+        }
+        return names;
+    }
+
+    /**
+     * Stores the non-{@code null} pair &lt; name, number &gt;.
+     * @param name The full name of the number's owner.
+     * @param number The phone number of the person.
+     */
+    void addEntry(String name, String number);
+
+    /**
+     * Deletes the non-{@code null} pair &lt; name, number &gt;.
+     * @param name The &quot;owner&quot; part of the tuple.
+     * @param number The &quot;number&quot; part of the tuple.
+     */
+    void deleteEntry(String name, String number);
+
+    /**
+     * Stores every non-{@code null} pair of entries, as if by {@link #addEntry(String, String)}. Engines should
+     * size their storage once for the whole batch. The default implementation loops over {@link #addEntry(String, String)}.
+     * @param entries The &lt; name, number &gt; pairs to store, in order.
+     */
+    default void addEntries(List<Map.Entry<String, String>> entries) {
+        for(Map.Entry<String, String> entry : entries) {
+            addEntry(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Deletes every non-{@code null} pair of entries, as if by {@link #deleteEntry(String, String)}. The default
+     * implementation loops over {@link #deleteEntry(String, String)}.
+     * @param entries The &lt; name, number &gt; pairs to delete.
+     */
+    default void deleteEntries(List<Map.Entry<String, String>> entries) {
+        for(Map.Entry<String, String> entry : entries) {
+            deleteEntry(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the number of entries stored.
+     * @return the number of entries stored.
+     */
+    int size();
+
+    /**
+     * Resizes the underlying storage, at most once, so that it can hold size entries without resizing again. The
+     * default implementation has no effect.
+     * @param size The number of entries that this should be able to hold.
+     */
+    default void ensureCapacity(int size) {
+    }
+
+    /**
+     * Discards every tombstone of the underlying storage. The default implementation has no effect.
+     */
+    default void compact() {
+    }
+
+    /**
+     * Returns the {@link HashTable}s that store the entries, by role, for monitoring. The default implementation
+     * returns no tables.
+     * @return The underlying {@link HashTable}s, keyed by a short name of their role.
+     */
+    default Map<String, HashTable> tables() {
+        return Collections.emptyMap();
+    }
+}
@@ -0,0 +1,35 @@
+package phonebook;
+
+/**
+ * <p>{@link PhonebookMXBean} is the JMX management interface of a {@link Phonebook}. The health of its underlying
+ * tables is exposed separately, by one {@link phonebook.hashes.HashTableMXBean} per table.</p>
+ *
+ * @see Phonebook#registerMBeans(String)
+ */
+public interface PhonebookMXBean {
+
+    /**
+     * @return The configuration of the {@link Phonebook}.
+     * @see Phonebook#getConfiguration()
+     */
+    String getConfiguration();
+
+    /**
+     * @return The number of entries in the {@link Phonebook}.
+     * @see Phonebook#size()
+     */
+    int getSize();
+
+    /**
+     * Discards every tombstone of the {@link Phonebook}'s storage.
+     * @see Phonebook#compact()
+     */
+    void compact();
+
+    /**
+     * Reserves room for size entries.
+     * @param size The number of entries that the {@link Phonebook} should be able to hold.
+     * @see Phonebook#ensureCapacity(int)
+     */
+    void ensureCapacity(int size);
+}
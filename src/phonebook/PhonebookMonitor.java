@@ -0,0 +1,42 @@
+package phonebook;
+
+/**
+ * <p>{@link PhonebookMonitor} is the {@link PhonebookMXBean} of a {@link Phonebook}. Every attribute and operation
+ * synchronizes on the monitored {@link Phonebook}.</p>
+ *
+ * @see Phonebook#registerMBeans(String)
+ */
+class PhonebookMonitor implements PhonebookMXBean {
+
+    private final Phonebook phonebook;
+
+    PhonebookMonitor(Phonebook phonebook) {
+        this.phonebook = phonebook;
+    }
+
+    @Override
+    public String getConfiguration() {
+        return phonebook.getConfiguration();
+    }
+
+    @Override
+    public int getSize() {
+        synchronized(phonebook) {
+            return phonebook.size();
+        }
+    }
+
+    @Override
+    public void compact() {
+        synchronized(phonebook) {
+            phonebook.compact();
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int size) {
+        synchronized(phonebook) {
+            phonebook.ensureCapacity(size);
+        }
+    }
+}
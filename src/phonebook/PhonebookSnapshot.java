@@ -0,0 +1,81 @@
+package phonebook;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * <p>{@link PhonebookSnapshot} is a point-in-time view of a multi-version {@link Phonebook}: it answers lookups from
+ * the entries that the {@link Phonebook} had at one version, no matter how many updates are applied after it was
+ * opened. A name that it maps to a number is always the owner that it reports for that number, so exports and audits
+ * that read a {@link Phonebook} for a long time see one consistent state, without blocking its writers.</p>
+ *
+ * <p>An open snapshot keeps every value that it can read from being reclaimed, so it should be closed, preferably with
+ * a try-with-resources statement, as soon as it is done. Snapshots can be shared between threads.</p>
+ *
+ * @see Phonebook#multiVersion()
+ * @see Phonebook#openSnapshot()
+ */
+public final class PhonebookSnapshot implements AutoCloseable {
+
+    private final MultiVersionEngine engine;
+    private final long version;
+    private volatile boolean closed;
+
+    PhonebookSnapshot(MultiVersionEngine engine, long version) {
+        this.engine = engine;
+        this.version = version;
+    }
+
+    /** Returns the version of the {@link Phonebook} that this snapshot reads.
+     * @return The version of this snapshot.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /** Retrieves the phone number that the provided full name had at the version of this snapshot.
+     * @param name The full name of the owner of the phone number that is being searched for.
+     * @return The phone number associated with name, or {@code null} if name is {@code null} or if name
+     * was not in the {@link Phonebook}.
+     * @throws IllegalStateException if this snapshot has been closed.
+     */
+    public String getNumberOf(String name) {
+        ensureOpen();
+        return (name == null) ? null : engine.getNumberOf(name, version);
+    }
+
+    /** Retrieves the full name that owned the provided phone number at the version of this snapshot.
+     * @param number The phone number whose owner is being searched for.
+     * @return The full name of the owner of number, or {@code null} if number is {@code null} or if number
+     * was not in the {@link Phonebook}.
+     * @throws IllegalStateException if this snapshot has been closed.
+     */
+    public String getOwnerOf(String number) {
+        ensureOpen();
+        return (number == null) ? null : engine.getOwnerOf(number, version);
+    }
+
+    /** Streams every tuple &lt; name, number &gt; that the {@link Phonebook} had at the version of this snapshot, in
+     * no particular order. The stream must be consumed before this snapshot is closed.
+     * @return The entries of this snapshot, as &lt; name, number &gt; {@link Map.Entry} instances.
+     * @throws IllegalStateException if this snapshot has been closed.
+     */
+    public Stream<Map.Entry<String, String>> entries() {
+        ensureOpen();
+        return engine.entries(version);
+    }
+
+    /** Releases the version of this snapshot, whose values can then be reclaimed. Closing a closed snapshot has no
+     * effect.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        engine.close(this);
+    }
+
+    private void ensureOpen() {
+        if(closed)
+            throw new IllegalStateException("Snapshot of version " + version + " has been closed.");
+    }
+}
@@ -0,0 +1,105 @@
+package phonebook;
+
+import phonebook.hashes.HashTable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>{@link RecordingEngine} is a {@link PhonebookEngine} that reports every operation to a {@link WorkloadRecorder}
+ * before passing it on to the engine it wraps. Batches are reported entry by entry, but still served as batches.</p>
+ *
+ * @see Phonebook#startRecording(WorkloadRecorder)
+ */
+class RecordingEngine implements PhonebookEngine {
+
+    private final PhonebookEngine engine;
+    private final WorkloadRecorder recorder;
+
+    RecordingEngine(PhonebookEngine engine, WorkloadRecorder recorder) {
+        this.engine = engine;
+        this.recorder = recorder;
+    }
+
+    PhonebookEngine unwrap() {
+        return engine;
+    }
+
+    @Override
+    public String getNumberOf(String name) {
+        recorder.record(Phonebook.Operation.GET_NUMBER_OF, name, null);
+        return engine.getNumberOf(name);
+    }
+
+    @Override
+    public String getOwnerOf(String number) {
+        recorder.record(Phonebook.Operation.GET_OWNER_OF, number, null);
+        return engine.getOwnerOf(number);
+    }
+
+    @Override
+    public String[] getNumbersOf(String[] names) {
+        for(String name : names) {
+            if(name != null)
+                recorder.record(Phonebook.Operation.GET_NUMBER_OF, name, null);
+        }
+        return engine.getNumbersOf(names);
+    }
+
+    @Override
+    public String[] getOwnersOf(String[] numbers) {
+        for(String number : numbers) {
+            if(number != null)
+                recorder.record(Phonebook.Operation.GET_OWNER_OF, number, null);
+        }
+        return engine.getOwnersOf(numbers);
+    }
+
+    @Override
+    public void addEntry(String name, String number) {
+        recorder.record(Phonebook.Operation.ADD_ENTRY, name, number);
+        engine.addEntry(name, number);
+    }
+
+    @Override
+    public void deleteEntry(String name, String number) {
+        recorder.record(Phonebook.Operation.DELETE_ENTRY, name, number);
+        engine.deleteEntry(name, number);
+    }
+
+    @Override
+    public void addEntries(List<Map.Entry<String, String>> entries) {
+        for(Map.Entry<String, String> entry : entries) {
+            recorder.record(Phonebook.Operation.ADD_ENTRY, entry.getKey(), entry.getValue());
+        }
+        engine.addEntries(entries);
+    }
+
+    @Override
+    public void deleteEntries(List<Map.Entry<String, String>> entries) {
+        for(Map.Entry<String, String> entry : entries) {
+            recorder.record(Phonebook.Operation.DELETE_ENTRY, entry.getKey(), entry.getValue());
+        }
+        engine.deleteEntries(entries);
+    }
+
+    @Override
+    public int size() {
+        return engine.size();
+    }
+
+    @Override
+    public void ensureCapacity(int size) {
+        engine.ensureCapacity(size);
+    }
+
+    @Override
+    public void compact() {
+        engine.compact();
+    }
+
+    @Override
+    public Map<String, HashTable> tables() {
+        return engine.tables();
+    }
+}
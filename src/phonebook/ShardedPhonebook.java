@@ -0,0 +1,414 @@
+package phonebook;
+
+import phonebook.hashes.CollisionResolver;
+import phonebook.hashes.HashTable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>{@link ShardedPhonebook} partitions its entries across a number of <b>shards</b>, each of which is owned by a
+ * thread of its own. A shard holds the pair of {@link HashTable}s of a {@link Phonebook}, but only for the names and
+ * the numbers that hash to it, and only its thread ever touches them, so they need no locks of any kind and ordinary,
+ * single-threaded tables do. Calls from any number of threads are turned into tasks for the threads of the shards
+ * involved, and the shards work in parallel. A shard also resizes on its own, and only holds a fraction of the
+ * entries, so a resize pauses a fraction of the traffic for a fraction of the time.</p>
+ *
+ * <p>The name and the number of an entry usually hash to different shards, so updates follow a small two-phase
+ * protocol. In the first phase, the shards of the name, the number, the name's previous number and the number's
+ * previous owner each lock their key and report its current value. A shard that finds its key locked by another
+ * update refuses, and the update releases its locks and retries shortly after. In the second phase, every shard
+ * writes its key and unlocks it. Lookups of a locked key wait until it is unlocked, so a lookup that sees a name
+ * always sees its number too, and vice versa.</p>
+ *
+ * <p>A {@link ShardedPhonebook} is thread-safe. It should be {@link #close() closed} once it is no longer needed, which
+ * stops the threads of its shards.</p>
+ *
+ * @see Phonebook
+ */
+public class ShardedPhonebook implements AutoCloseable {
+
+    /* A shard's answer to the first phase of an update. */
+    private static final class Vote {
+        final boolean granted;
+        final String current;
+
+        Vote(boolean granted, String current) {
+            this.granted = granted;
+            this.current = current;
+        }
+    }
+
+    /* A lock on a key of a shard, with the lookups that wait for it. A lock that reserves room for its key holds a
+     * key that is absent from the table, and may be inserted when the lock is committed. */
+    private static final class Lock {
+        final Object owner;
+        final boolean reserves;
+        final List<Runnable> waiting = new ArrayList<>();
+
+        Lock(Object owner, boolean reserves) {
+            this.owner = owner;
+            this.reserves = reserves;
+        }
+    }
+
+    /* A pair of tables and the thread that owns them. Every field is only accessed from that thread. */
+    private static final class Shard {
+        final ExecutorService thread;
+        final HashTable namesToNumbers;
+        final HashTable numbersToNames;
+        final Map<String, Lock> lockedNames = new HashMap<>();
+        final Map<String, Lock> lockedNumbers = new HashMap<>();
+        // the locks that reserve room in namesToNumbers and in numbersToNames, respectively
+        int reservedNames;
+        int reservedNumbers;
+
+        Shard(int index, CollisionResolver namesToNumbersHash, CollisionResolver numbersToNamesHash) {
+            Map<String, HashTable> tables = new PairedTablesEngine(namesToNumbersHash, numbersToNamesHash, false).tables();
+            this.namesToNumbers = tables.get("namesToNumbers");
+            this.numbersToNames = tables.get("numbersToNames");
+            this.thread = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "phonebook-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        HashTable table(boolean byName) {
+            return byName ? namesToNumbers : numbersToNames;
+        }
+
+        Map<String, Lock> locks(boolean byName) {
+            return byName ? lockedNames : lockedNumbers;
+        }
+
+        void reserve(boolean byName, int delta) {
+            if(byName) {
+                reservedNames += delta;
+            } else {
+                reservedNumbers += delta;
+            }
+        }
+
+        int reserved(boolean byName) {
+            return byName ? reservedNames : reservedNumbers;
+        }
+
+        CompletableFuture<String> get(boolean byName, String key) {
+            CompletableFuture<String> value = new CompletableFuture<>();
+            thread.execute(() -> {
+                Lock lock = locks(byName).get(key);
+                if(lock != null) {
+                    lock.waiting.add(() -> value.complete(table(byName).get(key)));
+                } else {
+                    value.complete(table(byName).get(key));
+                }
+            });
+            return value;
+        }
+
+        CompletableFuture<Vote> prepare(Object owner, boolean byName, String key, boolean inserting) {
+            return CompletableFuture.supplyAsync(() -> {
+                if(locks(byName).containsKey(key)) {
+                    return new Vote(false, null);
+                }
+                String current = table(byName).get(key);
+                Lock lock = new Lock(owner, inserting && current == null);
+                if(lock.reserves) {
+                    // grow now rather than in the second phase, which must not fail, making room for the insertions
+                    // of the other updates that hold locks on this shard as well
+                    table(byName).ensureCapacity(table(byName).size() + reserved(byName) + 1);
+                    reserve(byName, 1);
+                }
+                locks(byName).put(key, lock);
+                return new Vote(true, current);
+            }, thread);
+        }
+
+        CompletableFuture<Void> commit(Object owner, boolean byName, String key, boolean write, String value) {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    if(write) {
+                        if(value == null) {
+                            table(byName).remove(key);
+                        } else {
+                            table(byName).upsert(key, value);
+                        }
+                    }
+                } finally {
+                    Lock lock = locks(byName).remove(key);
+                    assert lock != null && lock.owner == owner : "commit(): " + key + " is not locked by this update.";
+                    if(lock.reserves) {
+                        reserve(byName, -1);
+                    }
+                    for(Runnable lookup : lock.waiting) {
+                        lookup.run();
+                    }
+                }
+            }, thread);
+        }
+    }
+
+    /* The keys that an update has locked, and what it writes to them. */
+    private final class Update {
+        private final List<Shard> shards = new ArrayList<>();
+        private final List<Boolean> byName = new ArrayList<>();
+        private final List<String> keys = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
+        private final List<Boolean> writes = new ArrayList<>();
+        private RuntimeException failure;
+
+        /* Starts locking key, which the update intends to insert if inserting; see lock(). */
+        CompletableFuture<Vote> prepare(boolean byName, String key, boolean inserting) {
+            return shardOf(key).prepare(this, byName, key, inserting);
+        }
+
+        /* Waits for a vote of prepare(), remembering the lock if it was granted. A vote that failed is refused, and
+         * its exception is rethrown by abort(). */
+        boolean lock(CompletableFuture<Vote> vote, boolean byName, String key) {
+            try {
+                if(!await(vote).granted) {
+                    return false;
+                }
+            } catch(RuntimeException e) {
+                if(failure == null) {
+                    failure = e;
+                }
+                return false;
+            }
+            this.shards.add(shardOf(key));
+            this.byName.add(byName);
+            this.keys.add(key);
+            this.values.add(null);
+            this.writes.add(false);
+            return true;
+        }
+
+        /* Writes value, or removes key if value is null, once committed. The key must be locked. */
+        void write(boolean byName, String key, String value) {
+            for(int i = 0; i < keys.size(); i++) {
+                if(this.byName.get(i) == byName && keys.get(i).equals(key)) {
+                    values.set(i, value);
+                    writes.set(i, true);
+                    return;
+                }
+            }
+            throw new IllegalStateException("write(): " + key + " is not locked.");
+        }
+
+        /* Applies the writes and releases every lock, on all shards in parallel. */
+        void commit() {
+            List<CompletableFuture<Void>> commits = new ArrayList<>();
+            for(int i = 0; i < keys.size(); i++) {
+                commits.add(shards.get(i).commit(this, byName.get(i), keys.get(i), writes.get(i), values.get(i)));
+            }
+            for(CompletableFuture<Void> commit : commits) {
+                await(commit);
+            }
+        }
+
+        /* Releases every lock without writing anything, then either rethrows the failure of a vote or waits a little
+         * before the update is retried. */
+        void abort() {
+            writes.replaceAll(write -> false);
+            commit();
+            if(failure != null) {
+                throw failure;
+            }
+            Thread.yield();
+            try {
+                TimeUnit.MICROSECONDS.sleep(ThreadLocalRandom.current().nextInt(50));
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while retrying an update.", e);
+            }
+        }
+    }
+
+    private final Shard[] shards;
+
+    /**
+     * Creates an empty {@link ShardedPhonebook}.
+     * @param shards The number of shards, and of threads; typically the number of available cores.
+     * @param namesToNumbersHash The {@link CollisionResolver} of the tables of the shards that are keyed by name.
+     * @param numbersToNamesHash The {@link CollisionResolver} of the tables of the shards that are keyed by number.
+     * @throws IllegalArgumentException if shards is not positive.
+     */
+    public ShardedPhonebook(int shards, CollisionResolver namesToNumbersHash, CollisionResolver numbersToNamesHash) {
+        if(shards < 1)
+            throw new IllegalArgumentException("Provided " + shards + " shards.");
+        this.shards = new Shard[shards];
+        for(int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(i, namesToNumbersHash, numbersToNamesHash);
+        }
+    }
+
+    /** Retrieves the phone number associated with the provided full name. See {@link Phonebook#getNumberOf(String)}.
+     * @param name The full name of the owner of the phone number that is being searched for.
+     * @return The phone number associated with name, or {@code null} if name is {@code null} or if name
+     * is not in the {@link ShardedPhonebook}.
+     */
+    public String getNumberOf(String name) {
+        return (name == null) ? null : await(shardOf(name).get(true, name));
+    }
+
+    /** Retrieves the full name of the owner of the provided phone number. See {@link Phonebook#getOwnerOf(String)}.
+     * @param number The phone number whose owner is being searched for.
+     * @return The full name of the owner of number, or {@code null} if number is {@code null} or if number
+     * is not in the {@link ShardedPhonebook}.
+     */
+    public String getOwnerOf(String number) {
+        return (number == null) ? null : await(shardOf(number).get(false, number));
+    }
+
+    /** Adds the tuple &lt; name, number &gt;, updating the entries of name and number if they exist. See
+     * {@link Phonebook#addEntry(String, String)}.
+     * @param name The full name of the number's owner.
+     * @param number The phone number of the person.
+     * @throws IllegalArgumentException if either name or number is {@code null}.
+     */
+    public void addEntry(String name, String number) {
+        if(name == null || number == null)
+            throw new IllegalArgumentException("Provided: name=" + name + " and number= " + number);
+        while(true) {
+            Update update = new Update();
+            CompletableFuture<Vote> nameVote = update.prepare(true, name, true);
+            CompletableFuture<Vote> numberVote = update.prepare(false, number, true);
+            boolean granted = update.lock(nameVote, true, name);
+            granted &= update.lock(numberVote, false, number);
+            if(granted) {
+                // with name and number locked, the entries that this one evicts cannot change any more
+                String oldNumber = await(nameVote).current;
+                String oldOwner = await(numberVote).current;
+                if(oldNumber != null && !oldNumber.equals(number)) {
+                    granted = update.lock(update.prepare(false, oldNumber, false), false, oldNumber);
+                }
+                if(granted && oldOwner != null && !oldOwner.equals(name)) {
+                    granted = update.lock(update.prepare(true, oldOwner, false), true, oldOwner);
+                }
+                if(granted) {
+                    update.write(true, name, number);
+                    update.write(false, number, name);
+                    if(oldNumber != null && !oldNumber.equals(number))
+                        update.write(false, oldNumber, null);
+                    if(oldOwner != null && !oldOwner.equals(name))
+                        update.write(true, oldOwner, null);
+                    update.commit();
+                    return;
+                }
+            }
+            update.abort();
+        }
+    }
+
+    /** Deletes the entry &lt; name, number &gt;, if it is stored. See {@link Phonebook#deleteEntry(String, String)}.
+     * @param name The &quot;owner&quot; part of the &lt; owner, phone number &gt; tuple.
+     * @param number The &quot;number&quot; part of the &lt; owner, phone number &gt; tuple.
+     * @throws IllegalArgumentException if either name or number is {@code null}.
+     */
+    public void deleteEntry(String name, String number) {
+        if(number == null || name == null)
+            throw new IllegalArgumentException("Provided: name=" + name + " and number= " + number);
+        while(true) {
+            Update update = new Update();
+            CompletableFuture<Vote> nameVote = update.prepare(true, name, false);
+            CompletableFuture<Vote> numberVote = update.prepare(false, number, false);
+            boolean granted = update.lock(nameVote, true, name);
+            granted &= update.lock(numberVote, false, number);
+            if(granted) {
+                if(number.equals(await(nameVote).current)) {
+                    update.write(true, name, null);
+                    update.write(false, number, null);
+                }
+                update.commit();
+                return;
+            }
+            update.abort();
+        }
+    }
+
+    /** Adds every tuple &lt; name, number &gt; of entries, in order, as if by {@link #addEntry(String, String)}.
+     * @param entries The tuples to add, as &lt; name, number &gt; {@link Map.Entry} instances.
+     * @throws IllegalArgumentException if entries is {@code null} or contains a {@code null} name or number. In that
+     * case, no entry has been added.
+     */
+    public void addEntries(Iterable<Map.Entry<String, String>> entries) {
+        if(entries == null)
+            throw new IllegalArgumentException("Provided a null collection of entries.");
+        List<Map.Entry<String, String>> batch = new ArrayList<>();
+        for(Map.Entry<String, String> entry : entries) {
+            if(entry == null || entry.getKey() == null || entry.getValue() == null)
+                throw new IllegalArgumentException("Provided: entry=" + entry);
+            batch.add(entry);
+        }
+        for(Map.Entry<String, String> entry : batch) {
+            addEntry(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /** Returns the number of entries. Updates in progress on other threads may or may not be counted.
+     * @return the number of entries in the phonebook.
+     */
+    public int size() {
+        List<CompletableFuture<Integer>> sizes = new ArrayList<>();
+        for(Shard shard : shards) {
+            sizes.add(CompletableFuture.supplyAsync(shard.namesToNumbers::size, shard.thread));
+        }
+        int size = 0;
+        for(CompletableFuture<Integer> shardSize : sizes) {
+            size += await(shardSize);
+        }
+        return size;
+    }
+
+    /** Queries the phonebook for emptiness.
+     * @return {@code true} if, and only if, there are 0 entries in this {@link ShardedPhonebook}.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** Returns the number of shards.
+     * @return the number of shards.
+     */
+    public int getShards() {
+        return shards.length;
+    }
+
+    /**
+     * Stops the threads of the shards, once they have finished the tasks that they were given. This
+     * {@link ShardedPhonebook} cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        for(Shard shard : shards) {
+            shard.thread.shutdown();
+        }
+    }
+
+    private Shard shardOf(String key) {
+        return shards[(key.hashCode() & 0x7fffffff) % shards.length];
+    }
+
+    /* Waits for a task of a shard, and rethrows whatever the task threw. */
+    private static <T> T await(CompletableFuture<T> task) {
+        try {
+            return task.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shard.", e);
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
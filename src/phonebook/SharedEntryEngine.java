@@ -0,0 +1,71 @@
+package phonebook;
+
+import phonebook.hashes.BidirectionalHashTable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>{@link SharedEntryEngine} is a {@link PhonebookEngine} backed by a single {@link BidirectionalHashTable}: every
+ * entry is stored once and indexed by both its name and its number, so additions and deletions are a single
+ * operation on a single structure.</p>
+ *
+ * @see BidirectionalHashTable
+ * @see PairedTablesEngine
+ */
+class SharedEntryEngine implements PhonebookEngine {
+
+    private BidirectionalHashTable entries;
+
+    SharedEntryEngine(BidirectionalHashTable entries) {
+        this.entries = entries;
+    }
+
+    @Override
+    public String getNumberOf(String name) {
+        return entries.getNumberOf(name);
+    }
+
+    @Override
+    public String getOwnerOf(String number) {
+        return entries.getOwnerOf(number);
+    }
+
+    @Override
+    public String[] getNumbersOf(String[] names) {
+        return entries.getNumbersOf(names);
+    }
+
+    @Override
+    public String[] getOwnersOf(String[] numbers) {
+        return entries.getOwnersOf(numbers);
+    }
+
+    @Override
+    public void addEntry(String name, String number) {
+        entries.put(name, number);
+    }
+
+    @Override
+    public void deleteEntry(String name, String number) {
+        entries.remove(name, number);
+    }
+
+    @Override
+    public void addEntries(List<Map.Entry<String, String>> entries) {
+        this.entries.ensureCapacity(this.entries.size() + entries.size());
+        for(Map.Entry<String, String> entry : entries) {
+            this.entries.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void ensureCapacity(int size) {
+        entries.ensureCapacity(size);
+    }
+}
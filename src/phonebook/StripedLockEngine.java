@@ -0,0 +1,174 @@
+package phonebook;
+
+import phonebook.hashes.HashTable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * <p>{@link StripedLockEngine} makes a {@link PhonebookEngine} over thread-safe {@link HashTable}s safe to share
+ * between threads, with entries that change in both directions at once. Every name and every number belongs to one of
+ * a number of {@link StampedLock} stripes:</p>
+ *
+ * <ul>
+ *     <li><b>Writers lock every stripe they touch.</b> {@link #addEntry(String, String)} write-locks the stripes of the
+ *     name, the number, the name's previous number and the number's previous owner, in ascending order, so that an
+ *     entry and the evictions it causes appear at once. Writers of unrelated entries mostly lock different stripes,
+ *     and proceed in parallel.</li>
+ *     <li><b>Readers are optimistic.</b> A lookup reads the table without locking and validates the stamp of its key's
+ *     stripe afterwards; only if a writer held the stripe in the meantime does it repeat the lookup under the read
+ *     lock. A lookup that sees a name therefore also sees its number, and vice versa.</li>
+ * </ul>
+ *
+ * @see Phonebook#Phonebook(phonebook.hashes.CollisionResolver, phonebook.hashes.CollisionResolver, int)
+ */
+class StripedLockEngine implements PhonebookEngine {
+
+    private final PhonebookEngine engine;
+    private final StampedLock[] locks;
+
+    StripedLockEngine(PhonebookEngine engine, int stripes) {
+        if(stripes < 1)
+            throw new IllegalArgumentException("Provided " + stripes + " stripes.");
+        this.engine = engine;
+        this.locks = new StampedLock[stripes];
+        for(int i = 0; i < stripes; i++) {
+            this.locks[i] = new StampedLock();
+        }
+    }
+
+    @Override
+    public String getNumberOf(String name) {
+        StampedLock lock = lockOf(name);
+        long stamp = lock.tryOptimisticRead();
+        String number = engine.getNumberOf(name);
+        if(lock.validate(stamp)) {
+            return number;
+        }
+        stamp = lock.readLock();
+        try {
+            return engine.getNumberOf(name);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public String getOwnerOf(String number) {
+        StampedLock lock = lockOf(number);
+        long stamp = lock.tryOptimisticRead();
+        String owner = engine.getOwnerOf(number);
+        if(lock.validate(stamp)) {
+            return owner;
+        }
+        stamp = lock.readLock();
+        try {
+            return engine.getOwnerOf(number);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void addEntry(String name, String number) {
+        while(true) {
+            // the entries that this one evicts decide which stripes to lock, so read them first and retry if they
+            // changed before the locks were taken
+            String oldNumber = engine.getNumberOf(name);
+            String oldOwner = engine.getOwnerOf(number);
+            int[] stripes = stripesOf(name, number, oldNumber, oldOwner);
+            long[] stamps = lockAll(stripes);
+            try {
+                if(Objects.equals(oldNumber, engine.getNumberOf(name)) && Objects.equals(oldOwner, engine.getOwnerOf(number))) {
+                    engine.addEntry(name, number);
+                    return;
+                }
+            } finally {
+                unlockAll(stripes, stamps);
+            }
+        }
+    }
+
+    @Override
+    public void deleteEntry(String name, String number) {
+        int[] stripes = stripesOf(name, number);
+        long[] stamps = lockAll(stripes);
+        try {
+            engine.deleteEntry(name, number);
+        } finally {
+            unlockAll(stripes, stamps);
+        }
+    }
+
+    @Override
+    public void addEntries(List<Map.Entry<String, String>> entries) {
+        engine.ensureCapacity(engine.size() + entries.size());
+        for(Map.Entry<String, String> entry : entries) {
+            addEntry(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public int size() {
+        return engine.size();
+    }
+
+    @Override
+    public void ensureCapacity(int size) {
+        engine.ensureCapacity(size);
+    }
+
+    @Override
+    public void compact() {
+        engine.compact();
+    }
+
+    @Override
+    public Map<String, HashTable> tables() {
+        return engine.tables();
+    }
+
+    private StampedLock lockOf(String key) {
+        return locks[stripeOf(key)];
+    }
+
+    private int stripeOf(String key) {
+        return (key.hashCode() & 0x7fffffff) % locks.length;
+    }
+
+    /* The distinct stripes of the non-null keys, in ascending order. */
+    private int[] stripesOf(String... keys) {
+        int[] stripes = new int[keys.length];
+        int count = 0;
+        for(String key : keys) {
+            if(key != null) {
+                stripes[count++] = stripeOf(key);
+            }
+        }
+        Arrays.sort(stripes, 0, count);
+        int distinct = 0;
+        for(int i = 0; i < count; i++) {
+            if(distinct == 0 || stripes[distinct - 1] != stripes[i]) {
+                stripes[distinct++] = stripes[i];
+            }
+        }
+        return Arrays.copyOf(stripes, distinct);
+    }
+
+    private long[] lockAll(int[] stripes) {
+        long[] stamps = new long[stripes.length];
+        for(int i = 0; i < stripes.length; i++) {
+            stamps[i] = locks[stripes[i]].writeLock();
+        }
+        return stamps;
+    }
+
+    private void unlockAll(int[] stripes, long[] stamps) {
+        for(int i = stripes.length - 1; i >= 0; i--) {
+            locks[stripes[i]].unlockWrite(stamps[i]);
+        }
+    }
+}
@@ -3,12 +3,40 @@ package phonebook;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import phonebook.benchmarks.KeyDistribution;
+import phonebook.benchmarks.ProbeCostReport;
+import phonebook.benchmarks.ResolverAdvisor;
 import phonebook.hashes.*;
+import phonebook.utils.LatencyHistogram;
+import phonebook.utils.LatencyRecorder;
 import phonebook.utils.NoMorePrimesException;
+import phonebook.utils.RingBufferTraceSink;
+import phonebook.utils.SipHash;
+import phonebook.utils.TableStats;
+import phonebook.utils.TableStats.Operation;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 import static phonebook.hashes.CollisionResolver.*;
@@ -457,4 +485,901 @@ public class StudentTests {
     }
     
 
+    @Test
+    public void testSharedEntryPhonebook() {
+    	pb = new Phonebook(new BidirectionalHashTable());
+    	assertTrue("A shared-entry phonebook should be empty when beginning.", pb.isEmpty());
+    	pb.addEntry("Jason", "900-701-2902");
+    	pb.addEntry("Helen", "810-206-9450");
+    	assertEquals("900-701-2902", pb.getNumberOf("Jason"));
+    	assertEquals("Helen", pb.getOwnerOf("810-206-9450"));
+    	// Re-assigning Jason's number to Helen should evict both of the old entries.
+    	pb.addEntry("Helen", "900-701-2902");
+    	assertEquals(1, pb.size());
+    	assertNull(pb.getNumberOf("Jason"));
+    	assertNull(pb.getOwnerOf("810-206-9450"));
+    	assertEquals("Helen", pb.getOwnerOf("900-701-2902"));
+    	pb.deleteEntry("Helen", "810-206-9450");
+    	assertEquals("Deleting a pair that is not stored should have no effect.", 1, pb.size());
+    	pb.deleteEntry("Helen", "900-701-2902");
+    	assertTrue(pb.isEmpty());
+    }
+    
+    @Test
+    public void testSharedEntryStress() {
+    	BidirectionalHashTable entries = new BidirectionalHashTable();
+    	pb = new Phonebook(entries);
+    	for (int i = 0; i < NUMS; i++) {
+    		pb.addEntry("Name" + i, "Number" + i);
+    	}
+    	assertEquals(NUMS, pb.size());
+    	for (int i = 0; i < NUMS; i += 2) {
+    		pb.deleteEntry("Name" + i, "Number" + i);
+    	}
+    	for (int i = 1; i < NUMS; i += 2) {
+    		assertEquals("Number" + i, pb.getNumberOf("Name" + i));
+    		assertEquals("Name" + i, pb.getOwnerOf("Number" + i));
+    	}
+    	assertEquals(NUMS / 2, pb.size());
+    }
+
+    // Re-assigning numbers and owners should never leave stale reverse mappings behind.
+    @Test
+    public void testUpsertEvictsStaleMappings() {
+        for (CollisionResolver namesToPhones : resolvers) {
+            for (CollisionResolver phonesToNames : resolvers) {
+                pb = new Phonebook(namesToPhones, phonesToNames);
+                pb.addEntry("Arnold", "894-59-0011");
+                pb.addEntry("Jessie", "705-12-7500");
+                pb.addEntry("Arnold", "888-1212-3340");
+                assertNull(format("Arnold's old number should have been evicted. ", namesToPhones, phonesToNames),
+                        pb.getOwnerOf("894-59-0011"));
+                pb.addEntry("Tiffany", "705-12-7500");
+                assertNull(format("Jessie should have lost her number to Tiffany. ", namesToPhones, phonesToNames),
+                        pb.getNumberOf("Jessie"));
+                assertEquals(format("Size mismatch after re-assignments. ", namesToPhones, phonesToNames), 2, pb.size());
+                pb.deleteEntry("Arnold", "705-12-7500");
+                assertEquals(format("Deleting a mismatched pair should have no effect. ", namesToPhones, phonesToNames), 2, pb.size());
+            }
+        }
+    }
+
+    @Test
+    public void testUpsertReturnsPrevious() {
+        HashTable[] tables = {new SeparateChainingHashTable(), new LinearProbingHashTable(true),
+                new OrderedLinearProbingHashTable(true), new QuadraticProbingHashTable(true)};
+        for (HashTable table : tables) {
+            assertNull(table.upsert("Mary", "888-1212-3340"));
+            assertEquals("888-1212-3340", table.upsert("Mary", "705-12-7500"));
+            assertEquals("705-12-7500", table.get("Mary"));
+            assertEquals(1, table.size());
+            assertNull("Removing a missing key should return null.", table.remove("Jerry"));
+            assertEquals("Removing a missing key should not change the size.", 1, table.size());
+        }
+    }
+
+    @Test
+    public void testBatchEntries() {
+        List<Map.Entry<String, String>> entries = new ArrayList<>();
+        for (int i = 0; i < NUMS; i++) {
+            entries.add(Map.entry("Name" + i, "Number" + i));
+        }
+        for (CollisionResolver namesToPhones : resolvers) {
+            for (CollisionResolver phonesToNames : resolvers) {
+                pb = new Phonebook(namesToPhones, phonesToNames);
+                pb.addEntries(entries);
+                assertEquals(format("Batch insertion lost entries. ", namesToPhones, phonesToNames), NUMS, pb.size());
+                assertEquals("Number7", pb.getNumberOf("Name7"));
+                pb.deleteEntries(entries.subList(0, NUMS / 2));
+                assertEquals(format("Batch deletion left entries behind. ", namesToPhones, phonesToNames), NUMS / 2, pb.size());
+                assertNull(pb.getOwnerOf("Number7"));
+                assertEquals("Name" + (NUMS - 1), pb.getOwnerOf("Number" + (NUMS - 1)));
+            }
+        }
+    }
+
+    @Test
+    public void testPutAllResizesOnce() {
+        LinearProbingHashTable lp = new LinearProbingHashTable(true);
+        List<Map.Entry<String, String>> entries = new ArrayList<>(testingPhoneBook.entrySet());
+        entries.add(Map.entry("DeAndre", "888-1212-3340"));
+        lp.putAll(entries);
+        assertEquals("Five entries should fit in a table of capacity 13 at a load factor of 50%.", 13, lp.capacity());
+        assertEquals(5, lp.size());
+        List<String> keys = new ArrayList<>(testingPhoneBook.keySet());
+        lp.removeAll(keys);
+        assertEquals(1, lp.size());
+        assertEquals("888-1212-3340", lp.get("DeAndre"));
+        assertEquals("Compaction should not change the capacity.", 13, lp.capacity());
+        try {
+            lp.putAll(List.of(Map.entry("Jerry", "1"), new java.util.AbstractMap.SimpleEntry<String, String>("Tom", null)));
+            fail("putAll() should have rejected a null value.");
+        } catch (IllegalArgumentException expected) {
+            assertNull("A rejected batch should not be partially inserted.", lp.get("Jerry"));
+        }
+    }
+
+    @Test
+    public void testMultiGet() {
+        for (CollisionResolver namesToPhones : resolvers) {
+            for (CollisionResolver phonesToNames : resolvers) {
+                pb = new Phonebook(namesToPhones, phonesToNames);
+                for (int i = 0; i < UPPER_BOUND; i++) {
+                    pb.addEntry("Name" + i, "Number" + i);
+                }
+                String[] numbers = {"Number42", null, "Number7", "Number" + UPPER_BOUND, "Number42"};
+                String[] owners = pb.getOwnersOf(numbers);
+                assertArrayEquals(format("Owners should come back in the order asked. ", namesToPhones, phonesToNames),
+                        new String[]{"Name42", null, "Name7", null, "Name42"}, owners);
+                String[] names = {"Name99", "Jerry", "Name0"};
+                assertArrayEquals(format("Numbers should come back in the order asked. ", namesToPhones, phonesToNames),
+                        new String[]{"Number99", null, "Number0"}, pb.getNumbersOf(names));
+            }
+        }
+    }
+
+    @Test
+    public void testRingBufferTraceSink() {
+        RingBufferTraceSink sink = new RingBufferTraceSink(3);
+        assertTrue("A new ring should hold no events.", sink.events().isEmpty());
+        sink.record("LP.put", "Arnold", "894-59-0011");
+        sink.record("LP.remove", "Arnold", null);
+        assertEquals(List.of("LP.put Arnold 894-59-0011", "LP.remove Arnold"), sink.events());
+        for (int i = 0; i < 10; i++) {
+            sink.record("SC.put", "Key" + i, "Value" + i);
+        }
+        assertEquals("A capacity of 3 should be rounded up to 4 events.", 4, sink.events().size());
+        assertEquals("The oldest events should have been overwritten.", "SC.put Key6 Value6", sink.events().get(0));
+        assertEquals(12, sink.recorded());
+    }
+
+    @Test
+    public void testProbeStatsSnapshot() {
+        // "Aa" and "BB" share a hashCode(), so the second one always needs a second probe.
+        HashTable[] tables = {new SeparateChainingHashTable(), new LinearProbingHashTable(false),
+                new LinearProbingHashTable(true), new OrderedLinearProbingHashTable(true), new QuadraticProbingHashTable(false)};
+        for (HashTable table : tables) {
+            table.put("Aa", "1");
+            table.put("BB", "2");
+            table.put("BB", "3");
+            assertEquals("3", table.get("BB"));
+            assertNull(table.get("Jerry"));
+            assertEquals("1", table.remove("Aa"));
+            TableStats stats = table.snapshot();
+            String name = stats.getTable();
+            assertEquals(name, 2, stats.count(Operation.PUT_INSERT));
+            assertEquals(name, 2, stats.maxProbes(Operation.PUT_INSERT));
+            assertEquals(name, 1, stats.count(Operation.PUT_UPDATE));
+            assertEquals(name, 2, stats.maxProbes(Operation.GET_HIT));
+            assertEquals(name, 1, stats.count(Operation.GET_MISS));
+            assertEquals(name, 1, stats.count(Operation.REMOVE_HIT));
+            assertEquals(name, 0, stats.count(Operation.REMOVE_MISS));
+            assertEquals(name, 1, stats.getSize());
+            assertEquals(name, table.capacity(), stats.getCapacity());
+        }
+    }
+
+    @Test
+    public void testLatencyRecorder() throws InterruptedException {
+        LatencyRecorder<Phonebook.Operation> recorder = new LatencyRecorder<>(Phonebook.Operation.class);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 1; i <= 1000; i++) {
+                    recorder.record(Phonebook.Operation.GET_OWNER_OF, i * 1000L);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        LatencyHistogram merged = recorder.snapshot().get(Phonebook.Operation.GET_OWNER_OF);
+        assertEquals("Every thread's latencies should be merged.", 4000, merged.count());
+        assertEquals(1000000, merged.max());
+        // Buckets are at most 1/32 of their value wide.
+        assertTrue(merged.percentile(50) >= 500000 && merged.percentile(50) <= 500000 * 33 / 32);
+        assertTrue(merged.percentile(99.9) >= 999000 && merged.percentile(99.9) <= 1000000);
+        assertEquals(0, recorder.snapshot().get(Phonebook.Operation.ADD_ENTRY).count());
+    }
+
+    @Test
+    public void testTableHealthMBeans() throws Exception {
+        pb = new Phonebook(LINEAR_PROBING, SEPARATE_CHAINING);
+        for (int i = 0; i < 100; i++) {
+            pb.addEntry("Name" + i, "Number" + i);
+        }
+        pb.registerMBeans("test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName book = new ObjectName("phonebook:type=Phonebook,name=\"test\"");
+            ObjectName names = new ObjectName("phonebook:type=HashTable,phonebook=\"test\",role=namesToNumbers");
+            ObjectName numbers = new ObjectName("phonebook:type=HashTable,phonebook=\"test\",role=numbersToNames");
+            assertEquals(100, server.getAttribute(book, "Size"));
+            assertEquals("LINEAR_PROBING/SEPARATE_CHAINING", server.getAttribute(book, "Configuration"));
+            assertTrue("The LP table should have grown.", (Integer) server.getAttribute(names, "Resizes") > 0);
+            assertEquals(7, server.getAttribute(numbers, "Capacity"));
+            assertTrue((Integer) server.getAttribute(numbers, "LongestChain") >= 100 / 7);
+            server.invoke(numbers, "ensureCapacity", new Object[]{500}, new String[]{"int"});
+            assertTrue((Integer) server.getAttribute(numbers, "Capacity") >= 500);
+            assertEquals("Number42", pb.getNumberOf("Name42"));
+        } finally {
+            pb.unregisterMBeans();
+        }
+        assertTrue(ManagementFactory.getPlatformMBeanServer().queryNames(new ObjectName("phonebook:*"), null).isEmpty());
+    }
+
+    @Test
+    public void testWorkloadRecordAndReplay() throws Exception {
+        pb = new Phonebook(LINEAR_PROBING, QUADRATIC_PROBING);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        WorkloadRecorder recorder = new WorkloadRecorder(bytes);
+        pb.startRecording(recorder);
+        for (int i = 0; i < 2 * UPPER_BOUND; i++) {
+            int n = RNG.nextInt(UPPER_BOUND);
+            pb.addEntry("Name" + n, "Number" + RNG.nextInt(UPPER_BOUND));
+            pb.deleteEntry("Name" + RNG.nextInt(UPPER_BOUND), "Number" + n);
+            pb.getOwnerOf("Number" + n);
+        }
+        pb.stopRecording();
+        pb.addEntry("Jerry", "Unrecorded");
+        recorder.close();
+
+        WorkloadTrace trace = WorkloadTrace.read(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(6 * UPPER_BOUND, trace.size());
+        assertEquals(Phonebook.Operation.GET_OWNER_OF, trace.events().get(trace.size() - 1).getOperation());
+        for (CollisionResolver namesToPhones : resolvers) {
+            Phonebook replayed = new Phonebook(namesToPhones, SEPARATE_CHAINING);
+            for (WorkloadTrace.Event event : trace.events()) {
+                event.applyTo(replayed);
+            }
+            assertEquals("Replaying should rebuild the recorded contents.", pb.size() - 1, replayed.size());
+            for (int i = 0; i < UPPER_BOUND; i++) {
+                assertEquals(pb.getNumberOf("Name" + i), replayed.getNumberOf("Name" + i));
+            }
+        }
+    }
+
+    @Test
+    public void testResolverAdvisorRanking() throws Exception {
+        List<String[]> sample = new ArrayList<>();
+        for (int i = 0; i < UPPER_BOUND; i++) {
+            sample.add(new String[]{"Name" + i, "Number" + i});
+        }
+        WorkloadTrace trace = ResolverAdvisor.synthesize(sample, "add:10,delete:10,getNumber:40,getOwner:40", NUMS, SEED);
+        assertEquals(UPPER_BOUND + NUMS, trace.size());
+        List<ResolverAdvisor.Candidate> ranking = ResolverAdvisor.rank(trace);
+        assertEquals(CollisionResolver.values().length * CollisionResolver.values().length, ranking.size());
+        for (int i = 0; i < ranking.size(); i++) {
+            assertTrue("Scores are relative to the best candidate.", ranking.get(i).getScore() >= 1);
+            if (i > 0)
+                assertTrue("Candidates should be ranked best first.",
+                        ranking.get(i - 1).getScore() <= ranking.get(i).getScore());
+        }
+        try {
+            ResolverAdvisor.synthesize(sample, "add:10,update:90", NUMS, SEED);
+            fail("An unknown operation in the mix should be rejected.");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testAdaptiveTableMigratesAwayFromClustering() {
+        // "Aa" and "BB" share a hash code, so all these keys collide: linear probing clusters badly.
+        String[] keys = new String[UPPER_BOUND];
+        for (int i = 0; i < keys.length; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int bit = 0; bit < 7; bit++) {
+                key.append(((i >> bit) & 1) == 0 ? "Aa" : "BB");
+            }
+            keys[i] = key.toString();
+        }
+        AdaptiveHashTable table = new AdaptiveHashTable(LINEAR_PROBING);
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 20 * AdaptiveHashTable.CHECK_INTERVAL; i++) {
+            String key = keys[RNG.nextInt(keys.length)];
+            if (i % 3 == 0) {
+                assertEquals(expected.put(key, "Number" + i), table.upsert(key, "Number" + i));
+            } else {
+                assertEquals("Reads should be served throughout migration.", expected.get(key), table.get(key));
+            }
+            assertEquals(expected.size(), table.size());
+        }
+        assertTrue("Colliding keys should drive the table away from linear probing.",
+                table.getResolver() != LINEAR_PROBING);
+        assertTrue(table.getMigrations() > 0);
+        table.compact();
+        assertFalse(table.isMigrating());
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), table.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testProbeCostsMatchTheory() {
+        HashTable[] tables = {new LinearProbingHashTable(false, 0.9), new OrderedLinearProbingHashTable(true, 0.9),
+                new QuadraticProbingHashTable(false, 0.9)};
+        for (HashTable table : tables) {
+            for (int i = 0; i < NUMS; i++) {
+                table.put("Name" + i, "Number" + i);
+            }
+            assertTrue(table.getClass().getSimpleName() + " should fill past half load.",
+                    table.snapshot().getLoadFactor() > 0.5);
+            for (int i = 0; i < NUMS; i++) {
+                assertEquals("Number" + i, table.get("Name" + i));
+            }
+        }
+        try {
+            new LinearProbingHashTable(false, 1.0);
+            fail("A threshold of 1 should be rejected.");
+        } catch (IllegalArgumentException ignored) {
+        }
+        // the full sweep over every table and load factor is left to ProbeCostReport.main()
+        ProbeCostReport.Row row = ProbeCostReport.measure("LinearProbingHashTable", 0.5);
+        assertEquals(0.5, row.loadFactor, 0.01);
+        assertFalse(row.table + " at load " + row.loadFactor + " strays from the estimates.", row.deviates());
+    }
+
+    @Test
+    public void testSeededHashResistsFlooding() {
+        // 2^7 keys built from "Aa" and "BB" blocks all share one String.hashCode().
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 128; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int bit = 0; bit < 7; bit++) {
+                key.append(((i >> bit) & 1) == 0 ? "Aa" : "BB");
+            }
+            keys.add(key.toString());
+        }
+        OpenAddressingHashTable[] tables = {new LinearProbingHashTable(false), new OrderedLinearProbingHashTable(false),
+                new QuadraticProbingHashTable(false)};
+        for (OpenAddressingHashTable table : tables) {
+            table.useSeededHash(SipHash.random());
+            for (String key : keys) {
+                table.put(key, key);
+            }
+            for (String key : keys) {
+                assertEquals(key, table.get(key));
+            }
+            assertTrue(table.getClass().getSimpleName() + " should not degrade into a single chain.",
+                    table.snapshot().getLongestChain() < keys.size() / 4);
+            try {
+                table.useSeededHash(null);
+                fail("A table that holds records should not change its hash function.");
+            } catch (IllegalStateException ignored) {
+            }
+        }
+        SeparateChainingHashTable chains = new SeparateChainingHashTable();
+        chains.useSeededHash(new SipHash(SEED, SEED));
+        chains.ensureCapacity(keys.size());
+        for (String key : keys) {
+            chains.put(key, key);
+        }
+        assertTrue(chains.snapshot().getLongestChain() < keys.size() / 4);
+
+        pb = new Phonebook(LINEAR_PROBING, SEPARATE_CHAINING, true);
+        assertEquals("LINEAR_PROBING/SEPARATE_CHAINING+SEEDED", pb.getConfiguration());
+        for (String key : keys) {
+            pb.addEntry(key, key + "-number");
+        }
+        assertEquals(keys.get(42), pb.getOwnerOf(keys.get(42) + "-number"));
+    }
+
+    @Test
+    public void testSipHashMatchesReferenceVectors() {
+        // The vectors of the reference implementation hash the bytes 00 01 02 ... under the key 00 01 ... 0f. Each
+        // char packs two of those bytes, low byte first, so that its UTF-16LE encoding is the reference input.
+        SipHash sip = new SipHash(0x0706050403020100L, 0x0f0e0d0c0b0a0908L);
+        long[] expected = {0x726fdb47dd0e0e31L, 0x0d6c8009d9a94f5aL, 0x93f5f5799a932462L, 0x3f2acc7f57c29bdbL};
+        int[] lengths = {0, 2, 8, 16};
+        for (int i = 0; i < lengths.length; i++) {
+            StringBuilder input = new StringBuilder();
+            for (int b = 0; b < lengths[i]; b += 2) {
+                input.append((char) (b | (b + 1) << 8));
+            }
+            assertEquals("SipHash-2-4 of the first " + lengths[i] + " bytes.", expected[i], sip.hash(input.toString()));
+        }
+    }
+
+    @Test
+    public void testConcurrentChainingUnderContention() throws InterruptedException {
+        ConcurrentSeparateChainingHashTable table = new ConcurrentSeparateChainingHashTable(4);
+        int writers = 8;
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int id = w;
+            threads.add(new Thread(() -> {
+                try {
+                    // every writer owns its keys, so each one can check the table against its own expectations
+                    for (int i = 0; i < NUMS; i++) {
+                        assertNull(table.upsert("Writer" + id + "-" + i, "Number" + i));
+                        if (i % 4 == 0) {
+                            assertEquals("Number" + i, table.remove("Writer" + id + "-" + i));
+                        }
+                        int earlier = i / 2;
+                        assertEquals(earlier % 4 == 0 ? null : "Number" + earlier, table.get("Writer" + id + "-" + earlier));
+                    }
+                } catch (Throwable t) {
+                    synchronized (failures) {
+                        failures.add(t);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertEquals("Concurrent writers should not lose records.", writers * NUMS * 3 / 4, table.size());
+        assertTrue("The table should have grown while written to.", table.snapshot().getResizes() > 0);
+        for (int w = 0; w < writers; w++) {
+            for (int i = 0; i < NUMS; i++) {
+                assertEquals(i % 4 == 0 ? null : "Number" + i, table.get("Writer" + w + "-" + i));
+            }
+        }
+
+        pb = new Phonebook(CONCURRENT_SEPARATE_CHAINING, LINEAR_PROBING);
+        pb.addEntry("Jerry", "555-0100");
+        assertEquals("Jerry", pb.getOwnerOf("555-0100"));
+    }
+
+    @Test
+    public void testLockFreeLinearProbingUnderContention() throws InterruptedException {
+        ConcurrentLinearProbingHashTable table = new ConcurrentLinearProbingHashTable();
+        int writers = 4;
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int id = w;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < NUMS; i++) {
+                        assertNull(table.upsert("Writer" + id + "-" + i, "Number" + i));
+                        if (i % 4 == 0) {
+                            assertEquals("Number" + i, table.remove("Writer" + id + "-" + i));
+                        }
+                        // every writer also overwrites a key of its own that it never removes, and must read back
+                        // its latest value through any resize that is in progress
+                        table.upsert("Counter" + id, Integer.toString(i));
+                        assertEquals(Integer.toString(i), table.get("Counter" + id));
+                    }
+                } catch (Throwable t) {
+                    synchronized (failures) {
+                        failures.add(t);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertEquals("Concurrent writers should not lose records.", writers * NUMS * 3 / 4 + writers, table.size());
+        assertTrue("The table should have grown while written to.", table.snapshot().getResizes() > 0);
+        for (int w = 0; w < writers; w++) {
+            for (int i = 0; i < NUMS; i++) {
+                assertEquals(i % 4 == 0 ? null : "Number" + i, table.get("Writer" + w + "-" + i));
+            }
+        }
+        int capacity = table.capacity();
+        table.compact();
+        assertEquals(0, table.snapshot().getTombstones());
+        assertEquals(capacity, table.capacity());
+        assertEquals(writers * NUMS * 3 / 4 + writers, table.size());
+        assertTrue(table.containsValue("Number" + (NUMS - 1)));
+
+        pb = new Phonebook(CONCURRENT_LINEAR_PROBING, CONCURRENT_SEPARATE_CHAINING);
+        pb.addEntry("Jerry", "555-0100");
+        assertEquals("555-0100", pb.getNumberOf("Jerry"));
+        pb.deleteEntry("Jerry", "555-0100");
+        assertNull(pb.getOwnerOf("555-0100"));
+    }
+
+    @Test
+    public void testStripedPhonebookKeepsBothDirectionsConsistent() throws InterruptedException {
+        pb = new Phonebook(CONCURRENT_LINEAR_PROBING, CONCURRENT_SEPARATE_CHAINING, 8);
+        assertTrue(pb.isThreadSafe());
+        assertEquals("CONCURRENT_LINEAR_PROBING/CONCURRENT_SEPARATE_CHAINING+STRIPED", pb.getConfiguration());
+        Phonebook shared = pb;
+        int people = 40;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 6; t++) {
+            long seed = SEED + t;
+            threads.add(new Thread(() -> {
+                // few names and numbers, so that entries keep evicting each other
+                Random rng = new Random(seed);
+                for (int i = 0; i < 10 * NUMS; i++) {
+                    String name = "Name" + rng.nextInt(people);
+                    String number = "Number" + rng.nextInt(people);
+                    if (rng.nextInt(4) == 0) {
+                        shared.deleteEntry(name, number);
+                    } else {
+                        shared.addEntry(name, number);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        int entries = 0;
+        for (int i = 0; i < people; i++) {
+            String number = pb.getNumberOf("Name" + i);
+            if (number != null) {
+                entries++;
+                assertEquals("Name" + i, pb.getOwnerOf(number));
+            }
+            String owner = pb.getOwnerOf("Number" + i);
+            if (owner != null) {
+                assertEquals("Number" + i, pb.getNumberOf(owner));
+            }
+        }
+        assertEquals(entries, pb.size());
+
+        assertFalse(new Phonebook(LINEAR_PROBING, SEPARATE_CHAINING).isThreadSafe());
+        try {
+            new Phonebook(LINEAR_PROBING, CONCURRENT_LINEAR_PROBING, 8);
+            fail("Phonebooks with tables that are not thread-safe should not be striped.");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testCopyOnWritePublishesSharedVersions() throws InterruptedException {
+        pb = Phonebook.copyOnWrite();
+        assertTrue(pb.isThreadSafe());
+        assertEquals("COPY_ON_WRITE", pb.getConfiguration());
+        Phonebook shared = pb;
+        int entries = 2 * NUMS;
+        boolean[] torn = new boolean[1];
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < entries; i++) {
+                shared.addEntry("Name" + i, "Number" + i);
+            }
+        });
+        Thread reader = new Thread(() -> {
+            // an entry is published in both directions at once, or not at all
+            while (writer.isAlive()) {
+                for (int i = 0; i < entries; i += 7) {
+                    if (shared.getNumberOf("Name" + i) != null && shared.getOwnerOf("Number" + i) == null) {
+                        torn[0] = true;
+                    }
+                }
+            }
+        });
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+        assertFalse("Readers should never see half of an entry.", torn[0]);
+        assertEquals(entries, pb.size());
+        pb.addEntry("Name0", "Number1");
+        assertEquals("Name0", pb.getOwnerOf("Number1"));
+        assertNull(pb.getNumberOf("Name1"));
+        assertNull(pb.getOwnerOf("Number0"));
+        assertEquals(entries - 1, pb.size());
+
+        PersistentHashTable.Editor editor = new PersistentHashTable().edit();
+        for (int i = 0; i < NUMS; i++) {
+            editor.put("Key" + i, "Value" + i);
+        }
+        PersistentHashTable first = editor.publish();
+        PersistentHashTable.Editor update = first.edit();
+        update.put("Key5", "Changed");
+        update.remove("Key7");
+        PersistentHashTable second = update.publish();
+        assertEquals("Value5", first.get("Key5"));
+        assertEquals("Value7", first.get("Key7"));
+        assertEquals("Changed", second.get("Key5"));
+        assertNull(second.get("Key7"));
+        int segments = (first.capacity() + PersistentHashTable.SEGMENT_SIZE - 1) / PersistentHashTable.SEGMENT_SIZE;
+        assertTrue("Unchanged segments should be shared.", second.sharedSegments(first) >= segments - 4);
+        try {
+            update.put("Key8", "Value8");
+            fail("A published Editor should not accept changes.");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    @Test
+    public void testShardedPhonebookCrossShardUpdates() throws InterruptedException {
+        try (ShardedPhonebook sharded = new ShardedPhonebook(4, LINEAR_PROBING, SEPARATE_CHAINING)) {
+            assertEquals(4, sharded.getShards());
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long seed = t;
+                writers.add(new Thread(() -> {
+                    // few names and numbers, so most updates evict entries that live on other shards
+                    Random rng = new Random(seed);
+                    for (int i = 0; i < NUMS; i++) {
+                        String name = "Name" + rng.nextInt(40), number = "Number" + rng.nextInt(40);
+                        if (rng.nextInt(4) == 0) {
+                            sharded.deleteEntry(name, number);
+                        } else {
+                            sharded.addEntry(name, number);
+                        }
+                    }
+                }));
+            }
+            for (Thread writer : writers) {
+                writer.start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            int entries = 0;
+            for (int i = 0; i < 40; i++) {
+                String number = sharded.getNumberOf("Name" + i);
+                if (number != null) {
+                    entries++;
+                    assertEquals("Name" + i, sharded.getOwnerOf(number));
+                }
+                String owner = sharded.getOwnerOf("Number" + i);
+                if (owner != null) {
+                    assertEquals("Number" + i, sharded.getNumberOf(owner));
+                }
+            }
+            assertEquals(entries, sharded.size());
+        }
+    }
+
+    @Test
+    public void testAsyncPhonebookCoalescesLookups() throws InterruptedException, ExecutionException {
+        List<Runnable> lookups = new ArrayList<>();
+        try (AsyncPhonebook async = new AsyncPhonebook(Phonebook.copyOnWrite(), lookups::add)) {
+            async.addEntryAsync("Alice", "555").get();
+            CompletableFuture<String> first = async.getNumberOfAsync("Alice");
+            CompletableFuture<String> second = async.getNumberOfAsync("Alice");
+            CompletableFuture<String> owner = async.getOwnerOfAsync("555");
+            assertEquals("Identical lookups should share a probe.", 2, lookups.size());
+            first.cancel(false);
+            assertFalse(second.isCancelled());
+
+            // a lookup after a completed write never joins a probe from before it
+            async.addEntryAsync("Alice", "777").get();
+            CompletableFuture<String> third = async.getNumberOfAsync("Alice");
+            assertEquals(3, lookups.size());
+            for (Runnable lookup : lookups) {
+                lookup.run();
+            }
+            assertEquals("777", second.get());
+            assertEquals("777", third.get());
+            assertNull(owner.get());
+        }
+
+        try (AsyncPhonebook async = new AsyncPhonebook(new Phonebook(LINEAR_PROBING, QUADRATIC_PROBING))) {
+            List<CompletableFuture<?>> pending = new ArrayList<>();
+            for (int i = 0; i < NUMS; i++) {
+                pending.add(async.addEntryAsync("Name" + i, "Number" + i));
+                pending.add(async.getNumberOfAsync("Name" + i));
+            }
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).get();
+            assertArrayEquals(new String[]{"Name3", null}, async.getOwnersOfAsync(new String[]{"Number3", "Nobody"}).get());
+            try {
+                async.addEntryAsync(null, "Number0").get();
+                fail("A null name should fail the write.");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+            }
+        }
+    }
+
+    @Test
+    public void testBulkLoaderMatchesSequentialAdds() {
+        Random rng = new Random(47);
+        List<Map.Entry<String, String>> entries = new ArrayList<>();
+        for (int i = 0; i < 5 * NUMS; i++) {
+            entries.add(Map.entry("Name" + rng.nextInt(NUMS), "Number" + rng.nextInt(NUMS)));
+        }
+        Phonebook sequential = new Phonebook(SEPARATE_CHAINING, SEPARATE_CHAINING);
+        for (Map.Entry<String, String> entry : entries) {
+            sequential.addEntry(entry.getKey(), entry.getValue());
+        }
+        BulkLoader loader = new BulkLoader(new ForkJoinPool(4));
+        for (Phonebook loaded : new Phonebook[]{new Phonebook(LINEAR_PROBING, QUADRATIC_PROBING),
+                new Phonebook(CONCURRENT_LINEAR_PROBING, CONCURRENT_SEPARATE_CHAINING, 16)}) {
+            loader.load(loaded, entries);
+            assertEquals(sequential.size(), loaded.size());
+            for (int i = 0; i < NUMS; i++) {
+                assertEquals(sequential.getNumberOf("Name" + i), loaded.getNumberOf("Name" + i));
+                assertEquals(sequential.getOwnerOf("Number" + i), loaded.getOwnerOf("Number" + i));
+            }
+        }
+
+        List<Map.Entry<String, String>> invalid = new ArrayList<>(entries);
+        invalid.add(NUMS, new java.util.AbstractMap.SimpleEntry<String, String>("Tom", null));
+        pb = new Phonebook(SEPARATE_CHAINING, LINEAR_PROBING);
+        try {
+            loader.load(pb, invalid);
+            fail("A null number should be rejected.");
+        } catch (IllegalArgumentException ignored) {
+            assertTrue(pb.isEmpty());
+        }
+        try {
+            loader.load(sequential, entries);
+            fail("Only empty phonebooks can be bulk loaded.");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testStreamsReportEveryRecordOnce() {
+        HashTable[] tables = {new LinearProbingHashTable(true), new QuadraticProbingHashTable(false),
+                new SeparateChainingHashTable(), new ConcurrentSeparateChainingHashTable(),
+                new ConcurrentLinearProbingHashTable(), new AdaptiveHashTable()};
+        for (HashTable table : tables) {
+            Map<String, String> expected = new HashMap<>();
+            Random rng = new Random(48);
+            for (int i = 0; i < 4 * NUMS; i++) {
+                String key = "Key" + rng.nextInt(NUMS / 2);
+                table.remove(key);
+                expected.remove(key);
+                if (rng.nextInt(3) != 0) {
+                    table.put(key, "Value" + i);
+                    expected.put(key, "Value" + i);
+                }
+            }
+            String name = table.getClass().getSimpleName();
+            assertEquals(name, expected, table.entries().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+            assertEquals(name, expected, table.entries().parallel()
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+            assertEquals(name, expected.size(), table.keys().parallel().count());
+            assertEquals(name, expected.keySet(), table.keys().parallel().collect(Collectors.toSet()));
+            assertEquals(name, new HashSet<>(expected.values()), table.values().collect(Collectors.toSet()));
+            Spliterator<String> keys = table.spliterator((key, value) -> key);
+            assertTrue(name, keys.hasCharacteristics(Spliterator.SIZED) || keys.hasCharacteristics(Spliterator.CONCURRENT));
+            int reported = 0;
+            while (keys.tryAdvance(key -> assertTrue(expected.containsKey(key)))) {
+                reported++;
+            }
+            assertEquals(name, expected.size(), reported);
+        }
+    }
+
+    @Test
+    public void testValueIndexMatchesScans() {
+        HashTable inner = new LinearProbingHashTable(true);
+        inner.put("Preexisting", "Value0");
+        ValueIndexedHashTable indexed = new ValueIndexedHashTable(inner);
+        Map<String, String> expected = new HashMap<>();
+        expected.put("Preexisting", "Value0");
+        Random rng = new Random(49);
+        for (int i = 0; i < 5 * NUMS; i++) {
+            String key = "Key" + rng.nextInt(300), value = "Value" + rng.nextInt(50);
+            switch (rng.nextInt(4)) {
+                case 0:
+                    indexed.remove(key);
+                    expected.remove(key);
+                    break;
+                case 1:
+                    String other = "Key" + rng.nextInt(300);
+                    indexed.removeAll(List.of(key, key, other));
+                    expected.remove(key);
+                    expected.remove(other);
+                    break;
+                default:
+                    indexed.put(key, value);
+                    expected.put(key, value);
+            }
+            String probe = "Value" + rng.nextInt(60);
+            assertEquals(expected.containsValue(probe), indexed.containsValue(probe));
+            assertEquals(expected.containsValue(probe), inner.containsValueParallel(probe));
+        }
+        assertEquals(new HashSet<>(expected.values()).size(), indexed.distinctValues());
+        assertFalse(indexed.containsValue(null));
+        assertFalse(inner.containsValueParallel(null));
+    }
+
+    @Test
+    public void testMultiVersionSnapshotsAreConsistent() {
+        Phonebook multiVersion = Phonebook.multiVersion();
+        for (int i = 0; i < 100; i++) {
+            multiVersion.addEntry("Name" + i, "Number" + i);
+        }
+        PhonebookSnapshot snapshot = multiVersion.openSnapshot();
+        assertEquals(100, snapshot.getVersion());
+        Random rng = new Random(50);
+        for (int i = 0; i < NUMS; i++) {
+            // swap the numbers of two names in one batch, so that every version is a bijection
+            String first = "Name" + rng.nextInt(100), second = "Name" + rng.nextInt(100);
+            String firstNumber = multiVersion.getNumberOf(first), secondNumber = multiVersion.getNumberOf(second);
+            multiVersion.addEntries(List.of(Map.entry(first, secondNumber), Map.entry(second, firstNumber)));
+            assertEquals(first, multiVersion.getOwnerOf(secondNumber));
+        }
+        multiVersion.deleteEntry("Name0", multiVersion.getNumberOf("Name0"));
+        assertEquals(99, multiVersion.size());
+        assertEquals(100 + NUMS + 1, multiVersion.getVersion());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Number" + i, snapshot.getNumberOf("Name" + i));
+            assertEquals("Name" + i, snapshot.getOwnerOf("Number" + i));
+        }
+        assertEquals(100, snapshot.entries().count());
+        try (PhonebookSnapshot latest = multiVersion.openSnapshot();
+             PhonebookSnapshot earlier = multiVersion.openSnapshot(snapshot.getVersion())) {
+            assertEquals(99, latest.entries().count());
+            assertNull(latest.getNumberOf("Name0"));
+            assertEquals("Number0", earlier.getNumberOf("Name0"));
+        }
+        long version = snapshot.getVersion();
+        snapshot.close();
+        try {
+            snapshot.getNumberOf("Name1");
+            fail("A closed snapshot should not answer lookups.");
+        } catch (IllegalStateException expected) {
+        }
+        multiVersion.addEntry("Name0", "Number0");
+        try {
+            multiVersion.openSnapshot(version);
+            fail("Version " + version + " should have been reclaimed once its last snapshot was closed.");
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            new Phonebook(SEPARATE_CHAINING, LINEAR_PROBING).openSnapshot();
+            fail("Only multi-version Phonebooks should open snapshots.");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void testFlightRecorderEventsAreEmitted() throws IOException {
+        // every adversarial key has the same hash code, so they all pile up in one cluster
+        String[] keys = KeyDistribution.ADVERSARIAL.keys(40, 33);
+        LinearProbingHashTable table = new LinearProbingHashTable(false);
+        Path dump = Files.createTempFile("phonebook", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("phonebook.Resize");
+            recording.enable("phonebook.LongProbe");
+            recording.enable("phonebook.DeleteCascade");
+            recording.start();
+            for (String key : keys) {
+                table.put(key, "Value");
+            }
+            // removing the key at the home cell re-inserts the rest of the cluster
+            table.remove(table.get(table.hash(keys[0])).getKey());
+            recording.stop();
+            recording.dump(dump);
+        }
+        List<RecordedEvent> events;
+        try {
+            events = RecordingFile.readAllEvents(dump);
+        } finally {
+            Files.delete(dump);
+        }
+        List<RecordedEvent> resizes = eventsNamed(events, "phonebook.Resize");
+        assertFalse("Growing the table should have been recorded.", resizes.isEmpty());
+        for (RecordedEvent resize : resizes) {
+            assertEquals("LinearProbingHashTable", resize.getString("table"));
+            assertTrue(resize.getInt("newCapacity") > resize.getInt("oldCapacity"));
+            assertTrue(resize.getInt("entriesMoved") > 0);
+        }
+        assertEquals(table.capacity(), resizes.get(resizes.size() - 1).getInt("newCapacity"));
+        List<RecordedEvent> longProbes = eventsNamed(events, "phonebook.LongProbe");
+        assertFalse("Inserting past the probe threshold should have been recorded.", longProbes.isEmpty());
+        int threshold = Integer.getInteger("phonebook.jfr.probeThreshold", 32);
+        for (RecordedEvent longProbe : longProbes) {
+            assertEquals("LinearProbingHashTable", longProbe.getString("table"));
+            assertTrue(longProbe.getInt("probes") > threshold);
+            assertTrue(longProbe.getInt("size") <= longProbe.getInt("capacity"));
+        }
+        assertEquals(Operation.PUT_INSERT.name(), longProbes.get(0).getString("operation"));
+        List<RecordedEvent> cascades = eventsNamed(events, "phonebook.DeleteCascade");
+        assertEquals(1, cascades.size());
+        assertEquals(table.capacity(), cascades.get(0).getInt("capacity"));
+        assertEquals(keys.length - 1, cascades.get(0).getInt("entriesReinserted"));
+    }
+
+    private static List<RecordedEvent> eventsNamed(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+    }
 }
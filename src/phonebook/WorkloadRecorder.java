@@ -0,0 +1,104 @@
+package phonebook;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <p>{@link WorkloadRecorder} writes the stream of operations served by a {@link Phonebook} to a compact binary
+ * <b>trace</b>, which {@link WorkloadTrace} reads back for offline replay. Attach it with
+ * {@link Phonebook#startRecording(WorkloadRecorder)}. Batch operations are recorded as the individual operations
+ * they stand for.</p>
+ *
+ * <p>A trace starts with the magic number {@code PBTR} and a format version, both as 4-byte integers. Each event
+ * follows as one byte holding the ordinal of its {@link Phonebook.Operation} (with the top bit set if the event has
+ * a value), the nanoseconds elapsed since the previous event as a variable-length integer, the key and, if present,
+ * the value, both in the modified UTF-8 of {@link DataOutputStream#writeUTF(String)}.</p>
+ *
+ * <p>Recording never disturbs the {@link Phonebook}: if the stream fails, recording stops silently and the failure
+ * is thrown by {@link #close()}. Instances are thread-safe.</p>
+ *
+ * @see WorkloadTrace
+ */
+public class WorkloadRecorder implements Closeable {
+
+    static final int MAGIC = 0x50425452; // "PBTR"
+    static final int VERSION = 1;
+    static final int HAS_VALUE = 0x80;
+
+    private final DataOutputStream out;
+    private long last;
+    private long recorded;
+    private IOException failure;
+
+    /**
+     * Starts a trace on out. The stream is buffered by this recorder.
+     * @param out The stream to write the trace to.
+     * @throws IOException if the header of the trace could not be written.
+     */
+    public WorkloadRecorder(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+        this.last = System.nanoTime();
+    }
+
+    /**
+     * Appends one event to the trace.
+     * @param op The operation.
+     * @param key The name, or the number for {@link Phonebook.Operation#GET_OWNER_OF}.
+     * @param value The number of an {@link Phonebook.Operation#ADD_ENTRY} or {@link Phonebook.Operation#DELETE_ENTRY},
+     *              {@code null} for lookups.
+     */
+    public synchronized void record(Phonebook.Operation op, String key, String value) {
+        if(failure != null)
+            return;
+        long now = System.nanoTime();
+        try {
+            out.writeByte(op.ordinal() | (value == null ? 0 : HAS_VALUE));
+            writeVarLong(now - last);
+            out.writeUTF(key);
+            if(value != null)
+                out.writeUTF(value);
+            recorded++;
+        } catch(IOException e) {
+            failure = e;
+        }
+        last = now;
+    }
+
+    /**
+     * Returns how many events have been written so far.
+     * @return The number of events written.
+     */
+    public synchronized long recorded() {
+        return recorded;
+    }
+
+    /**
+     * Flushes and closes the trace.
+     * @throws IOException if any write to the trace failed, or if closing it fails.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            out.close();
+        } catch(IOException e) {
+            if(failure == null)
+                failure = e;
+        }
+        if(failure != null)
+            throw failure;
+    }
+
+    /* Seven bits at a time, least significant first; the top bit of a byte says that more bytes follow. */
+    private void writeVarLong(long value) throws IOException {
+        while((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
@@ -0,0 +1,168 @@
+package phonebook;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>{@link WorkloadTrace} is a trace written by {@link WorkloadRecorder}, read back into memory. Its events can be
+ * applied, in order, to a {@link Phonebook} of any configuration to reproduce the recorded workload.</p>
+ *
+ * @see WorkloadRecorder
+ */
+public class WorkloadTrace {
+
+    /**
+     * A single recorded operation.
+     */
+    public static class Event {
+        private final Phonebook.Operation op;
+        private final String key;
+        private final String value;
+        private final long nanos;
+
+        /**
+         * Creates an event, e.g for a synthetic workload.
+         * @param op The operation.
+         * @param key The name, or the number for {@link Phonebook.Operation#GET_OWNER_OF}.
+         * @param value The number of an addition or deletion, {@code null} for lookups.
+         * @param nanos The nanoseconds between the start of the trace and this event.
+         * @throws IllegalArgumentException if op or key is {@code null}, or if value is {@code null} exactly when
+         * op is an addition or deletion.
+         */
+        public Event(Phonebook.Operation op, String key, String value, long nanos) {
+            boolean lookup = op == Phonebook.Operation.GET_NUMBER_OF || op == Phonebook.Operation.GET_OWNER_OF;
+            if(op == null || key == null || lookup != (value == null))
+                throw new IllegalArgumentException("Provided: op=" + op + ", key=" + key + " and value=" + value);
+            this.op = op;
+            this.key = key;
+            this.value = value;
+            this.nanos = nanos;
+        }
+
+        public Phonebook.Operation getOperation() {
+            return op;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Returns when the event was recorded.
+         * @return The nanoseconds between the start of the trace and this event.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Performs this event on pb.
+         * @param pb The {@link Phonebook} to replay the event on.
+         * @return The result of a lookup, {@code null} for additions and deletions.
+         */
+        public String applyTo(Phonebook pb) {
+            switch(op) {
+                case ADD_ENTRY:
+                    pb.addEntry(key, value);
+                    return null;
+                case DELETE_ENTRY:
+                    pb.deleteEntry(key, value);
+                    return null;
+                case GET_NUMBER_OF:
+                    return pb.getNumberOf(key);
+                case GET_OWNER_OF:
+                    return pb.getOwnerOf(key);
+                default:
+                    throw new AssertionError("Unknown operation " + op + ".");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return op + " " + key + (value == null ? "" : " " + value) + " @" + nanos + "ns";
+        }
+    }
+
+    private final List<Event> events;
+
+    private WorkloadTrace(List<Event> events) {
+        this.events = Collections.unmodifiableList(events);
+    }
+
+    /**
+     * Creates a trace of the provided events, e.g for a synthetic workload.
+     * @param events The events, in order.
+     * @return The trace.
+     */
+    public static WorkloadTrace of(List<Event> events) {
+        return new WorkloadTrace(new ArrayList<>(events));
+    }
+
+    /**
+     * Reads a whole trace. The stream is read to its end, but not closed.
+     * @param in The stream to read the trace from.
+     * @return The trace.
+     * @throws IOException if in fails, or does not hold a trace of a supported version.
+     */
+    public static WorkloadTrace read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if(data.readInt() != WorkloadRecorder.MAGIC)
+            throw new IOException("Not a phonebook workload trace.");
+        int version = data.readInt();
+        if(version != WorkloadRecorder.VERSION)
+            throw new IOException("Unsupported trace version " + version + ".");
+        Phonebook.Operation[] ops = Phonebook.Operation.values();
+        List<Event> events = new ArrayList<>();
+        long nanos = 0;
+        int header;
+        while((header = data.read()) != -1) {
+            int ordinal = header & ~WorkloadRecorder.HAS_VALUE;
+            if(ordinal >= ops.length)
+                throw new IOException("Corrupt trace: unknown operation " + ordinal + ".");
+            nanos += readVarLong(data);
+            String key = data.readUTF();
+            String value = ((header & WorkloadRecorder.HAS_VALUE) != 0) ? data.readUTF() : null;
+            events.add(new Event(ops[ordinal], key, value, nanos));
+        }
+        return new WorkloadTrace(events);
+    }
+
+    /**
+     * Returns the events of this trace, in recording order.
+     * @return An unmodifiable list of events.
+     */
+    public List<Event> events() {
+        return events;
+    }
+
+    /**
+     * Returns the number of events of this trace.
+     * @return The number of events.
+     */
+    public int size() {
+        return events.size();
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.read();
+            if(b == -1)
+                throw new EOFException("Truncated trace.");
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Corrupt trace: variable-length integer too long.");
+    }
+}
@@ -0,0 +1,84 @@
+package phonebook.benchmarks;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * <p>{@link BenchmarkRunner} is the minimal timing harness shared by the benchmarks of this package. It runs a body
+ * a number of times to let the JIT compiler settle, then times a number of measured iterations with
+ * {@link System#nanoTime()} and reports the mean cost of a single operation. Results that the body produces should
+ * be passed to {@link #consume(Object)}, so that the JIT compiler cannot eliminate the work as dead code.</p>
+ */
+public class BenchmarkRunner {
+
+    /** The default number of un-timed iterations. */
+    public static final int WARMUPS = 5;
+
+    /** The default number of timed iterations. */
+    public static final int ITERATIONS = 10;
+
+    private static volatile Object sink;
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Keeps a result alive, so that the computation that produced it cannot be optimized away.
+     * @param result Any result of the measured body.
+     */
+    public static void consume(Object result) {
+        sink = result;
+    }
+
+    /**
+     * Times body with the default numbers of warm-up and measured iterations.
+     * @param body The code to time.
+     * @param opsPerCall How many operations a single execution of body performs.
+     * @return The mean cost of a single operation, in nanoseconds.
+     */
+    public static double nanosPerOp(Runnable body, int opsPerCall) {
+        return nanosPerOp(body, opsPerCall, WARMUPS, ITERATIONS);
+    }
+
+    /**
+     * Times body.
+     * @param body The code to time.
+     * @param opsPerCall How many operations a single execution of body performs.
+     * @param warmups How many un-timed executions of body precede the measurement.
+     * @param iterations How many executions of body are timed.
+     * @return The mean cost of a single operation, in nanoseconds.
+     */
+    public static double nanosPerOp(Runnable body, int opsPerCall, int warmups, int iterations) {
+        for (int i = 0; i < warmups; i++) {
+            body.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            body.run();
+        }
+        return (double) (System.nanoTime() - start) / ((long) iterations * opsPerCall);
+    }
+
+    /**
+     * Times body on a fresh fixture from setup for every execution. Only body is timed, which suits operations that
+     * consume their fixture, such as removals.
+     * @param setup Creates the fixture of a single execution of body.
+     * @param body The code to time.
+     * @param opsPerCall How many operations a single execution of body performs.
+     * @param <T> The type of the fixture.
+     * @return The mean cost of a single operation, in nanoseconds.
+     */
+    public static <T> double nanosPerOp(Supplier<T> setup, Consumer<T> body, int opsPerCall) {
+        for (int i = 0; i < WARMUPS; i++) {
+            body.accept(setup.get());
+        }
+        long total = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            T fixture = setup.get();
+            long start = System.nanoTime();
+            body.accept(fixture);
+            total += System.nanoTime() - start;
+        }
+        return (double) total / ((long) ITERATIONS * opsPerCall);
+    }
+}
@@ -0,0 +1,63 @@
+package phonebook.benchmarks;
+
+import phonebook.Phonebook;
+import phonebook.hashes.BidirectionalHashTable;
+import phonebook.hashes.CollisionResolver;
+
+import java.util.Random;
+
+/**
+ * <p>{@link ChurnBenchmark} keeps a {@link Phonebook} at a constant population while continuously re-assigning
+ * numbers to different owners, and reports the {@link Phonebook}'s size and the heap in use after every round.
+ * Since {@link Phonebook#addEntry(String, String)} evicts the mappings it displaces, both columns should stay
+ * <b>flat</b> no matter how many rounds are run. Execute as Java application; the optional arguments are the
+ * population and the number of rounds.</p>
+ *
+ * @see Phonebook#addEntry(String, String)
+ */
+public class ChurnBenchmark {
+
+    private static final long SEED = 47;
+    private static final int DEFAULT_POPULATION = 1000;
+    private static final int DEFAULT_ROUNDS = 20;
+
+    public static void main(String[] args) {
+        int population = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_POPULATION;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+        for (CollisionResolver namesToNumbers : CollisionResolver.values()) {
+            for (CollisionResolver numbersToNames : CollisionResolver.values()) {
+                run(namesToNumbers + "/" + numbersToNames, new Phonebook(namesToNumbers, numbersToNames), population, rounds);
+            }
+        }
+        run("SHARED_ENTRY", new Phonebook(new BidirectionalHashTable()), population, rounds);
+    }
+
+    private static void run(String label, Phonebook pb, int population, int rounds) {
+        Random rng = new Random(SEED);
+        for (int i = 0; i < population; i++) {
+            pb.addEntry("Name" + i, "Number" + i);
+        }
+        long[] heap = new long[rounds];
+        int[] sizes = new int[rounds];
+        for (int round = 0; round < rounds; round++) {
+            // Every round re-assigns as many numbers as there are people, drawn from a pool twice as large.
+            for (int i = 0; i < population; i++) {
+                pb.addEntry("Name" + rng.nextInt(population), "Number" + rng.nextInt(2 * population));
+            }
+            sizes[round] = pb.size();
+            heap[round] = usedHeap();
+        }
+        System.out.println(label);
+        System.out.println("round,size,usedHeapKB");
+        for (int round = 0; round < rounds; round++) {
+            System.out.println(round + "," + sizes[round] + "," + (heap[round] / 1024));
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,97 @@
+package phonebook.benchmarks;
+
+import phonebook.hashes.ConcurrentSeparateChainingHashTable;
+import phonebook.hashes.HashTable;
+import phonebook.hashes.LinearProbingHashTable;
+import phonebook.hashes.QuadraticProbingHashTable;
+import phonebook.hashes.SeparateChainingHashTable;
+import phonebook.hashes.ValueIndexedHashTable;
+import phonebook.utils.NoMorePrimesException;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * <p>{@link ContainsValueBenchmark} compares the three ways of answering {@link HashTable#containsValue(String)}: the
+ * sequential scan of every table, the parallel scan of {@link HashTable#containsValueParallel(String)}, and the index of
+ * {@link ValueIndexedHashTable}. Half of the values looked up are stored. Since the index is paid for on every write,
+ * it also times filling the table with and without it.</p>
+ *
+ * <p>Execute as Java application. The optional argument is a comma-separated list of sizes. Results are printed as CSV
+ * with the columns {@code table,size,scanNs,parallelNs,indexedNs,putNs,indexedPutNs}, all per operation. The parallel
+ * scan runs on {@link java.util.concurrent.ForkJoinPool#commonPool()}, so its column depends on the number of cores;
+ * sizes that need a capacity past the largest prime of {@link phonebook.utils.PrimeGenerator} are skipped.</p>
+ *
+ * @see ValueIndexedHashTable
+ */
+public class ContainsValueBenchmark {
+
+    private static final long SEED = 47;
+    private static final String DEFAULT_SIZES = "100,1000,2000";
+    private static final int LOOKUPS = 200;
+
+    private static final Map<String, Supplier<HashTable>> TABLES = new LinkedHashMap<>();
+
+    static {
+        TABLES.put("SeparateChainingHashTable", SeparateChainingHashTable::new);
+        TABLES.put("LinearProbingHashTable/hard", () -> new LinearProbingHashTable(false));
+        TABLES.put("QuadraticProbingHashTable/hard", () -> new QuadraticProbingHashTable(false));
+        TABLES.put("ConcurrentSeparateChainingHashTable", ConcurrentSeparateChainingHashTable::new);
+    }
+
+    public static void main(String[] args) {
+        String sizes = (args.length > 0) ? args[0] : DEFAULT_SIZES;
+        System.out.println("table,size,scanNs,parallelNs,indexedNs,putNs,indexedPutNs");
+        for (String size : sizes.split(",")) {
+            int n = Integer.parseInt(size.trim());
+            String[] keys = KeyDistribution.PHONE.keys(n, SEED);
+            String[] lookups = new String[LOOKUPS];
+            Random rng = new Random(SEED);
+            for (int i = 0; i < LOOKUPS; i++) {
+                lookups[i] = rng.nextBoolean() ? "Owner" + keys[rng.nextInt(n)] : "Nobody" + i;
+            }
+            for (Map.Entry<String, Supplier<HashTable>> table : TABLES.entrySet()) {
+                try {
+                    run(table.getKey(), table.getValue(), keys, lookups);
+                } catch (NoMorePrimesException e) {
+                    System.err.println("Skipped " + table.getKey() + " at size " + n + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void run(String label, Supplier<HashTable> tables, String[] keys, String[] lookups) {
+        HashTable plain = fill(tables.get(), keys);
+        HashTable indexed = fill(new ValueIndexedHashTable(tables.get()), keys);
+        double scan = BenchmarkRunner.nanosPerOp(() -> {
+            for (String value : lookups) {
+                BenchmarkRunner.consume(plain.containsValue(value));
+            }
+        }, lookups.length);
+        double parallel = BenchmarkRunner.nanosPerOp(() -> {
+            for (String value : lookups) {
+                BenchmarkRunner.consume(plain.containsValueParallel(value));
+            }
+        }, lookups.length);
+        double index = BenchmarkRunner.nanosPerOp(() -> {
+            for (String value : lookups) {
+                BenchmarkRunner.consume(indexed.containsValue(value));
+            }
+        }, lookups.length);
+        double put = BenchmarkRunner.nanosPerOp(() -> BenchmarkRunner.consume(fill(tables.get(), keys)), keys.length);
+        double indexedPut = BenchmarkRunner.nanosPerOp(
+                () -> BenchmarkRunner.consume(fill(new ValueIndexedHashTable(tables.get()), keys)), keys.length);
+        System.out.println(label + "," + keys.length + String.format(Locale.ROOT, ",%.1f,%.1f,%.1f,%.1f,%.1f", scan,
+                parallel, index, put, indexedPut));
+    }
+
+    private static HashTable fill(HashTable table, String[] keys) {
+        for (String key : keys) {
+            table.put(key, "Owner" + key);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,112 @@
+package phonebook.benchmarks;
+
+import phonebook.hashes.HashTable;
+import phonebook.hashes.LinearProbingHashTable;
+import phonebook.hashes.OpenAddressingHashTable;
+import phonebook.hashes.OrderedLinearProbingHashTable;
+import phonebook.hashes.QuadraticProbingHashTable;
+import phonebook.hashes.SeparateChainingHashTable;
+import phonebook.utils.NoMorePrimesException;
+import phonebook.utils.SipHash;
+import phonebook.utils.TableStats;
+import phonebook.utils.TableStats.Operation;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * <p>{@link FloodBenchmark} measures how every {@link HashTable} degrades under a hash flooding attack, i.e when all
+ * of its keys share the same {@link String#hashCode()} ({@link KeyDistribution#ADVERSARIAL}), compared to ordinary
+ * keys ({@link KeyDistribution#PHONE}). Every table is measured twice: hashing with {@link String#hashCode()}, and
+ * hashing with a randomly keyed {@link SipHash}, which the attacker cannot predict. For each combination it times
+ * {@code put} into an empty table and {@code get} of every stored key, and reports the mean probes of those lookups and
+ * the longest chain of the filled table. Under attack, {@link String#hashCode()} makes both grow linearly with the size,
+ * while {@link SipHash} keeps them at the level of ordinary keys.</p>
+ *
+ * <p>Execute as Java application. The optional arguments are a comma-separated list of sizes and the path of the
+ * results file; results go to standard output by default, as CSV with the columns
+ * {@code table,hash,distribution,size,putNsPerOp,getNsPerOp,meanProbes,longestChain}.</p>
+ *
+ * @see SipHash
+ * @see HashTableSuite
+ */
+public class FloodBenchmark {
+
+    private static final long SEED = 47;
+    private static final String DEFAULT_SIZES = "100,200,400,800";
+    private static final KeyDistribution[] DISTRIBUTIONS = {KeyDistribution.PHONE, KeyDistribution.ADVERSARIAL};
+
+    private static final Map<String, Supplier<HashTable>> TABLES = new LinkedHashMap<>();
+
+    static {
+        TABLES.put("SeparateChainingHashTable", SeparateChainingHashTable::new);
+        TABLES.put("LinearProbingHashTable", () -> new LinearProbingHashTable(false));
+        TABLES.put("OrderedLinearProbingHashTable", () -> new OrderedLinearProbingHashTable(false));
+        TABLES.put("QuadraticProbingHashTable", () -> new QuadraticProbingHashTable(false));
+    }
+
+    public static void main(String[] args) throws FileNotFoundException {
+        String[] sizes = ((args.length > 0) ? args[0] : DEFAULT_SIZES).split(",");
+        PrintStream out = (args.length > 1) ? new PrintStream(args[1]) : System.out;
+
+        out.println("table,hash,distribution,size,putNsPerOp,getNsPerOp,meanProbes,longestChain");
+        for (KeyDistribution distribution : DISTRIBUTIONS) {
+            for (String size : sizes) {
+                String[] keys = distribution.keys(Integer.parseInt(size.trim()), SEED);
+                for (Map.Entry<String, Supplier<HashTable>> table : TABLES.entrySet()) {
+                    for (boolean seeded : new boolean[]{false, true}) {
+                        try {
+                            out.println(table.getKey() + "," + (seeded ? "SipHash" : "hashCode") + "," + distribution
+                                    + "," + keys.length + "," + run(table.getValue(), seeded, keys));
+                        } catch (NoMorePrimesException e) {
+                            System.err.println("Skipped " + table.getKey() + " " + distribution + " size="
+                                    + keys.length + ": " + e.getMessage());
+                        }
+                    }
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /* Returns the measured columns of one row. */
+    private static String run(Supplier<HashTable> factory, boolean seeded, String[] keys) {
+        Supplier<HashTable> empty = () -> {
+            HashTable table = factory.get();
+            if (seeded) {
+                seed(table);
+            }
+            return table;
+        };
+        double put = BenchmarkRunner.nanosPerOp(empty, t -> {
+            for (String key : keys) {
+                BenchmarkRunner.consume(t.put(key, key));
+            }
+        }, keys.length);
+
+        HashTable table = empty.get();
+        for (String key : keys) {
+            table.put(key, key);
+        }
+        double get = BenchmarkRunner.nanosPerOp(() -> {
+            for (String key : keys) {
+                BenchmarkRunner.consume(table.get(key));
+            }
+        }, keys.length);
+        TableStats stats = table.snapshot();
+        return String.format(Locale.ROOT, "%.1f,%.1f,%.2f,%d", put, get, stats.meanProbes(Operation.GET_HIT),
+                stats.getLongestChain());
+    }
+
+    private static void seed(HashTable table) {
+        if (table instanceof OpenAddressingHashTable) {
+            ((OpenAddressingHashTable) table).useSeededHash(SipHash.random());
+        } else {
+            ((SeparateChainingHashTable) table).useSeededHash(SipHash.random());
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package phonebook.benchmarks;
+
+import phonebook.Phonebook;
+import phonebook.hashes.CollisionResolver;
+import phonebook.hashes.ConcurrentLinearProbingHashTable;
+import phonebook.hashes.ConcurrentSeparateChainingHashTable;
+import phonebook.hashes.HashTable;
+import phonebook.hashes.LinearProbingHashTable;
+import phonebook.hashes.OrderedLinearProbingHashTable;
+import phonebook.hashes.QuadraticProbingHashTable;
+import phonebook.hashes.SeparateChainingHashTable;
+import phonebook.utils.NoMorePrimesException;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * <p>{@link HashTableSuite} is the regression benchmark suite of the phonebook. For every {@link HashTable}
+ * implementation, in both deletion modes where applicable, it times {@code put}, {@code get} of stored and of
+ * missing keys, {@code remove} and {@code containsValue}. For every pairing of {@link CollisionResolver}s
+ * it times {@link Phonebook#addEntry(String, String)}, both lookups and {@link Phonebook#deleteEntry(String, String)}.
+ * Every benchmark runs for every combination of size, load factor and {@link KeyDistribution}.</p>
+ *
+ * <p>The load factor is a target: tables are pre-sized with {@link HashTable#ensureCapacity(int)} so that they do not
+ * exceed it once filled, and the load factor that the table actually reached is reported. Since openly addressed
+ * tables resize at 50&#37;, targets above 0.5 only affect separate chaining. Combinations that need a capacity above
+ * the largest prime of {@link phonebook.utils.PrimeGenerator} are skipped, with a note on standard error, and so are
+ * {@link KeyDistribution#ADVERSARIAL} sizes above 250, whose hard deletions take time cubic in the size.</p>
+ *
+ * <p>Execute as Java application. The optional arguments are a comma-separated list of sizes, a comma-separated list
+ * of load factors and the path of the results file; results go to standard output by default. Results are CSV with
+ * the columns {@code benchmark,subject,distribution,size,loadFactor,nsPerOp}, one row per measurement, so that the
+ * results of two releases can be joined on their first four columns and compared.</p>
+ *
+ * @see KeyDistribution
+ * @see BenchmarkRunner
+ */
+public class HashTableSuite {
+
+    private static final long SEED = 47;
+    private static final String DEFAULT_SIZES = "100,1000";
+    private static final String DEFAULT_LOAD_FACTORS = "0.25,0.5";
+    private static final int CONTAINS_VALUE_SAMPLE = 50;
+    // Hard deletion of colliding keys re-inserts the whole cluster every time: cubic in the size.
+    private static final int MAX_ADVERSARIAL_SIZE = 250;
+
+    private static final Map<String, Supplier<HashTable>> TABLES = new LinkedHashMap<>();
+
+    static {
+        TABLES.put("SeparateChainingHashTable", SeparateChainingHashTable::new);
+        TABLES.put("LinearProbingHashTable/soft", () -> new LinearProbingHashTable(true));
+        TABLES.put("LinearProbingHashTable/hard", () -> new LinearProbingHashTable(false));
+        TABLES.put("OrderedLinearProbingHashTable/soft", () -> new OrderedLinearProbingHashTable(true));
+        TABLES.put("OrderedLinearProbingHashTable/hard", () -> new OrderedLinearProbingHashTable(false));
+        TABLES.put("QuadraticProbingHashTable/soft", () -> new QuadraticProbingHashTable(true));
+        TABLES.put("QuadraticProbingHashTable/hard", () -> new QuadraticProbingHashTable(false));
+        TABLES.put("ConcurrentSeparateChainingHashTable", ConcurrentSeparateChainingHashTable::new);
+        TABLES.put("ConcurrentLinearProbingHashTable", ConcurrentLinearProbingHashTable::new);
+    }
+
+    private final PrintStream out;
+
+    private HashTableSuite(PrintStream out) {
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws FileNotFoundException {
+        int[] sizes = parseInts((args.length > 0) ? args[0] : DEFAULT_SIZES);
+        double[] loadFactors = parseDoubles((args.length > 1) ? args[1] : DEFAULT_LOAD_FACTORS);
+        PrintStream out = (args.length > 2) ? new PrintStream(args[2]) : System.out;
+
+        HashTableSuite suite = new HashTableSuite(out);
+        out.println("benchmark,subject,distribution,size,loadFactor,nsPerOp");
+        for (KeyDistribution distribution : KeyDistribution.values()) {
+            for (int size : sizes) {
+                if (distribution == KeyDistribution.ADVERSARIAL && size > MAX_ADVERSARIAL_SIZE) {
+                    System.err.println("Skipped " + distribution + " size=" + size + ": larger than "
+                            + MAX_ADVERSARIAL_SIZE + ".");
+                    continue;
+                }
+                // Keys and values are drawn from the same distribution; misses come from a disjoint set.
+                String[] all = distribution.keys(3 * size, SEED);
+                String[] keys = slice(all, 0, size);
+                String[] values = slice(all, size, 2 * size);
+                String[] misses = slice(all, 2 * size, 3 * size);
+                for (double loadFactor : loadFactors) {
+                    for (Map.Entry<String, Supplier<HashTable>> table : TABLES.entrySet()) {
+                        try {
+                            suite.runTable(table.getKey(), table.getValue(), distribution, loadFactor, keys, values, misses);
+                        } catch (NoMorePrimesException e) {
+                            System.err.println("Skipped " + table.getKey() + " " + distribution + " size=" + size
+                                    + " loadFactor=" + loadFactor + ": " + e.getMessage());
+                        }
+                    }
+                    for (CollisionResolver namesToNumbers : CollisionResolver.values()) {
+                        for (CollisionResolver numbersToNames : CollisionResolver.values()) {
+                            try {
+                                suite.runPhonebook(namesToNumbers, numbersToNames, distribution, loadFactor, keys, values);
+                            } catch (NoMorePrimesException e) {
+                                System.err.println("Skipped " + namesToNumbers + "/" + numbersToNames + " " + distribution
+                                        + " size=" + size + " loadFactor=" + loadFactor + ": " + e.getMessage());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private void runTable(String subject, Supplier<HashTable> factory, KeyDistribution distribution, double loadFactor,
+                          String[] keys, String[] values, String[] misses) {
+        Supplier<HashTable> empty = () -> {
+            HashTable table = factory.get();
+            table.ensureCapacity(reserve(table, keys.length, loadFactor));
+            return table;
+        };
+        Supplier<HashTable> full = () -> {
+            HashTable table = empty.get();
+            for (int i = 0; i < keys.length; i++) {
+                table.put(keys[i], values[i]);
+            }
+            return table;
+        };
+        HashTable table = full.get();
+        double actualLoad = (double) table.size() / table.capacity();
+        String row = subject + "," + distribution + "," + keys.length + ","
+                + String.format(Locale.ROOT, "%.3f", actualLoad) + ",";
+
+        report("put", row, BenchmarkRunner.nanosPerOp(empty, t -> {
+            for (int i = 0; i < keys.length; i++) {
+                BenchmarkRunner.consume(t.put(keys[i], values[i]));
+            }
+        }, keys.length));
+        report("getHit", row, BenchmarkRunner.nanosPerOp(() -> {
+            for (String key : keys) {
+                BenchmarkRunner.consume(table.get(key));
+            }
+        }, keys.length));
+        report("getMiss", row, BenchmarkRunner.nanosPerOp(() -> {
+            for (String key : misses) {
+                BenchmarkRunner.consume(table.get(key));
+            }
+        }, misses.length));
+        report("remove", row, BenchmarkRunner.nanosPerOp(full, t -> {
+            for (String key : keys) {
+                BenchmarkRunner.consume(t.remove(key));
+            }
+        }, keys.length));
+        int sample = Math.min(CONTAINS_VALUE_SAMPLE, values.length);
+        report("containsValue", row, BenchmarkRunner.nanosPerOp(() -> {
+            for (int i = 0; i < sample; i++) {
+                BenchmarkRunner.consume(table.containsValue(values[i * values.length / sample]));
+            }
+        }, sample));
+    }
+
+    private void runPhonebook(CollisionResolver namesToNumbers, CollisionResolver numbersToNames,
+                              KeyDistribution distribution, double loadFactor, String[] names, String[] numbers) {
+        Supplier<Phonebook> empty = () -> {
+            Phonebook pb = new Phonebook(namesToNumbers, numbersToNames);
+            // Openly addressed tables resize at half load; chaining tables get at least the same capacity.
+            pb.ensureCapacity((int) Math.ceil(names.length * 0.5 / loadFactor));
+            return pb;
+        };
+        Supplier<Phonebook> full = () -> {
+            Phonebook pb = empty.get();
+            for (int i = 0; i < names.length; i++) {
+                pb.addEntry(names[i], numbers[i]);
+            }
+            return pb;
+        };
+        Phonebook pb = full.get();
+        String row = namesToNumbers + "/" + numbersToNames + "," + distribution + "," + names.length + ","
+                + String.format(Locale.ROOT, "%.3f", loadFactor) + ",";
+
+        report("addEntry", row, BenchmarkRunner.nanosPerOp(empty, p -> {
+            for (int i = 0; i < names.length; i++) {
+                p.addEntry(names[i], numbers[i]);
+            }
+        }, names.length));
+        report("getNumberOf", row, BenchmarkRunner.nanosPerOp(() -> {
+            for (String name : names) {
+                BenchmarkRunner.consume(pb.getNumberOf(name));
+            }
+        }, names.length));
+        report("getOwnerOf", row, BenchmarkRunner.nanosPerOp(() -> {
+            for (String number : numbers) {
+                BenchmarkRunner.consume(pb.getOwnerOf(number));
+            }
+        }, numbers.length));
+        report("deleteEntry", row, BenchmarkRunner.nanosPerOp(full, p -> {
+            for (int i = 0; i < names.length; i++) {
+                p.deleteEntry(names[i], numbers[i]);
+            }
+        }, names.length));
+    }
+
+    private void report(String benchmark, String row, double nsPerOp) {
+        out.println(benchmark + "," + row + String.format(Locale.ROOT, "%.1f", nsPerOp));
+    }
+
+    /* The argument of ensureCapacity() that keeps table at or below loadFactor once it holds size records. */
+    private static int reserve(HashTable table, int size, double loadFactor) {
+        if (table instanceof SeparateChainingHashTable || table instanceof ConcurrentSeparateChainingHashTable) {
+            return (int) Math.ceil(size / loadFactor);
+        }
+        return (int) Math.ceil(size * 0.5 / Math.min(loadFactor, 0.5));
+    }
+
+    private static String[] slice(String[] keys, int from, int to) {
+        String[] slice = new String[to - from];
+        System.arraycopy(keys, from, slice, 0, slice.length);
+        return slice;
+    }
+
+    private static int[] parseInts(String list) {
+        String[] parts = list.split(",");
+        int[] ints = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            ints[i] = Integer.parseInt(parts[i].trim());
+        }
+        return ints;
+    }
+
+    private static double[] parseDoubles(String list) {
+        String[] parts = list.split(",");
+        double[] doubles = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            doubles[i] = Double.parseDouble(parts[i].trim());
+        }
+        return doubles;
+    }
+}
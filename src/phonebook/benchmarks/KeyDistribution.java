@@ -0,0 +1,69 @@
+package phonebook.benchmarks;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * <p>{@link KeyDistribution} generates the keys that the benchmarks of this package insert. Every distribution
+ * returns <b>distinct</b> keys, reproducibly for a given seed.</p>
+ */
+public enum KeyDistribution {
+
+    /** Phone numbers such as &quot;301-555-0142&quot;: short, fixed-length keys that differ in a few digits. */
+    PHONE {
+        @Override
+        String key(Random rng) {
+            return String.format("%03d-%03d-%04d", 200 + rng.nextInt(800), rng.nextInt(1000), rng.nextInt(10000));
+        }
+    },
+
+    /** Full names such as &quot;Maria Lopez&quot;, drawn from small pools of first and last names. */
+    NAME {
+        @Override
+        String key(Random rng) {
+            return FIRST_NAMES[rng.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[rng.nextInt(LAST_NAMES.length)]
+                    + " " + (char) ('A' + rng.nextInt(26)) + rng.nextInt(100);
+        }
+    },
+
+    /**
+     * Keys that all share the <b>same</b> {@link String#hashCode()}, as a hash flooding attacker would send: every
+     * key is a concatenation of the blocks &quot;Aa&quot; and &quot;BB&quot;, whose hash codes are equal.
+     */
+    ADVERSARIAL {
+        @Override
+        String key(Random rng) {
+            StringBuilder key = new StringBuilder();
+            for (int i = 0; i < ADVERSARIAL_BLOCKS; i++) {
+                key.append(rng.nextBoolean() ? "Aa" : "BB");
+            }
+            return key.toString();
+        }
+    };
+
+    /* 2^16 distinct colliding keys are more than any table of ours can hold. */
+    private static final int ADVERSARIAL_BLOCKS = 16;
+
+    private static final String[] FIRST_NAMES = {"James", "Maria", "Wei", "Aisha", "Olga", "Juan", "Priya", "Kofi",
+            "Yuki", "Liam", "Fatima", "Noah", "Elena", "Omar", "Sofia", "Arjun"};
+    private static final String[] LAST_NAMES = {"Smith", "Lopez", "Chen", "Khan", "Ivanova", "Garcia", "Patel",
+            "Mensah", "Sato", "Murphy", "Haddad", "Brown", "Rossi", "Nguyen", "Silva", "Kim"};
+
+    abstract String key(Random rng);
+
+    /**
+     * Generates count distinct keys.
+     * @param count The number of keys.
+     * @param seed The seed of the generator.
+     * @return count distinct keys, in generation order.
+     */
+    public String[] keys(int count, long seed) {
+        Random rng = new Random(seed);
+        Set<String> keys = new LinkedHashSet<>();
+        while (keys.size() < count) {
+            keys.add(key(rng));
+        }
+        return keys.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,57 @@
+package phonebook.benchmarks;
+
+import phonebook.Phonebook;
+import phonebook.hashes.BidirectionalHashTable;
+import phonebook.hashes.CollisionResolver;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * <p>{@link MultiGetBenchmark} compares resolving a batch of phone numbers with a single call to
+ * {@link Phonebook#getOwnersOf(String[])} against looping over {@link Phonebook#getOwnerOf(String)}, for every
+ * pairing of {@link CollisionResolver}s and for the shared-entry mode. Three quarters of every batch are hits.
+ * Execute as Java application; the optional arguments are the number of entries and the batch size. Results are
+ * printed as CSV.</p>
+ *
+ * @see Phonebook#getOwnersOf(String[])
+ */
+public class MultiGetBenchmark {
+
+    private static final long SEED = 47;
+    private static final int DEFAULT_ENTRIES = 2000;
+    private static final int DEFAULT_BATCH = 1000;
+
+    public static void main(String[] args) {
+        int entries = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_ENTRIES;
+        int batchSize = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_BATCH;
+
+        Random rng = new Random(SEED);
+        String[] batch = new String[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            int n = rng.nextInt(entries + entries / 3);
+            batch[i] = String.format("%03d-%03d-%04d", n % 997, n % 991, n);
+        }
+
+        System.out.println("configuration,loopNsPerLookup,batchNsPerLookup");
+        for (CollisionResolver namesToNumbers : CollisionResolver.values()) {
+            for (CollisionResolver numbersToNames : CollisionResolver.values()) {
+                run(namesToNumbers + "/" + numbersToNames, new Phonebook(namesToNumbers, numbersToNames), entries, batch);
+            }
+        }
+        run("SHARED_ENTRY", new Phonebook(new BidirectionalHashTable()), entries, batch);
+    }
+
+    private static void run(String label, Phonebook pb, int entries, String[] batch) {
+        for (int n = 0; n < entries; n++) {
+            pb.addEntry("Name" + n, String.format("%03d-%03d-%04d", n % 997, n % 991, n));
+        }
+        double loop = BenchmarkRunner.nanosPerOp(() -> {
+            for (String number : batch) {
+                BenchmarkRunner.consume(pb.getOwnerOf(number));
+            }
+        }, batch.length);
+        double batched = BenchmarkRunner.nanosPerOp(() -> BenchmarkRunner.consume(pb.getOwnersOf(batch)), batch.length);
+        System.out.println(label + "," + String.format(Locale.ROOT, "%.1f,%.1f", loop, batched));
+    }
+}
@@ -0,0 +1,292 @@
+package phonebook.benchmarks;
+
+import phonebook.hashes.HashTable;
+import phonebook.hashes.LinearProbingHashTable;
+import phonebook.hashes.OrderedLinearProbingHashTable;
+import phonebook.hashes.QuadraticProbingHashTable;
+import phonebook.hashes.SeparateChainingHashTable;
+import phonebook.utils.TableStats;
+import phonebook.utils.TableStats.Operation;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * <p>{@link ProbeCostReport} checks the probe counts of every {@link HashTable} against theory. It fills each table to
+ * load factors from 0.1 to 0.9, looks up every stored key and as many missing keys, and compares the mean probes of
+ * the successful and unsuccessful lookups, as counted by {@link HashTable#snapshot()}, with Knuth's estimates
+ * (<i>The Art of Computer Programming</i>, vol. 3, section 6.4), at the load factor the table actually reached:</p>
+ *
+ * <ul>
+ *     <li><i>Linear Probing</i>: &frac12;(1 + 1/(1 - &alpha;)) and &frac12;(1 + 1/(1 - &alpha;)&sup2;).</li>
+ *     <li><i>Ordered Linear Probing</i>: &frac12;(1 + 1/(1 - &alpha;)) for both, since ordered chains end
+ *     unsuccessful searches as early as successful ones.</li>
+ *     <li><i>Quadratic Probing</i>, i.e secondary clustering: 1 - ln(1 - &alpha;) - &alpha;/2 and
+ *     1/(1 - &alpha;) - &alpha; - ln(1 - &alpha;).</li>
+ *     <li><i>Separate Chaining</i>: 1 + &alpha;/2 and 1 + &alpha;, counting the end of a list as a probe.</li>
+ * </ul>
+ *
+ * <p>Every openly addressed row also carries the estimates of <i>uniform probing</i>, (1/&alpha;) ln(1/(1 - &alpha;))
+ * and 1/(1 - &alpha;), the ideal that no open addressing scheme beats. Openly addressed tables are created with a
+ * resizing threshold of {@link #THRESHOLD} so that they can reach high load factors without growing. Since probe
+ * histograms stop at {@link TableStats#MAX_PROBES}, rows where some lookup reached that many probes are marked as
+ * capped: their measured means are underestimates.</p>
+ *
+ * <p>Execute as Java application. The optional arguments are the path of the CSV report, which goes to standard output
+ * by default, and the path of an SVG plot of measurements against estimates. Rows whose uncapped means deviate from the
+ * estimates by more than {@link #TOLERANCE} are listed on standard error, and make the exit status 1. Numbers are
+ * written with a decimal point whatever the default locale.</p>
+ *
+ * @see HashTableSuite
+ */
+public class ProbeCostReport {
+
+    /** The resizing threshold of the openly addressed tables under test. */
+    public static final double THRESHOLD = 0.95;
+    /** The relative deviation from the estimates above which a measurement is reported. */
+    public static final double TOLERANCE = 0.2;
+
+    private static final long SEED = 47;
+    private static final int TRIALS = 5;
+    private static final int MIN_CAPACITY = 1000;
+    private static final double[] LOAD_FACTORS = {0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9};
+
+    /* The tables under test, with their estimates of successful and unsuccessful probes. */
+    private static final Map<String, Subject> SUBJECTS = new LinkedHashMap<>();
+
+    static {
+        DoubleUnaryOperator linearHit = a -> 0.5 * (1 + 1 / (1 - a));
+        SUBJECTS.put("LinearProbingHashTable", new Subject(() -> new LinearProbingHashTable(false, THRESHOLD), true,
+                linearHit, a -> 0.5 * (1 + 1 / ((1 - a) * (1 - a)))));
+        SUBJECTS.put("OrderedLinearProbingHashTable", new Subject(() -> new OrderedLinearProbingHashTable(false, THRESHOLD),
+                true, linearHit, linearHit));
+        SUBJECTS.put("QuadraticProbingHashTable", new Subject(() -> new QuadraticProbingHashTable(false, THRESHOLD), true,
+                a -> 1 - Math.log(1 - a) - a / 2, a -> 1 / (1 - a) - a - Math.log(1 - a)));
+        SUBJECTS.put("SeparateChainingHashTable", new Subject(SeparateChainingHashTable::new, false,
+                a -> 1 + a / 2, a -> 1 + a));
+    }
+
+    private static class Subject {
+        private final Supplier<HashTable> factory;
+        private final boolean openAddressing;
+        private final DoubleUnaryOperator successful;
+        private final DoubleUnaryOperator unsuccessful;
+
+        Subject(Supplier<HashTable> factory, boolean openAddressing, DoubleUnaryOperator successful,
+                DoubleUnaryOperator unsuccessful) {
+            this.factory = factory;
+            this.openAddressing = openAddressing;
+            this.successful = successful;
+            this.unsuccessful = unsuccessful;
+        }
+    }
+
+    /**
+     * The measurements and estimates of one table at one load factor.
+     */
+    public static class Row {
+        public final String table;
+        public final double loadFactor;
+        public final double successful;
+        public final double successfulTheory;
+        public final double unsuccessful;
+        public final double unsuccessfulTheory;
+        public final boolean capped;
+
+        Row(String table, double loadFactor, double successful, double successfulTheory, double unsuccessful,
+            double unsuccessfulTheory, boolean capped) {
+            this.table = table;
+            this.loadFactor = loadFactor;
+            this.successful = successful;
+            this.successfulTheory = successfulTheory;
+            this.unsuccessful = unsuccessful;
+            this.unsuccessfulTheory = unsuccessfulTheory;
+            this.capped = capped;
+        }
+
+        /**
+         * @return {@code true} if and only if this is not capped and either mean deviates from its estimate by more
+         * than {@link #TOLERANCE}.
+         */
+        public boolean deviates() {
+            return !capped && (Math.abs(successful / successfulTheory - 1) > TOLERANCE
+                    || Math.abs(unsuccessful / unsuccessfulTheory - 1) > TOLERANCE);
+        }
+    }
+
+    public static void main(String[] args) throws FileNotFoundException {
+        PrintStream out = (args.length > 0) ? new PrintStream(args[0]) : System.out;
+        List<Row> rows = measureAll();
+
+        out.println("table,loadFactor,successful,successfulTheory,successfulUniform,"
+                + "unsuccessful,unsuccessfulTheory,unsuccessfulUniform,capped");
+        boolean deviated = false;
+        for (Row row : rows) {
+            boolean uniform = SUBJECTS.get(row.table).openAddressing;
+            out.println(row.table + "," + String.format(Locale.ROOT, "%.3f,%.3f,%.3f,", row.loadFactor,
+                    row.successful, row.successfulTheory)
+                    + (uniform ? String.format(Locale.ROOT, "%.3f", uniformHit(row.loadFactor)) : "") + ","
+                    + String.format(Locale.ROOT, "%.3f,%.3f,", row.unsuccessful, row.unsuccessfulTheory)
+                    + (uniform ? String.format(Locale.ROOT, "%.3f", uniformMiss(row.loadFactor)) : "") + ","
+                    + row.capped);
+            if (row.deviates()) {
+                deviated = true;
+                System.err.println(String.format(Locale.ROOT, "Deviation: %s at load %.3f: %.2f vs %.2f successful, "
+                        + "%.2f vs %.2f unsuccessful probes.", row.table, row.loadFactor, row.successful,
+                        row.successfulTheory, row.unsuccessful, row.unsuccessfulTheory));
+            }
+        }
+        out.flush();
+        if (args.length > 1) {
+            try (PrintStream svg = new PrintStream(args[1])) {
+                plot(rows, svg);
+            }
+        }
+        if (deviated) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Measures every table at every load factor.
+     * @return One {@link Row} per table and load factor, grouped by table.
+     */
+    public static List<Row> measureAll() {
+        List<Row> rows = new ArrayList<>();
+        for (Map.Entry<String, Subject> subject : SUBJECTS.entrySet()) {
+            for (double loadFactor : LOAD_FACTORS) {
+                rows.add(measure(subject.getKey(), subject.getValue(), loadFactor));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Measures one table at one load factor.
+     * @param table The simple class name of the table, as in the {@code table} column of the report.
+     * @param loadFactor The load factor to fill the table to.
+     * @return The {@link Row} of table at loadFactor.
+     * @throws IllegalArgumentException if table is not one of the tables of the report.
+     */
+    public static Row measure(String table, double loadFactor) {
+        Subject subject = SUBJECTS.get(table);
+        if (subject == null)
+            throw new IllegalArgumentException("Provided table " + table + ", which is not one of " + SUBJECTS.keySet()
+                    + ".");
+        return measure(table, subject, loadFactor);
+    }
+
+    /* Averages TRIALS fillings of a fresh table; every trial draws different keys. */
+    private static Row measure(String name, Subject subject, double loadFactor) {
+        double load = 0;
+        long hits = 0;
+        long hitProbes = 0;
+        long misses = 0;
+        long missProbes = 0;
+        boolean capped = false;
+        for (int trial = 0; trial < TRIALS; trial++) {
+            HashTable table = subject.factory.get();
+            table.ensureCapacity(MIN_CAPACITY);
+            int size = (int) Math.round(loadFactor * table.capacity());
+            String[] keys = KeyDistribution.PHONE.keys(2 * size, SEED + trial);
+            for (int i = 0; i < size; i++) {
+                table.put(keys[i], keys[i]);
+            }
+            for (String key : keys) {
+                BenchmarkRunner.consume(table.get(key));
+            }
+            TableStats stats = table.snapshot();
+            load += stats.getLoadFactor();
+            hits += stats.count(Operation.GET_HIT);
+            hitProbes += Math.round(stats.meanProbes(Operation.GET_HIT) * stats.count(Operation.GET_HIT));
+            misses += stats.count(Operation.GET_MISS);
+            missProbes += Math.round(stats.meanProbes(Operation.GET_MISS) * stats.count(Operation.GET_MISS));
+            capped |= stats.maxProbes(Operation.GET_HIT) == TableStats.MAX_PROBES
+                    || stats.maxProbes(Operation.GET_MISS) == TableStats.MAX_PROBES;
+        }
+        load /= TRIALS;
+        return new Row(name, load, (double) hitProbes / hits, subject.successful.applyAsDouble(load),
+                (double) missProbes / misses, subject.unsuccessful.applyAsDouble(load), capped);
+    }
+
+    private static double uniformHit(double a) {
+        return (1 / a) * Math.log(1 / (1 - a));
+    }
+
+    private static double uniformMiss(double a) {
+        return 1 / (1 - a);
+    }
+
+    private static final int PANEL = 300;
+    private static final int MARGIN = 40;
+    private static final double MAX_PLOTTED = TableStats.MAX_PROBES;
+
+    /* One panel per table: probes on a logarithmic axis against the load factor. Estimates are lines, measurements
+     * are dots; successful lookups are blue, unsuccessful ones red and uniform probing grey. */
+    private static void plot(List<Row> rows, PrintStream svg) {
+        int width = SUBJECTS.size() * (PANEL + MARGIN) + MARGIN;
+        int height = PANEL + 2 * MARGIN;
+        svg.println("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width + "\" height=\"" + height
+                + "\" font-family=\"sans-serif\" font-size=\"11\">");
+        int panel = 0;
+        for (Map.Entry<String, Subject> subject : SUBJECTS.entrySet()) {
+            int left = MARGIN + panel * (PANEL + MARGIN);
+            svg.println("<g transform=\"translate(" + left + "," + MARGIN + ")\">");
+            svg.println("<rect width=\"" + PANEL + "\" height=\"" + PANEL + "\" fill=\"none\" stroke=\"black\"/>");
+            svg.println("<text x=\"0\" y=\"-8\">" + subject.getKey() + "</text>");
+            for (int probes = 1; probes <= MAX_PLOTTED; probes *= 2) {
+                svg.println("<text x=\"-4\" y=\"" + y(probes) + "\" text-anchor=\"end\">" + probes + "</text>");
+            }
+            for (int tenth = 0; tenth <= 10; tenth += 5) {
+                svg.println("<text x=\"" + x(tenth / 10.0) + "\" y=\"" + (PANEL + 14) + "\" text-anchor=\"middle\">"
+                        + (tenth / 10.0) + "</text>");
+            }
+            if (subject.getValue().openAddressing) {
+                curve(svg, ProbeCostReport::uniformHit, "grey", true);
+                curve(svg, ProbeCostReport::uniformMiss, "grey", true);
+            }
+            curve(svg, subject.getValue().successful, "blue", false);
+            curve(svg, subject.getValue().unsuccessful, "red", false);
+            for (Row row : rows) {
+                if (row.table.equals(subject.getKey())) {
+                    dot(svg, row.loadFactor, row.successful, "blue");
+                    dot(svg, row.loadFactor, row.unsuccessful, "red");
+                }
+            }
+            svg.println("</g>");
+            panel++;
+        }
+        svg.println("</svg>");
+    }
+
+    private static void curve(PrintStream svg, DoubleUnaryOperator estimate, String color, boolean dashed) {
+        StringBuilder points = new StringBuilder();
+        for (int i = 1; i <= 95; i++) {
+            double a = i / 100.0;
+            points.append(String.format(Locale.ROOT, "%.1f,%.1f ", x(a),
+                    y(Math.min(estimate.applyAsDouble(a), MAX_PLOTTED))));
+        }
+        svg.println("<polyline fill=\"none\" stroke=\"" + color + "\"" + (dashed ? " stroke-dasharray=\"4,3\"" : "")
+                + " points=\"" + points.toString().trim() + "\"/>");
+    }
+
+    private static void dot(PrintStream svg, double a, double probes, String color) {
+        svg.println(String.format(Locale.ROOT, "<circle cx=\"%.1f\" cy=\"%.1f\" r=\"3\" fill=\"%s\"/>", x(a),
+                y(Math.min(probes, MAX_PLOTTED)), color));
+    }
+
+    private static double x(double loadFactor) {
+        return loadFactor * PANEL;
+    }
+
+    private static double y(double probes) {
+        return PANEL * (1 - Math.log(probes) / Math.log(MAX_PLOTTED));
+    }
+}
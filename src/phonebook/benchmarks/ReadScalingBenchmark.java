@@ -0,0 +1,179 @@
+package phonebook.benchmarks;
+
+import phonebook.hashes.ConcurrentLinearProbingHashTable;
+import phonebook.hashes.ConcurrentSeparateChainingHashTable;
+import phonebook.hashes.HashTable;
+import phonebook.hashes.LinearProbingHashTable;
+import phonebook.utils.TableStats;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * <p>{@link ReadScalingBenchmark} measures how the throughput of a read-dominated workload, 99&#37; {@code get} and
+ * 1&#37; {@code upsert} over a filled table, grows with the number of threads. It compares a
+ * {@link LinearProbingHashTable} behind a single lock, the way {@link ReplayHarness} shares a
+ * {@link phonebook.Phonebook}, with the thread-safe tables, which need no external lock. A table scales linearly when
+ * its speedup over one thread equals the number of threads, up to the number of available cores.</p>
+ *
+ * <p>Execute as Java application. The optional arguments are a comma-separated list of thread counts, the number of
+ * keys and the number of operations per thread. Results are printed as CSV with the columns
+ * {@code table,threads,opsPerSec,speedup}.</p>
+ *
+ * @see ConcurrentLinearProbingHashTable
+ * @see ConcurrentSeparateChainingHashTable
+ */
+public class ReadScalingBenchmark {
+
+    private static final long SEED = 47;
+    private static final int DEFAULT_KEYS = 2000;
+    private static final int DEFAULT_OPS = 1_000_000;
+    private static final int WRITE_PERCENT = 1;
+
+    private static final Map<String, Supplier<HashTable>> TABLES = new LinkedHashMap<>();
+
+    static {
+        TABLES.put("LinearProbingHashTable/locked", () -> new LockedTable(new LinearProbingHashTable(false)));
+        TABLES.put("ConcurrentSeparateChainingHashTable", ConcurrentSeparateChainingHashTable::new);
+        TABLES.put("ConcurrentLinearProbingHashTable", ConcurrentLinearProbingHashTable::new);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String threadCounts = (args.length > 0) ? args[0]
+                : "1,2,4," + Runtime.getRuntime().availableProcessors();
+        int keyCount = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_KEYS;
+        int ops = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_OPS;
+        String[] keys = KeyDistribution.PHONE.keys(keyCount, SEED);
+
+        System.out.println("table,threads,opsPerSec,speedup");
+        for (Map.Entry<String, Supplier<HashTable>> table : TABLES.entrySet()) {
+            double single = 0;
+            for (String threads : threadCounts.split(",")) {
+                int count = Integer.parseInt(threads.trim());
+                HashTable filled = table.getValue().get();
+                for (String key : keys) {
+                    filled.put(key, key);
+                }
+                run(filled, keys, 1, ops / 10); // warm-up
+                double opsPerSec = run(filled, keys, count, ops);
+                if (single == 0) {
+                    single = opsPerSec / count;
+                }
+                System.out.println(table.getKey() + "," + count + ","
+                        + String.format(Locale.ROOT, "%.0f,%.2f", opsPerSec, opsPerSec / single));
+            }
+        }
+    }
+
+    /* Runs ops operations on each of threads threads, and returns the total throughput. */
+    private static double run(HashTable table, String[] keys, int threads, int ops) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = SEED + t;
+            workers.add(new Thread(() -> {
+                Random rng = new Random(seed);
+                for (int i = 0; i < ops; i++) {
+                    String key = keys[rng.nextInt(keys.length)];
+                    if (rng.nextInt(100) < WRITE_PERCENT) {
+                        BenchmarkRunner.consume(table.upsert(key, key));
+                    } else {
+                        BenchmarkRunner.consume(table.get(key));
+                    }
+                }
+            }));
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return (double) threads * ops * 1e9 / (System.nanoTime() - start);
+    }
+
+    /* Serializes every operation of a table on a single lock. */
+    private static final class LockedTable implements HashTable {
+
+        private final HashTable table;
+
+        LockedTable(HashTable table) {
+            this.table = table;
+        }
+
+        @Override
+        public synchronized String put(String key, String value) {
+            return table.put(key, value);
+        }
+
+        @Override
+        public synchronized String upsert(String key, String value) {
+            return table.upsert(key, value);
+        }
+
+        @Override
+        public synchronized String get(String key) {
+            return table.get(key);
+        }
+
+        @Override
+        public synchronized String remove(String key) {
+            return table.remove(key);
+        }
+
+        @Override
+        public synchronized boolean containsKey(String key) {
+            return table.containsKey(key);
+        }
+
+        @Override
+        public synchronized boolean containsValue(String value) {
+            return table.containsValue(value);
+        }
+
+        @Override
+        public synchronized int size() {
+            return table.size();
+        }
+
+        @Override
+        public synchronized int capacity() {
+            return table.capacity();
+        }
+
+        @Override
+        public synchronized TableStats snapshot() {
+            return table.snapshot();
+        }
+
+        @Override
+        public synchronized int tombstones() {
+            return table.tombstones();
+        }
+
+        @Override
+        public synchronized int resizes() {
+            return table.resizes();
+        }
+
+        @Override
+        public synchronized int primeIndex() {
+            return table.primeIndex();
+        }
+
+        @Override
+        public synchronized <T> Spliterator<T> spliterator(BiFunction<String, String, T> record) {
+            // traverses a copy, so that concurrent writers never wait for a slow consumer
+            List<T> records = new ArrayList<>();
+            table.spliterator(record).forEachRemaining(records::add);
+            return records.spliterator();
+        }
+    }
+}
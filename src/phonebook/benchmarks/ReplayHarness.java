@@ -0,0 +1,206 @@
+package phonebook.benchmarks;
+
+import phonebook.Phonebook;
+import phonebook.WorkloadRecorder;
+import phonebook.WorkloadTrace;
+import phonebook.hashes.BidirectionalHashTable;
+import phonebook.hashes.CollisionResolver;
+import phonebook.utils.LatencyHistogram;
+import phonebook.utils.LatencyRecorder;
+import phonebook.utils.NoMorePrimesException;
+import phonebook.utils.TableStats;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * <p>{@link ReplayHarness} replays a workload trace, recorded with {@link WorkloadRecorder}, against a fresh
+ * {@link Phonebook} of every configuration: every pairing of {@link CollisionResolver}s, the thread-safe mode of every
+ * pairing of thread-safe {@link CollisionResolver}s, the shared-entry mode and the copy-on-write mode. It reports,
+ * per configuration, the throughput, the latency percentiles of single operations and the mean and worst probe counts
+ * of the underlying tables, as CSV.</p>
+ *
+ * <p>With a concurrency above 1, the events are dealt round-robin to that many threads, which all replay against
+ * the same {@link Phonebook}, synchronizing on it unless it is {@link Phonebook#isThreadSafe() thread-safe}. The
+ * order of the events of different threads is then no longer the recorded one, but the mix of operations is.
+ * Recorded timestamps are ignored: events are replayed as fast as possible.</p>
+ *
+ * <p>Execute as Java application; the arguments are the path of the trace and, optionally, the concurrency.</p>
+ *
+ * @see WorkloadTrace
+ */
+public class ReplayHarness {
+
+    private static final CollisionResolver[] THREAD_SAFE = {
+            CollisionResolver.CONCURRENT_SEPARATE_CHAINING, CollisionResolver.CONCURRENT_LINEAR_PROBING};
+    private static final int STRIPES = 64;
+
+    private static final int WARMUPS = 2;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: ReplayHarness <trace> [concurrency]");
+            return;
+        }
+        WorkloadTrace trace;
+        try (InputStream in = new FileInputStream(args[0])) {
+            trace = WorkloadTrace.read(in);
+        }
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+
+        System.out.println("configuration,threads,ops,opsPerSec,p50Ns,p99Ns,p999Ns,maxNs,meanProbes,longestChain");
+        for (CollisionResolver namesToNumbers : CollisionResolver.values()) {
+            for (CollisionResolver numbersToNames : CollisionResolver.values()) {
+                run(() -> new Phonebook(namesToNumbers, numbersToNames), trace, threads);
+            }
+        }
+        for (CollisionResolver namesToNumbers : THREAD_SAFE) {
+            for (CollisionResolver numbersToNames : THREAD_SAFE) {
+                run(() -> new Phonebook(namesToNumbers, numbersToNames, STRIPES), trace, threads);
+            }
+        }
+        run(() -> new Phonebook(new BidirectionalHashTable()), trace, threads);
+        run(Phonebook::copyOnWrite, trace, threads);
+    }
+
+    /**
+     * The measurements of one replay.
+     */
+    public static class Result {
+        /** The configuration of the {@link Phonebook} replayed against. */
+        public final String configuration;
+        /** The number of replaying threads. */
+        public final int threads;
+        /** The number of operations replayed. */
+        public final int ops;
+        /** Operations per second, over all threads. */
+        public final double opsPerSec;
+        /** The latencies of all operations. */
+        public final LatencyHistogram latency;
+        /** The mean probes of all table operations, or {@link Double#NaN} without probe statistics. */
+        public final double meanProbes;
+        /** The longest chain of any underlying table. */
+        public final int longestChain;
+        /** The {@link Phonebook} at the end of the replay. */
+        public final Phonebook phonebook;
+
+        Result(Phonebook phonebook, int threads, int ops, double opsPerSec, LatencyHistogram latency,
+               double meanProbes, int longestChain) {
+            this.configuration = phonebook.getConfiguration();
+            this.phonebook = phonebook;
+            this.threads = threads;
+            this.ops = ops;
+            this.opsPerSec = opsPerSec;
+            this.latency = latency;
+            this.meanProbes = meanProbes;
+            this.longestChain = longestChain;
+        }
+    }
+
+    /**
+     * Replays trace against fresh {@link Phonebook}s from factory, and prints one CSV row for the last replay.
+     * @param factory Creates an empty {@link Phonebook} of the configuration to evaluate.
+     * @param trace The workload.
+     * @param threads The number of replaying threads.
+     * @throws InterruptedException if interrupted while waiting for the replaying threads.
+     */
+    public static void run(Supplier<Phonebook> factory, WorkloadTrace trace, int threads) throws InterruptedException {
+        try {
+            Result result = measure(factory, trace, threads);
+            boolean probed = !Double.isNaN(result.meanProbes);
+            System.out.println(result.configuration + "," + threads + "," + result.ops + ","
+                    + String.format(Locale.ROOT, "%.0f", result.opsPerSec) + "," + result.latency.percentile(50) + ","
+                    + result.latency.percentile(99) + "," + result.latency.percentile(99.9) + "," + result.latency.max()
+                    + "," + (probed ? String.format(Locale.ROOT, "%.2f", result.meanProbes) : "") + ","
+                    + (probed ? result.longestChain : ""));
+        } catch (NoMorePrimesException e) {
+            System.err.println("Skipped " + factory.get().getConfiguration() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replays trace against fresh {@link Phonebook}s from factory: a few times to warm up, then once more to measure.
+     * @param factory Creates an empty {@link Phonebook} of the configuration to evaluate.
+     * @param trace The workload.
+     * @param threads The number of replaying threads.
+     * @return The measurements of the last replay.
+     * @throws InterruptedException if interrupted while waiting for the replaying threads.
+     * @throws NoMorePrimesException if the workload outgrows the tables of the configuration.
+     */
+    public static Result measure(Supplier<Phonebook> factory, WorkloadTrace trace, int threads)
+            throws InterruptedException {
+        for (int i = 0; i < WARMUPS; i++) {
+            replay(factory.get(), trace, threads, new LatencyRecorder<>(Phonebook.Operation.class));
+        }
+        Phonebook pb = factory.get();
+        LatencyRecorder<Phonebook.Operation> latencies = new LatencyRecorder<>(Phonebook.Operation.class);
+        long elapsed = replay(pb, trace, threads, latencies);
+
+        LatencyHistogram all = new LatencyHistogram();
+        for (LatencyHistogram histogram : latencies.snapshot().values()) {
+            all.add(histogram);
+        }
+        long probes = 0;
+        long ops = 0;
+        int longest = 0;
+        for (TableStats stats : pb.tableStats().values()) {
+            for (TableStats.Operation op : TableStats.Operation.values()) {
+                probes += Math.round(stats.meanProbes(op) * stats.count(op));
+                ops += stats.count(op);
+            }
+            longest = Math.max(longest, stats.getLongestChain());
+        }
+        return new Result(pb, threads, trace.size(), trace.size() * 1e9 / elapsed, all,
+                (ops == 0) ? Double.NaN : (double) probes / ops, longest);
+    }
+
+    /* Returns the wall-clock time of the replay, in nanoseconds. */
+    private static long replay(Phonebook pb, WorkloadTrace trace, int threads,
+                               LatencyRecorder<Phonebook.Operation> latencies) throws InterruptedException {
+        List<WorkloadTrace.Event> events = trace.events();
+        List<Thread> workers = new ArrayList<>();
+        RuntimeException[] failure = new RuntimeException[1];
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            workers.add(new Thread(() -> {
+                try {
+                    for (int i = first; i < events.size(); i += threads) {
+                        WorkloadTrace.Event event = events.get(i);
+                        long start = System.nanoTime();
+                        if (pb.isThreadSafe()) {
+                            BenchmarkRunner.consume(event.applyTo(pb));
+                        } else {
+                            synchronized (pb) {
+                                BenchmarkRunner.consume(event.applyTo(pb));
+                            }
+                        }
+                        latencies.record(event.getOperation(), System.nanoTime() - start);
+                    }
+                } catch (RuntimeException e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            }));
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        return elapsed;
+    }
+}
@@ -0,0 +1,289 @@
+package phonebook.benchmarks;
+
+import phonebook.Phonebook;
+import phonebook.WorkloadTrace;
+import phonebook.hashes.CollisionResolver;
+import phonebook.hashes.ConcurrentLinearProbingHashTable;
+import phonebook.hashes.ConcurrentSeparateChainingHashTable;
+import phonebook.hashes.SeparateChainingHashTable;
+import phonebook.utils.NoMorePrimesException;
+import phonebook.utils.TableStats;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * <p>{@link ResolverAdvisor} recommends a pair of {@link CollisionResolver}s for a workload. It replays the workload
+ * against every pairing, each with the deletion mode and load factor that {@link Phonebook} gives its tables, and
+ * measures three costs per pairing: the mean probes per table operation, the estimated memory per entry and the
+ * mean latency per operation. Every cost is divided by the best value of any pairing, and a pairing's <b>score</b>
+ * is the mean of its three ratios, so that 1.0 means best in every respect. The pairing with the lowest score is
+ * recommended.</p>
+ *
+ * <p>The workload is either a trace recorded with {@link phonebook.WorkloadRecorder}, or a sample of
+ * &lt; name, number &gt; pairs together with an operation mix, from which a synthetic workload is drawn: the sample
+ * is loaded first, then the mix is applied to random sample pairs.</p>
+ *
+ * <p>Memory is estimated from the capacity and size of the tables at the end of the replay, assuming compressed
+ * references: 4 bytes per array cell, 24 bytes per {@link phonebook.utils.KVPair} and, for separate chaining,
+ * 32 bytes per list and 24 bytes per list node. Concurrent separate chaining keeps each record in a single node of 32
+ * bytes, and concurrent linear probing keeps keys and values in two arrays, without any pairs. The key and value
+ * {@link String}s are the same for every pairing and are left out.</p>
+ *
+ * <p>Execute as Java application, with either {@code --trace <file>} or
+ * {@code --sample <file> [--mix add:20,delete:10,getNumber:35,getOwner:35] [--ops <count>]}. The sample file has
+ * one {@code name,number} pair per line. The ranking is printed as CSV, followed by the recommendation as
+ * properties that deployment settings can include.</p>
+ *
+ * @see ReplayHarness
+ */
+public class ResolverAdvisor {
+
+    private static final long SEED = 47;
+    private static final String DEFAULT_MIX = "add:20,delete:10,getNumber:35,getOwner:35";
+    private static final int DEFAULT_OPS = 20000;
+
+    private static final int REFERENCE_BYTES = 4;
+    private static final int PAIR_BYTES = 24;
+    private static final int LIST_BYTES = 32;
+    private static final int NODE_BYTES = 24;
+    private static final int CONCURRENT_NODE_BYTES = 32;
+
+    /**
+     * The costs of one pairing of {@link CollisionResolver}s.
+     */
+    public static class Candidate {
+        private final CollisionResolver namesToNumbers;
+        private final CollisionResolver numbersToNames;
+        private final double meanProbes;
+        private final double bytesPerEntry;
+        private final double nanosPerOp;
+        private double score;
+
+        Candidate(CollisionResolver namesToNumbers, CollisionResolver numbersToNames, double meanProbes,
+                  double bytesPerEntry, double nanosPerOp) {
+            this.namesToNumbers = namesToNumbers;
+            this.numbersToNames = numbersToNames;
+            this.meanProbes = meanProbes;
+            this.bytesPerEntry = bytesPerEntry;
+            this.nanosPerOp = nanosPerOp;
+        }
+
+        public CollisionResolver getNamesToNumbers() {
+            return namesToNumbers;
+        }
+
+        public CollisionResolver getNumbersToNames() {
+            return numbersToNames;
+        }
+
+        public double getMeanProbes() {
+            return meanProbes;
+        }
+
+        public double getBytesPerEntry() {
+            return bytesPerEntry;
+        }
+
+        public double getNanosPerOp() {
+            return nanosPerOp;
+        }
+
+        /**
+         * @return The mean of the three costs, each relative to the best candidate; 1.0 is ideal.
+         */
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return namesToNumbers + "/" + numbersToNames + String.format(Locale.ROOT, ",%.3f,%.2f,%.1f,%.1f", score,
+                    meanProbes, bytesPerEntry, nanosPerOp);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String tracePath = option(args, "--trace", null);
+        String samplePath = option(args, "--sample", null);
+        WorkloadTrace trace;
+        if (tracePath != null) {
+            try (InputStream in = new FileInputStream(tracePath)) {
+                trace = WorkloadTrace.read(in);
+            }
+        } else if (samplePath != null) {
+            trace = synthesize(readSample(samplePath), option(args, "--mix", DEFAULT_MIX),
+                    Integer.parseInt(option(args, "--ops", Integer.toString(DEFAULT_OPS))), SEED);
+        } else {
+            System.err.println("Usage: ResolverAdvisor --trace <file> | --sample <file> [--mix <mix>] [--ops <count>]");
+            return;
+        }
+
+        List<Candidate> ranking = rank(trace);
+        System.out.println("configuration,score,meanProbes,bytesPerEntry,nsPerOp");
+        for (Candidate candidate : ranking) {
+            System.out.println(candidate);
+        }
+        if (!ranking.isEmpty()) {
+            System.out.println();
+            System.out.println("phonebook.namesToNumbers=" + ranking.get(0).getNamesToNumbers());
+            System.out.println("phonebook.numbersToNames=" + ranking.get(0).getNumbersToNames());
+        }
+    }
+
+    /**
+     * Replays trace against every pairing of {@link CollisionResolver}s and ranks them.
+     * @param trace The workload.
+     * @return The pairings that could hold the workload, best first.
+     * @throws InterruptedException if interrupted while replaying.
+     */
+    public static List<Candidate> rank(WorkloadTrace trace) throws InterruptedException {
+        List<Candidate> candidates = new ArrayList<>();
+        for (CollisionResolver namesToNumbers : CollisionResolver.values()) {
+            for (CollisionResolver numbersToNames : CollisionResolver.values()) {
+                ReplayHarness.Result result;
+                try {
+                    result = ReplayHarness.measure(() -> new Phonebook(namesToNumbers, numbersToNames), trace, 1);
+                } catch (NoMorePrimesException e) {
+                    System.err.println("Skipped " + namesToNumbers + "/" + numbersToNames + ": " + e.getMessage());
+                    continue;
+                }
+                candidates.add(new Candidate(namesToNumbers, numbersToNames,
+                        Double.isNaN(result.meanProbes) ? 0 : result.meanProbes,
+                        bytesPerEntry(result.phonebook), 1e9 / result.opsPerSec));
+            }
+        }
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        double probes = candidates.stream().mapToDouble(Candidate::getMeanProbes).min().getAsDouble();
+        double bytes = candidates.stream().mapToDouble(Candidate::getBytesPerEntry).min().getAsDouble();
+        double nanos = candidates.stream().mapToDouble(Candidate::getNanosPerOp).min().getAsDouble();
+        for (Candidate candidate : candidates) {
+            candidate.score = (ratio(candidate.meanProbes, probes) + ratio(candidate.bytesPerEntry, bytes)
+                    + ratio(candidate.nanosPerOp, nanos)) / 3;
+        }
+        candidates.sort(Comparator.comparingDouble(Candidate::getScore));
+        return candidates;
+    }
+
+    /**
+     * Draws a synthetic workload from a sample of entries: every sample entry is added first, then ops operations
+     * are drawn according to mix, on random sample entries. Deletions target existing entries.
+     * @param sample The &lt; name, number &gt; pairs, as two-element arrays.
+     * @param mix The operation mix, as comma-separated {@code operation:weight} pairs, where operation is one of
+     *            {@code add}, {@code delete}, {@code getNumber} and {@code getOwner}.
+     * @param ops The number of operations to draw after loading the sample.
+     * @param seed The seed of the draw.
+     * @return The workload.
+     * @throws IllegalArgumentException if sample is empty or mix is malformed.
+     */
+    public static WorkloadTrace synthesize(List<String[]> sample, String mix, int ops, long seed) {
+        if (sample.isEmpty())
+            throw new IllegalArgumentException("Provided an empty sample.");
+        Phonebook.Operation[] kinds = {Phonebook.Operation.ADD_ENTRY, Phonebook.Operation.DELETE_ENTRY,
+                Phonebook.Operation.GET_NUMBER_OF, Phonebook.Operation.GET_OWNER_OF};
+        String[] names = {"add", "delete", "getNumber", "getOwner"};
+        double[] weights = new double[kinds.length];
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            int kind = List.of(names).indexOf(pair[0].trim());
+            if (pair.length != 2 || kind < 0)
+                throw new IllegalArgumentException("Malformed operation mix: " + mix);
+            weights[kind] = Double.parseDouble(pair[1].trim());
+        }
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        if (total <= 0)
+            throw new IllegalArgumentException("Malformed operation mix: " + mix);
+
+        Random rng = new Random(seed);
+        List<WorkloadTrace.Event> events = new ArrayList<>();
+        for (String[] entry : sample) {
+            events.add(new WorkloadTrace.Event(Phonebook.Operation.ADD_ENTRY, entry[0], entry[1], 0));
+        }
+        for (int i = 0; i < ops; i++) {
+            double draw = rng.nextDouble() * total;
+            int kind = 0;
+            while (kind < kinds.length - 1 && draw >= weights[kind]) {
+                draw -= weights[kind];
+                kind++;
+            }
+            String[] entry = sample.get(rng.nextInt(sample.size()));
+            switch (kinds[kind]) {
+                case GET_NUMBER_OF:
+                    events.add(new WorkloadTrace.Event(kinds[kind], entry[0], null, 0));
+                    break;
+                case GET_OWNER_OF:
+                    events.add(new WorkloadTrace.Event(kinds[kind], entry[1], null, 0));
+                    break;
+                default:
+                    events.add(new WorkloadTrace.Event(kinds[kind], entry[0], entry[1], 0));
+            }
+        }
+        return WorkloadTrace.of(events);
+    }
+
+    /* Estimated bytes of the table structures per entry; see the class comment for the assumptions. */
+    private static double bytesPerEntry(Phonebook pb) {
+        if (pb.size() == 0) {
+            return 0;
+        }
+        Map<String, TableStats> tables = pb.tableStats();
+        long bytes = 0;
+        for (TableStats stats : tables.values()) {
+            bytes += (long) stats.getCapacity() * REFERENCE_BYTES;
+            if (stats.getTable().equals(ConcurrentSeparateChainingHashTable.class.getSimpleName())) {
+                bytes += (long) stats.getSize() * CONCURRENT_NODE_BYTES;
+                continue;
+            }
+            if (stats.getTable().equals(ConcurrentLinearProbingHashTable.class.getSimpleName())) {
+                bytes += (long) stats.getCapacity() * REFERENCE_BYTES;
+                continue;
+            }
+            bytes += (long) stats.getSize() * PAIR_BYTES;
+            if (stats.getTable().equals(SeparateChainingHashTable.class.getSimpleName())) {
+                bytes += (long) stats.getCapacity() * LIST_BYTES + (long) stats.getSize() * NODE_BYTES;
+            }
+        }
+        return (double) bytes / pb.size();
+    }
+
+    private static double ratio(double value, double best) {
+        return (best == 0) ? (value == 0 ? 1 : 1 + value) : value / best;
+    }
+
+    private static List<String[]> readSample(String path) throws IOException {
+        List<String[]> sample = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comma = line.lastIndexOf(',');
+                if (comma > 0) {
+                    sample.add(new String[]{line.substring(0, comma).trim(), line.substring(comma + 1).trim()});
+                }
+            }
+        }
+        return sample;
+    }
+
+    private static String option(String[] args, String name, String fallback) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,414 @@
+package phonebook.hashes;
+
+import phonebook.utils.KVPair;
+import phonebook.utils.KVPairList;
+import phonebook.utils.TableStats;
+import phonebook.utils.TableStats.Operation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+
+/**
+ * <p>{@link AdaptiveHashTable} is a {@link HashTable} which changes its {@link CollisionResolver} at runtime. It stores
+ * its records in an ordinary {@link HashTable} of one of the four single-threaded collision resolution techniques, and
+ * watches the probe statistics of that table (see {@link HashTable#snapshot()}). Once every {@link #CHECK_INTERVAL}
+ * operations or so, it looks at the operations served since the last check and decides whether another layout would
+ * serve the workload better:</p>
+ *
+ * <ol>
+ *     <li>Openly addressed tables with more than {@link #MAX_TOMBSTONE_RATIO} of their cells taken by tombstones move
+ *     to <i>Separate Chaining</i>, which never leaves tombstones behind.</li>
+ *     <li><i>Linear Probing</i> whose unsuccessful operations take more than {@link #MAX_MEAN_PROBES} probes on average
+ *     suffers from primary clustering. It moves to <i>Ordered Linear Probing</i> if most lookups miss, since ordered
+ *     chains make misses fail faster, and to <i>Quadratic Probing</i> otherwise.</li>
+ *     <li><i>Ordered Linear Probing</i> whose successful operations take more than {@link #MAX_MEAN_PROBES} probes on
+ *     average moves to <i>Quadratic Probing</i>.</li>
+ *     <li><i>Quadratic Probing</i> that still takes more than {@link #MAX_MEAN_PROBES} probes on average suffers from
+ *     secondary clustering, i.e keys with equal hashes, and moves to <i>Separate Chaining</i>.</li>
+ *     <li><i>Separate Chaining</i>, which never grows on its own, migrates to a larger <i>Separate Chaining</i> table
+ *     once it holds more records than cells and its lists take more than {@link #MAX_MEAN_PROBES} probes on average.
+ *     With short lists and hardly any deletions, it moves back to <i>Linear Probing</i>, whose cache locality is
+ *     better.</li>
+ * </ol>
+ *
+ * <p>Migration is <b>incremental</b>: every operation on this moves the records of a few cells of the old table to
+ * the new one, in cell order, so that no operation ever pays for rehashing the whole table. Reads are served
+ * throughout: while migrating, a key lives in <b>exactly one</b> of the two tables; lookups try the new table first,
+ * and writes remove the key from the old table before writing it to the new one. Openly addressed tables are created
+ * with soft deletion, so that removing records from the old table never moves the records that the migration has yet
+ * to visit. Bulk operations finish a pending migration first.</p>
+ *
+ * <p>Like every other {@link HashTable}, this class is <b>not</b> thread-safe, so migration happens on the threads
+ * that call it rather than in a thread of its own.</p>
+ *
+ * @see CollisionResolver
+ * @see TableStats
+ */
+public class AdaptiveHashTable implements HashTable {
+
+    /** The least number of operations between two checks of the probe statistics. */
+    public static final int CHECK_INTERVAL = 1024;
+    /** The fewest operations a check needs to see before it decides anything. */
+    public static final int MIN_SAMPLE = 256;
+    /** The mean number of probes above which a layout is considered clustered. */
+    public static final double MAX_MEAN_PROBES = 4.0;
+    /** The fraction of the cells of an openly addressed table that tombstones may take. */
+    public static final double MAX_TOMBSTONE_RATIO = 0.25;
+
+    private static final int MIGRATION_STEP = 8;
+    private static final double SHORT_CHAIN_PROBES = 1.5;
+    private static final double FEW_REMOVALS = 0.05;
+
+    private CollisionResolver resolver;
+    private HashTable current;
+    private HashTable source;
+    private int cursor;
+    private long operations;
+    private long nextCheck;
+    private int migrations;
+    private long[][] seen = new long[Operation.values().length][TableStats.MAX_PROBES + 1];
+
+    /**
+     * Default constructor. Starts out as <i>Linear Probing</i>.
+     */
+    public AdaptiveHashTable() {
+        this(CollisionResolver.LINEAR_PROBING);
+    }
+
+    /**
+     * Creates an empty table that starts out with the given {@link CollisionResolver}.
+     * @param initial The collision resolution technique to start with.
+     * @throws IllegalArgumentException if initial is {@code null} or one of the concurrent techniques, which this
+     * neither migrates to nor from.
+     */
+    public AdaptiveHashTable(CollisionResolver initial) {
+        if(initial == null || initial == CollisionResolver.CONCURRENT_SEPARATE_CHAINING
+                || initial == CollisionResolver.CONCURRENT_LINEAR_PROBING)
+            throw new IllegalArgumentException("Provided CollisionResolver " + initial
+                    + ", which is not one of the four single-threaded ones.");
+        this.resolver = initial;
+        this.current = create(initial);
+        this.nextCheck = CHECK_INTERVAL;
+    }
+
+    /**
+     * Returns the collision resolution technique that this currently stores its records with. While migrating, this
+     * is the technique being migrated to.
+     * @return The current {@link CollisionResolver}.
+     */
+    public CollisionResolver getResolver() {
+        return resolver;
+    }
+
+    /**
+     * @return {@code true} if and only if some records still live in the table that this is migrating away from.
+     */
+    public boolean isMigrating() {
+        return source != null;
+    }
+
+    /**
+     * @return The number of migrations this has started since it was created.
+     */
+    public int getMigrations() {
+        return migrations;
+    }
+
+    @Override
+    public String put(String key, String value) {
+        if(key == null || value == null)
+            throw new IllegalArgumentException("Provided: key=" + key + " and value= " + value);
+        step();
+        if(source != null) {
+            source.remove(key);
+        }
+        return current.put(key, value);
+    }
+
+    @Override
+    public String upsert(String key, String value) {
+        if(key == null || value == null)
+            throw new IllegalArgumentException("Provided: key=" + key + " and value= " + value);
+        step();
+        String moved = (source != null) ? source.remove(key) : null;
+        String previous = current.upsert(key, value);
+        return (previous != null) ? previous : moved;
+    }
+
+    @Override
+    public void putAll(Iterable<Map.Entry<String, String>> entries) {
+        finishMigration();
+        current.putAll(entries);
+    }
+
+    @Override
+    public void removeAll(Iterable<String> keys) {
+        finishMigration();
+        current.removeAll(keys);
+    }
+
+    @Override
+    public void ensureCapacity(int size) {
+        current.ensureCapacity(size);
+    }
+
+    @Override
+    public void compact() {
+        finishMigration();
+        current.compact();
+    }
+
+    @Override
+    public String get(String key) {
+        if(key == null) {
+            return null;
+        }
+        step();
+        String value = current.get(key);
+        return (value == null && source != null) ? source.get(key) : value;
+    }
+
+    @Override
+    public String[] getAll(String[] keys) {
+        if(source != null) {
+            return HashTable.super.getAll(keys);
+        }
+        step();
+        return current.getAll(keys);
+    }
+
+    @Override
+    public String remove(String key) {
+        if(key == null) {
+            return null;
+        }
+        step();
+        String value = current.remove(key);
+        if(source != null) {
+            String moved = source.remove(key);
+            value = (value != null) ? value : moved;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return current.containsKey(key) || (source != null && source.containsKey(key));
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        return current.containsValue(value) || (source != null && source.containsValue(value));
+    }
+
+    @Override
+    public int size() {
+        return current.size() + ((source != null) ? source.size() : 0);
+    }
+
+    @Override
+    public int capacity() {
+        return current.capacity();
+    }
+
+    /**
+     * Finishes a pending migration, like the other bulk operations, and then walks the table that stores every record.
+     * @param record Makes an element out of the key and the value of a record.
+     * @param <T> The type of the elements.
+     * @return A {@link Spliterator} over the records of this.
+     */
+    @Override
+    public <T> Spliterator<T> spliterator(BiFunction<String, String, T> record) {
+        finishMigration();
+        return current.spliterator(record);
+    }
+
+    /**
+     * Returns the snapshot of the table that currently stores the records of this, under the name
+     * {@code AdaptiveHashTable(<resolver>)}. While migrating, the size is that of this as a whole, and the tombstones
+     * are those of both tables.
+     * @return A new {@link TableStats} instance.
+     */
+    @Override
+    public TableStats snapshot() {
+        TableStats stats = current.snapshot();
+        int tombstones = stats.getTombstones() + ((source != null) ? source.snapshot().getTombstones() : 0);
+        long[][] histograms = new long[Operation.values().length][];
+        for(Operation op : Operation.values()) {
+            histograms[op.ordinal()] = stats.histogram(op);
+        }
+        return new TableStats(getClass().getSimpleName() + "(" + resolver + ")", size(), stats.getCapacity(),
+                tombstones, stats.getLongestChain(), stats.getResizes(), stats.getPrimeIndex(), histograms);
+    }
+
+    /**
+     * Returns the tombstones of both tables while migrating, like {@link #snapshot()}.
+     * @return The number of tombstones in this.
+     */
+    @Override
+    public int tombstones() {
+        return current.tombstones() + ((source != null) ? source.tombstones() : 0);
+    }
+
+    @Override
+    public int resizes() {
+        return current.resizes();
+    }
+
+    @Override
+    public int primeIndex() {
+        return current.primeIndex();
+    }
+
+    /* Counts an operation, and either advances a pending migration or, when due, checks the statistics. */
+    private void step() {
+        operations++;
+        if(source != null) {
+            migrate(MIGRATION_STEP);
+        } else if(operations >= nextCheck) {
+            check();
+        }
+    }
+
+    /* Decides, from the operations served since the last decision, whether to migrate to another layout. */
+    private void check() {
+        nextCheck = operations + Math.max(CHECK_INTERVAL, current.size());
+        TableStats stats = current.snapshot();
+        long[] counts = new long[Operation.values().length];
+        long[] probes = new long[Operation.values().length];
+        long total = 0;
+        for(Operation op : Operation.values()) {
+            long[] histogram = stats.histogram(op);
+            for(int i = 0; i < histogram.length; i++) {
+                long delta = histogram[i] - seen[op.ordinal()][i];
+                counts[op.ordinal()] += delta;
+                probes[op.ordinal()] += delta * i;
+            }
+            total += counts[op.ordinal()];
+        }
+        if(total < MIN_SAMPLE) {
+            return;
+        }
+        for(Operation op : Operation.values()) {
+            seen[op.ordinal()] = stats.histogram(op);
+        }
+
+        double hitProbes = mean(counts, probes, Operation.GET_HIT, Operation.PUT_UPDATE, Operation.REMOVE_HIT);
+        double missProbes = mean(counts, probes, Operation.GET_MISS, Operation.PUT_INSERT, Operation.REMOVE_MISS);
+        long lookups = counts[Operation.GET_HIT.ordinal()] + counts[Operation.GET_MISS.ordinal()];
+        double missRatio = (lookups == 0) ? 0 : (double) counts[Operation.GET_MISS.ordinal()] / lookups;
+        double removeRatio = (double) (counts[Operation.REMOVE_HIT.ordinal()] + counts[Operation.REMOVE_MISS.ordinal()]) / total;
+        double tombstoneRatio = (double) stats.getTombstones() / stats.getCapacity();
+
+        CollisionResolver next = resolver;
+        boolean rebuild = false;
+        if(resolver != CollisionResolver.SEPARATE_CHAINING && tombstoneRatio > MAX_TOMBSTONE_RATIO) {
+            next = CollisionResolver.SEPARATE_CHAINING;
+        } else {
+            switch(resolver) {
+                case LINEAR_PROBING:
+                    if(missProbes > MAX_MEAN_PROBES) {
+                        next = (missRatio > 0.5) ? CollisionResolver.ORDERED_LINEAR_PROBING : CollisionResolver.QUADRATIC_PROBING;
+                    }
+                    break;
+                case ORDERED_LINEAR_PROBING:
+                    if(hitProbes > MAX_MEAN_PROBES) {
+                        next = CollisionResolver.QUADRATIC_PROBING;
+                    }
+                    break;
+                case QUADRATIC_PROBING:
+                    if(hitProbes > MAX_MEAN_PROBES || missProbes > MAX_MEAN_PROBES) {
+                        next = CollisionResolver.SEPARATE_CHAINING;
+                    }
+                    break;
+                case SEPARATE_CHAINING:
+                    if(stats.getLoadFactor() > 1 && (hitProbes > MAX_MEAN_PROBES || missProbes > MAX_MEAN_PROBES)) {
+                        rebuild = true;
+                    } else if(hitProbes <= SHORT_CHAIN_PROBES && missProbes <= SHORT_CHAIN_PROBES && removeRatio < FEW_REMOVALS) {
+                        next = CollisionResolver.LINEAR_PROBING;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if(next != resolver || rebuild) {
+            source = current;
+            current = create(next);
+            current.ensureCapacity(source.size());
+            resolver = next;
+            cursor = 0;
+            migrations++;
+        }
+    }
+
+    /* Moves the records of up to cells cells of the old table to the new one, and retires the old table once empty. */
+    private void migrate(int cells) {
+        int capacity = source.capacity();
+        for(int end = Math.min(capacity, cursor + cells); cursor < end; cursor++) {
+            if(source instanceof OpenAddressingHashTable) {
+                KVPair pair = ((OpenAddressingHashTable) source).get(cursor);
+                if(pair != null && pair != OpenAddressingHashTable.TOMBSTONE) {
+                    source.remove(pair.getKey());
+                    current.put(pair.getKey(), pair.getValue());
+                }
+            } else {
+                KVPairList list = ((SeparateChainingHashTable) source).get(cursor);
+                if(!list.isEmpty()) {
+                    List<KVPair> pairs = new ArrayList<>(list.size());
+                    for(KVPair pair : list) {
+                        pairs.add(pair);
+                    }
+                    for(KVPair pair : pairs) {
+                        source.remove(pair.getKey());
+                        current.put(pair.getKey(), pair.getValue());
+                    }
+                }
+            }
+        }
+        if(cursor >= capacity) {
+            source = null;
+            // the new table starts with fresh statistics, except for the insertions of the migration itself
+            TableStats stats = current.snapshot();
+            for(Operation op : Operation.values()) {
+                seen[op.ordinal()] = stats.histogram(op);
+            }
+            nextCheck = operations + Math.max(CHECK_INTERVAL, current.size());
+        }
+    }
+
+    private void finishMigration() {
+        if(source != null) {
+            migrate(source.capacity());
+        }
+    }
+
+    private static double mean(long[] counts, long[] probes, Operation... ops) {
+        long count = 0;
+        long sum = 0;
+        for(Operation op : ops) {
+            count += counts[op.ordinal()];
+            sum += probes[op.ordinal()];
+        }
+        return (count == 0) ? 0 : (double) sum / count;
+    }
+
+    /* Openly addressed tables delete softly, so that migrating away from them never moves unvisited records. */
+    private static HashTable create(CollisionResolver resolver) {
+        switch(resolver) {
+            case SEPARATE_CHAINING:
+                return new SeparateChainingHashTable();
+            case LINEAR_PROBING:
+                return new LinearProbingHashTable(true);
+            case ORDERED_LINEAR_PROBING:
+                return new OrderedLinearProbingHashTable(true);
+            case QUADRATIC_PROBING:
+                return new QuadraticProbingHashTable(true);
+            default:
+                throw new IllegalArgumentException("Encountered unsupported CollisionResolver argument: " + resolver + ".");
+        }
+    }
+}
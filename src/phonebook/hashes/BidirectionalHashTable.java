@@ -0,0 +1,288 @@
+package phonebook.hashes;
+
+import java.util.Arrays;
+
+import phonebook.utils.KVPair;
+import phonebook.utils.PrimeGenerator;
+import phonebook.utils.SlotOrder;
+
+/**
+ * <p>{@link BidirectionalHashTable} stores &lt; Full Name, Phone Number &gt; pairs <b>once</b>, and indexes every
+ * stored pair by <b>both</b> of its components. Instead of keeping two independent {@link HashTable}s with two
+ * {@link KVPair} instances per entry, it keeps a single dense array of {@link KVPair}s (the &quot;slots&quot;, with the
+ * name as the key and the number as the value) and two linearly probed index arrays of slot positions: one hashed
+ * by name, the other one hashed by number.</p>
+ *
+ * <p>Since both indices point to the same slot, an insertion or a deletion is a <b>single</b> operation that keeps
+ * both directions consistent: re-assigning a number to a new owner, or giving a person a new number, evicts the
+ * displaced entry in the same call. The index arrays are kept at a load factor of at most 50&#37; and their
+ * length is always a prime provided by {@link PrimeGenerator}. Deletions from the indices use backward shifting,
+ * so no tombstones are ever left behind.</p>
+ *
+ * @see HashTable
+ * @see LinearProbingHashTable
+ * @see phonebook.Phonebook
+ */
+public class BidirectionalHashTable {
+
+    private static final int EMPTY = -1;
+
+    private KVPair[] slots;
+    private int[] byName;
+    private int[] byNumber;
+    private int count;
+    private double threshold;
+    private PrimeGenerator primeGenerator;
+
+    /**
+     * Default constructor. Initializes both indices with a size equal to the starting value of {@link PrimeGenerator}.
+     */
+    public BidirectionalHashTable() {
+        this.count = 0;
+        this.threshold = 0.5;
+        this.primeGenerator = new PrimeGenerator();
+        allocate(primeGenerator.getCurrPrime());
+    }
+
+    /**
+     * Retrieves the number stored for the provided name.
+     * @param name The name to search for.
+     * @return The number associated with name, or {@code null} if name is {@code null} or not stored.
+     */
+    public String getNumberOf(String name) {
+        if(name == null) {
+            return null;
+        }
+        int pos = find(byName, name, true);
+        return (pos < 0) ? null : slots[byName[pos]].getValue();
+    }
+
+    /**
+     * Retrieves the name stored for the provided number.
+     * @param number The number to search for.
+     * @return The name associated with number, or {@code null} if number is {@code null} or not stored.
+     */
+    public String getOwnerOf(String number) {
+        if(number == null) {
+            return null;
+        }
+        int pos = find(byNumber, number, false);
+        return (pos < 0) ? null : slots[byNumber[pos]].getKey();
+    }
+
+    /**
+     * Retrieves the numbers stored for every name in names. All names are hashed first and the name index is then
+     * walked in address order.
+     * @param names The names to search for.
+     * @return An array as long as names, whose i-th element is the number of the i-th name, or {@code null} if that
+     * name is {@code null} or not stored.
+     */
+    public String[] getNumbersOf(String[] names) {
+        return getAll(byName, names, true);
+    }
+
+    /**
+     * Retrieves the names stored for every number in numbers. All numbers are hashed first and the number index is
+     * then walked in address order.
+     * @param numbers The numbers to search for.
+     * @return An array as long as numbers, whose i-th element is the owner of the i-th number, or {@code null} if
+     * that number is {@code null} or not stored.
+     */
+    public String[] getOwnersOf(String[] numbers) {
+        return getAll(byNumber, numbers, false);
+    }
+
+    /**
+     * Stores the pair &lt; name, number &gt;. Any entry that currently holds either name or number is
+     * evicted first, so that every name maps to exactly one number and vice versa.
+     * @param name The full name of the number's owner.
+     * @param number The phone number of the person.
+     * @throws IllegalArgumentException if either argument is {@code null}.
+     */
+    public void put(String name, String number) {
+        if(name == null || number == null) {
+            throw new IllegalArgumentException("Provided: name=" + name + " and number= " + number);
+        }
+        int namePos = find(byName, name, true);
+        int numberPos = find(byNumber, number, false);
+        int nameSlot = (namePos < 0) ? EMPTY : byName[namePos];
+        int numberSlot = (numberPos < 0) ? EMPTY : byNumber[numberPos];
+        if(nameSlot != EMPTY && nameSlot == numberSlot) {
+            return; // The exact pair is already stored.
+        }
+        if(nameSlot != EMPTY) {
+            removeSlot(nameSlot);
+        }
+        if(numberSlot != EMPTY) {
+            // Removing nameSlot may have moved the last slot into its place.
+            removeSlot(slotOf(number));
+        }
+        if(threshold < ((double)(count + 1)) / ((double) byName.length)) {
+            rehash(primeGenerator.getNextPrime());
+        }
+        slots[count] = new KVPair(name, number);
+        index(count);
+        count++;
+    }
+
+    /**
+     * Removes the pair &lt; name, number &gt;. If name is not currently associated with number, this method
+     * has <b>no effect</b>.
+     * @param name The &quot;owner&quot; part of the pair.
+     * @param number The &quot;number&quot; part of the pair.
+     * @return {@code true} if the pair was stored and has been removed, {@code false} otherwise.
+     */
+    public boolean remove(String name, String number) {
+        if(name == null || number == null) {
+            return false;
+        }
+        int pos = find(byName, name, true);
+        if(pos < 0 || !slots[byName[pos]].getValue().equals(number)) {
+            return false;
+        }
+        removeSlot(byName[pos]);
+        return true;
+    }
+
+    /**
+     * Resizes both indices, at most once, so that they can hold size pairs without resizing again. This method never
+     * shrinks the indices.
+     * @param size The number of pairs that this should be able to hold.
+     */
+    public void ensureCapacity(int size) {
+        int capacity = byName.length;
+        while(threshold < ((double) size) / ((double) capacity)) {
+            capacity = primeGenerator.getNextPrime();
+        }
+        if(capacity != byName.length) {
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * Returns the number of pairs stored.
+     * @return The number of pairs stored.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the length of each of the two index arrays.
+     * @return The capacity of the indices.
+     */
+    public int capacity() {
+        return byName.length;
+    }
+
+    /* Hashes with the same masked String.hashCode() that the rest of our tables use. */
+    private int hash(String key, int length) {
+        return (key.hashCode() & 0x7fffffff) % length;
+    }
+
+    private String keyOf(int slot, boolean nameIndex) {
+        return nameIndex ? slots[slot].getKey() : slots[slot].getValue();
+    }
+
+    private String[] getAll(int[] index, String[] keys, boolean nameIndex) {
+        int[] homes = new int[keys.length];
+        for(int i = 0; i < keys.length; i++) {
+            homes[i] = (keys[i] == null) ? -1 : hash(keys[i], index.length);
+        }
+        String[] found = new String[keys.length];
+        for(int i : SlotOrder.byHome(homes)) {
+            int pos = find(index, keys[i], nameIndex, homes[i]);
+            if(pos >= 0) {
+                found[i] = keyOf(index[pos], !nameIndex);
+            }
+        }
+        return found;
+    }
+
+    /* Returns the index position whose slot holds key, or -1 if key is not indexed. */
+    private int find(int[] index, String key, boolean nameIndex) {
+        return find(index, key, nameIndex, hash(key, index.length));
+    }
+
+    private int find(int[] index, String key, boolean nameIndex, int pos) {
+        while(index[pos] != EMPTY) {
+            if(keyOf(index[pos], nameIndex).equals(key)) {
+                return pos;
+            }
+            pos = (pos + 1) % index.length;
+        }
+        return -1;
+    }
+
+    private int slotOf(String number) {
+        return byNumber[find(byNumber, number, false)];
+    }
+
+    private void insert(int[] index, int slot, boolean nameIndex) {
+        int pos = hash(keyOf(slot, nameIndex), index.length);
+        while(index[pos] != EMPTY) {
+            pos = (pos + 1) % index.length;
+        }
+        index[pos] = slot;
+    }
+
+    private void index(int slot) {
+        insert(byName, slot, true);
+        insert(byNumber, slot, false);
+    }
+
+    /* Knuth's Algorithm R: shift later members of the cluster back so that no probe sequence is broken. */
+    private void unindex(int[] index, int pos, boolean nameIndex) {
+        int hole = pos;
+        int next = (pos + 1) % index.length;
+        while(index[next] != EMPTY) {
+            int home = hash(keyOf(index[next], nameIndex), index.length);
+            boolean movable = (hole < next) ? (home <= hole || home > next) : (home <= hole && home > next);
+            if(movable) {
+                index[hole] = index[next];
+                hole = next;
+            }
+            next = (next + 1) % index.length;
+        }
+        index[hole] = EMPTY;
+    }
+
+    /* Unindexes the pair at slot and keeps the slot array dense by moving the last pair into the hole. */
+    private void removeSlot(int slot) {
+        KVPair removed = slots[slot];
+        unindex(byName, find(byName, removed.getKey(), true), true);
+        unindex(byNumber, find(byNumber, removed.getValue(), false), false);
+        int last = count - 1;
+        if(slot != last) {
+            KVPair moved = slots[last];
+            byName[find(byName, moved.getKey(), true)] = slot;
+            byNumber[find(byNumber, moved.getValue(), false)] = slot;
+            slots[slot] = moved;
+        }
+        slots[last] = null;
+        count--;
+    }
+
+    private void allocate(int capacity) {
+        byName = new int[capacity];
+        byNumber = new int[capacity];
+        Arrays.fill(byName, EMPTY);
+        Arrays.fill(byNumber, EMPTY);
+        KVPair[] old = slots;
+        slots = new KVPair[(int)(capacity * threshold) + 1];
+        if(old != null) {
+            System.arraycopy(old, 0, slots, 0, count);
+        }
+    }
+
+    private void rehash(int capacity) {
+        ResizeEvent event = new ResizeEvent();
+        event.begin();
+        int oldCapacity = byName.length;
+        allocate(capacity);
+        for(int slot = 0; slot < count; slot++) {
+            index(slot);
+        }
+        event.report(this, oldCapacity, capacity, count);
+    }
+}
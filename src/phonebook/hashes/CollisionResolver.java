@@ -2,7 +2,7 @@ package phonebook.hashes;
 
 /**
  * <p>{@link CollisionResolver} is an enum which provides named constants for
- * four of the most widely used collision resolution techniques in hash tables: </p>
+ * four of the most widely used collision resolution techniques in hash tables, and thread-safe variants of two of them: </p>
  * <ol>
  *     <li><i>Separate Chaining</i>, a simple collision resolver which allocates a linked list for every cell of the hash table.
  *          All keys hashed to the same cell are put in the back of a linked list which containsKVPair all same-hash keys. Enlarging this hash table
@@ -14,6 +14,10 @@ package phonebook.hashes;
  *     making searches destined to fail, fail <b>faster!</b></li>
  *     <li><i>Quadratic Probing</i>, a  modification of Linear Probing where collisions are resolved by having the key make quadratically - increased &quot; jumps &quot;
  *     until it finds an empty cell. See writeup for more details.</li>
+ *     <li><i>Concurrent Separate Chaining</i>, a thread-safe variant of Separate Chaining with lock-free reads and
+ *     striped locks for writes, for tables that are shared by many threads.</li>
+ *     <li><i>Concurrent Linear Probing</i>, a thread-safe variant of Linear Probing which never locks: cells are claimed,
+ *     updated and deleted with compare-and-swap, and resizes are shared by the writers.</li>
  * </ol>
  *
  * <p><b>**** DO NOT EDIT THIS ENUM! ****** </b></p>
@@ -24,10 +28,14 @@ package phonebook.hashes;
  * @see SeparateChainingHashTable
  * @see LinearProbingHashTable
  * @see QuadraticProbingHashTable
+ * @see ConcurrentSeparateChainingHashTable
+ * @see ConcurrentLinearProbingHashTable
  */
 public enum CollisionResolver {
     SEPARATE_CHAINING,
     LINEAR_PROBING,
     ORDERED_LINEAR_PROBING,
-    QUADRATIC_PROBING
+    QUADRATIC_PROBING,
+    CONCURRENT_SEPARATE_CHAINING,
+    CONCURRENT_LINEAR_PROBING
 }
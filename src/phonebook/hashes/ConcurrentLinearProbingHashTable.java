@@ -0,0 +1,582 @@
+package phonebook.hashes;
+
+import phonebook.utils.ConcurrentProbeCounter;
+import phonebook.utils.NoMorePrimesException;
+import phonebook.utils.PrimeGenerator;
+import phonebook.utils.SipHash;
+import phonebook.utils.TableStats;
+import phonebook.utils.TableStats.Operation;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * <p>{@link ConcurrentLinearProbingHashTable} is a thread-safe {@link HashTable} that implements <b>Linear Probing</b>
+ * without any locks, after Cliff Click's {@code NonBlockingHashMap}. It is <b>lock-free</b>: a thread that is suspended
+ * mid-operation never blocks the others, and whenever threads contend, at least one of them completes, although a
+ * particular thread may have to retry its compare-and-swaps for as long as others keep winning them:</p>
+ *
+ * <ul>
+ *     <li><b>Keys and values live in two arrays.</b> A key is written once, by a compare-and-swap that claims an empty
+ *     cell, and never changes afterwards, so the probe sequences of the other keys never move. {@code get} reads the
+ *     two arrays and nothing else.</li>
+ *     <li><b>Values change by compare-and-swap.</b> An insertion or an update swaps the value of the cell of its key,
+ *     and a deletion swaps in a tombstone, which a later insertion of the same key overwrites.</li>
+ *     <li><b>Resizes are cooperative.</b> Once more than half of its cells are claimed, live or deleted, the table
+ *     allocates a new array that is at most a quarter full. Every value is then <i>primed</i>, i.e boxed, copied
+ *     into the new array, and replaced by a forwarding marker. Writers that run into a primed or forwarded value
+ *     finish its copy and retry in the new array, and copy a batch of other cells on the way, so the last copy
+ *     publishes the new array without anybody waiting for it. Readers never help: a primed value is still the latest
+ *     one, and a forwarded one sends them to the new array.</li>
+ * </ul>
+ *
+ * <p>Operations on the same key are linearizable; {@link #size()} and {@link #snapshot()} are only exact while no
+ * operation is in flight. Capacities are primes of {@link PrimeGenerator}; past the largest of them, the table fills
+ * up completely and then throws a {@link NoMorePrimesException} on insertions of new keys. Probe counts are kept per
+ * thread, in a {@link ConcurrentProbeCounter}, and summed by {@link #snapshot()}.</p>
+ *
+ * @see LinearProbingHashTable
+ * @see ConcurrentSeparateChainingHashTable
+ * @see CollisionResolver#CONCURRENT_LINEAR_PROBING
+ */
+public class ConcurrentLinearProbingHashTable implements HashTable {
+
+    /* The fraction of claimed cells above which the table is rebuilt. */
+    private static final double THRESHOLD = 0.5;
+
+    /* The number of cells that a writer copies on its way during a resize. */
+    private static final int COPY_BATCH = 16;
+
+    /* The value of a deleted key. */
+    private static final Object TOMBSTONE = new Object();
+
+    /* The value of a cell that has been copied into the next array. */
+    private static final Object FORWARDED = new Object();
+
+    /* A value that is being copied into the next array; the cell cannot change until it is forwarded. */
+    private static final class Primed {
+        final Object value;
+
+        Primed(Object value) {
+            this.value = value;
+        }
+    }
+
+    /* The arrays of keys and values, and the state of their copy into the next arrays, if any. */
+    private static final class Table {
+        final AtomicReferenceArray<String> keys;
+        final AtomicReferenceArray<Object> values;
+        final int primeIndex;
+        final LongAdder claimed = new LongAdder();
+        final AtomicReference<Table> next = new AtomicReference<>();
+        final AtomicInteger copyIndex = new AtomicInteger();
+        final AtomicInteger copied = new AtomicInteger();
+        final AtomicInteger moved = new AtomicInteger();
+        ResizeEvent event;
+
+        Table(int capacity, int primeIndex) {
+            keys = new AtomicReferenceArray<>(capacity);
+            values = new AtomicReferenceArray<>(capacity);
+            this.primeIndex = primeIndex;
+        }
+    }
+
+    private final AtomicReference<Table> table;
+    private final LongAdder count = new LongAdder();
+    private final AtomicInteger resizes = new AtomicInteger();
+    private final ConcurrentProbeCounter probeCounter = new ConcurrentProbeCounter();
+    private volatile SipHash seededHash;
+
+    /**
+     * Default constructor. Initializes the internal storage with a size equal to the default of
+     * {@link PrimeGenerator}.
+     */
+    public ConcurrentLinearProbingHashTable() {
+        PrimeGenerator primes = new PrimeGenerator();
+        this.table = new AtomicReference<>(new Table(primes.getCurrPrime(), primes.getCurrIndex()));
+    }
+
+    /**
+     * Makes this hash with seed instead of {@link String#hashCode()}. See
+     * {@link OpenAddressingHashTable#useSeededHash(SipHash)}.
+     * @param seed The keyed hash function to use, or {@code null} to go back to {@link String#hashCode()}.
+     * @throws IllegalStateException if this already holds records, which would have to be rehashed.
+     */
+    public void useSeededHash(SipHash seed) {
+        if(size() > 0)
+            throw new IllegalStateException("Cannot change the hash function of a table that holds " + size() + " records.");
+        this.seededHash = seed;
+    }
+
+    /* The 31-bit hash of key, which picks its first cell in arrays of every capacity. */
+    private int spread(String key) {
+        SipHash seed = this.seededHash;
+        return (seed != null) ? seed.hash31(key) : key.hashCode() & 0x7fffffff;
+    }
+
+    @Override
+    public String put(String key, String value) {
+        if(key == null || value == null)
+            throw new IllegalArgumentException("Provided: key=" + key + " and value= " + value);
+        write(key, value);
+        return value;
+    }
+
+    @Override
+    public String upsert(String key, String value) {
+        if(key == null || value == null)
+            throw new IllegalArgumentException("Provided: key=" + key + " and value= " + value);
+        return write(key, value);
+    }
+
+    @Override
+    public String remove(String key) {
+        if(key == null) {
+            return null;
+        }
+        return write(key, TOMBSTONE);
+    }
+
+    @Override
+    public String get(String key) {
+        if(key == null) {
+            return null;
+        }
+        return read(this.table.get(), key, true);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return key != null && read(this.table.get(), key, false) != null;
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if(value == null) {
+            return false;
+        }
+        return scan(this.table.get(), value);
+    }
+
+    /* Searches every cell of t for value, and the next arrays too, since some values may already live there. */
+    private boolean scan(Table t, String value) {
+        for(int i = 0; i < t.values.length(); i++) {
+            Object current = t.values.get(i);
+            if(current instanceof Primed) {
+                current = ((Primed) current).value;
+            }
+            if(value.equals(current)) {
+                return true;
+            }
+        }
+        Table next = t.next.get();
+        return next != null && scan(next, value);
+    }
+
+    /**
+     * Finishes a copy in progress, then walks the cells of the current arrays. The {@link Spliterator} is weakly
+     * consistent: it reports every record that was there when it was created and has not been removed since exactly
+     * once, and may or may not report later changes. Keys stay in their cells when a later resize copies them, so the
+     * value of a forwarded cell is simply looked up in the newer arrays.
+     * @param record Makes an element out of the key and the value of a record.
+     * @param <T> The type of the elements.
+     * @return A {@link Spliterator} over the records of this.
+     */
+    @Override
+    public <T> Spliterator<T> spliterator(BiFunction<String, String, T> record) {
+        Table t = this.table.get();
+        Table next;
+        while((next = t.next.get()) != null) {
+            copyAll(t, next);
+            t = next;
+        }
+        Table root = t;
+        return new SlotSpliterator<>((cell, sink) -> {
+            String key = root.keys.get(cell);
+            if(key == null) {
+                return;
+            }
+            Object value = root.values.get(cell);
+            if(value instanceof Primed) {
+                value = ((Primed) value).value;
+            } else if(value == FORWARDED) {
+                value = read(root.next.get(), key, false);
+            }
+            if(live(value)) {
+                sink.accept(key, (String) value);
+            }
+        }, root.keys.length(), count.sum(), true, record);
+    }
+
+    @Override
+    public int size() {
+        return (int) count.sum();
+    }
+
+    @Override
+    public int capacity() {
+        return this.table.get().keys.length();
+    }
+
+    /**
+     * Grows this, at most once, so that it can hold size records without growing again, and copies every cell itself
+     * instead of waiting for other writers to help. Other threads keep reading and writing during the copy.
+     * @param size The number of records that this should be able to hold.
+     */
+    @Override
+    public void ensureCapacity(int size) {
+        Table t = this.table.get();
+        if(size <= t.keys.length() * THRESHOLD) {
+            return;
+        }
+        PrimeGenerator primes = primeAtLeast(Math.max((long) Math.ceil(size / THRESHOLD), 4 * count.sum()));
+        if(primes.getCurrPrime() > t.keys.length()) {
+            copyAll(t, resize(t, primes.getCurrPrime(), primes.getCurrIndex()));
+        }
+    }
+
+    /**
+     * Copies the live records into new arrays of the same capacity, leaving every deleted key behind.
+     */
+    @Override
+    public void compact() {
+        Table t = this.table.get();
+        if(tombstones(t) > 0) {
+            copyAll(t, resize(t, t.keys.length(), t.primeIndex));
+        }
+    }
+
+    @Override
+    public TableStats snapshot() {
+        Table t = this.table.get();
+        //the longest chain is the longest probe sequence of any stored key
+        int longest = 0;
+        for(int i = 0; i < t.keys.length(); i++) {
+            if(live(t.values.get(i))) {
+                longest = Math.max(longest, probes(t, spread(t.keys.get(i)), i));
+            }
+        }
+        return probeCounter.snapshot(getClass().getSimpleName(), size(), t.keys.length(), tombstones(t), longest,
+                resizes.get(), t.primeIndex);
+    }
+
+    /**
+     * Counts the tombstones of the current arrays as the keys that they have claimed minus the live records, rather
+     * than by scanning them like {@link #snapshot()} does. Only exact while no operation or resize is in flight.
+     * @return The number of tombstones in this.
+     */
+    @Override
+    public int tombstones() {
+        return (int) Math.max(0, this.table.get().claimed.sum() - count.sum());
+    }
+
+    @Override
+    public int resizes() {
+        return resizes.get();
+    }
+
+    @Override
+    public int primeIndex() {
+        return this.table.get().primeIndex;
+    }
+
+    /* Looks key up, starting from t and following forwarded values and absent keys into the next arrays. */
+    private String read(Table t, String key, boolean record) {
+        int hash = spread(key);
+        while(true) {
+            int index = find(t, key, hash);
+            if(index < 0) {
+                // writers that found no room for key in t have put it in the next array
+                Table next = t.next.get();
+                if(next != null) {
+                    t = next;
+                    continue;
+                }
+                if(record) {
+                    recordProbes(Operation.GET_MISS, -index);
+                }
+                return null;
+            }
+            Object value = t.values.get(index);
+            if(value == FORWARDED) {
+                t = t.next.get();
+                continue;
+            }
+            if(value instanceof Primed) {
+                // not forwarded yet, so no newer value of key can exist in the next array
+                value = ((Primed) value).value;
+            }
+            String found = live(value) ? (String) value : null;
+            if(record) {
+                recordProbes(found != null ? Operation.GET_HIT : Operation.GET_MISS, probes(t, hash, index));
+            }
+            return found;
+        }
+    }
+
+    /* Swaps value, a String or TOMBSTONE, into the cell of key, and returns the value that it replaced, if any. The
+     * cell of key is claimed in the oldest array that this meets, even during a resize, so that the copy of that
+     * array can never miss an insertion. */
+    private String write(String key, Object value) {
+        int hash = spread(key);
+        Table t = this.table.get();
+        while(true) {
+            int index = value == TOMBSTONE ? find(t, key, hash) : claim(t, key, hash);
+            if(index < 0) {
+                Table next = t.next.get();
+                if(next == null) {
+                    if(value == TOMBSTONE) {
+                        recordProbes(Operation.REMOVE_MISS, -index);
+                        return null;
+                    }
+                    next = grow(t, true);
+                    if(next == null)
+                        throw new NoMorePrimesException("All " + t.keys.length() + " cells hold live records.");
+                }
+                helpCopy(t);
+                t = next;
+                continue;
+            }
+            Object current;
+            while(true) {
+                current = t.values.get(index);
+                if(current instanceof Primed || current == FORWARDED) {
+                    break;
+                }
+                if(value == TOMBSTONE && !live(current)) {
+                    recordProbes(Operation.REMOVE_MISS, probes(t, hash, index));
+                    return null;
+                }
+                if(t.values.compareAndSet(index, current, value)) {
+                    break;
+                }
+            }
+            if(current instanceof Primed || current == FORWARDED) {
+                copySlot(t, index);
+                helpCopy(t);
+                t = t.next.get();
+                continue;
+            }
+            String previous = live(current) ? (String) current : null;
+            if(value == TOMBSTONE) {
+                count.decrement();
+                recordProbes(Operation.REMOVE_HIT, probes(t, hash, index));
+            } else if(previous == null) {
+                count.increment();
+                recordProbes(Operation.PUT_INSERT, probes(t, hash, index));
+            } else {
+                recordProbes(Operation.PUT_UPDATE, probes(t, hash, index));
+            }
+            if(t.next.get() != null) {
+                helpCopy(t);
+            }
+            return previous;
+        }
+    }
+
+    /* Returns the cell of key in t, or minus the number of probes that found it missing. */
+    private static int find(Table t, String key, int hash) {
+        int capacity = t.keys.length();
+        int index = hash % capacity;
+        for(int probes = 1; probes <= capacity; probes++) {
+            String current = t.keys.get(index);
+            if(current == null) {
+                return -probes;
+            }
+            if(current.equals(key)) {
+                return index;
+            }
+            index = (index + 1) % capacity;
+        }
+        return -capacity;
+    }
+
+    /* Returns the cell of key in t, claiming an empty one if key is missing, or a negative number if t is full. A
+     * claim that takes t past THRESHOLD starts a resize. */
+    private int claim(Table t, String key, int hash) {
+        int capacity = t.keys.length();
+        int index = hash % capacity;
+        for(int probes = 1; probes <= capacity; probes++) {
+            String current = t.keys.get(index);
+            if(current == null) {
+                if(t.keys.compareAndSet(index, null, key)) {
+                    t.claimed.increment();
+                    if(t.next.get() == null && t.claimed.sum() > capacity * THRESHOLD) {
+                        grow(t, false);
+                    }
+                    return index;
+                }
+                current = t.keys.get(index);
+            }
+            if(current.equals(key)) {
+                return index;
+            }
+            index = (index + 1) % capacity;
+        }
+        return -capacity;
+    }
+
+    /* The number of probes that reach cell index of t from the first cell of hash. */
+    private static int probes(Table t, int hash, int index) {
+        int capacity = t.keys.length();
+        return (index - hash % capacity + capacity) % capacity + 1;
+    }
+
+    private static boolean live(Object value) {
+        return value instanceof String;
+    }
+
+    private static int tombstones(Table t) {
+        int tombstones = 0;
+        for(int i = 0; i < t.values.length(); i++) {
+            Object value = t.values.get(i);
+            if(value instanceof Primed) {
+                value = ((Primed) value).value;
+            }
+            if(value == TOMBSTONE) {
+                tombstones++;
+            }
+        }
+        return tombstones;
+    }
+
+    /* Starts rebuilding t into arrays that are at most a quarter full, unless that would neither grow t nor drop many
+     * tombstones; when t is full, dropping a single one is enough. Returns the next arrays, or null if there are
+     * none. */
+    private Table grow(Table t, boolean full) {
+        Table next = t.next.get();
+        if(next != null) {
+            return next;
+        }
+        long live = count.sum();
+        PrimeGenerator primes = primeAtLeast(4 * live);
+        int capacity = primes.getCurrPrime();
+        long reclaimable = t.claimed.sum() - live;
+        if(capacity == t.keys.length() && reclaimable < (full ? 1 : capacity / 4)) {
+            return null;
+        }
+        return resize(t, capacity, primes.getCurrIndex());
+    }
+
+    /* A PrimeGenerator positioned at the least of its primes that is at least n, or at its largest prime. Each call
+     * walks a generator of its own, so resizes never lock. */
+    private static PrimeGenerator primeAtLeast(long n) {
+        PrimeGenerator primes = new PrimeGenerator();
+        try {
+            while(primes.getCurrPrime() < n) {
+                primes.getNextPrime();
+            }
+        } catch(NoMorePrimesException e) {
+            // out of primes: stay at the largest one
+        }
+        return primes;
+    }
+
+    /* Publishes new arrays of the given capacity as the next arrays of t, unless another thread published some first,
+     * and returns the ones that won. */
+    private Table resize(Table t, int capacity, int primeIndex) {
+        Table next = new Table(capacity, primeIndex);
+        next.event = new ResizeEvent();
+        next.event.begin();
+        return t.next.compareAndSet(null, next) ? next : t.next.get();
+    }
+
+    /* Copies the next batch of cells of t, if any are left unclaimed. */
+    private void helpCopy(Table t) {
+        int capacity = t.keys.length();
+        int start = t.copyIndex.getAndAdd(COPY_BATCH);
+        for(int i = start; i < Math.min(capacity, start + COPY_BATCH); i++) {
+            copySlot(t, i);
+        }
+    }
+
+    /* Copies every cell of t into next, finishing the copies that other threads have started, and then does the same
+     * for next if it is being rebuilt too. */
+    private void copyAll(Table t, Table next) {
+        for(int i = 0; i < t.keys.length(); i++) {
+            copySlot(t, i);
+        }
+        if(next.next.get() != null) {
+            copyAll(next, next.next.get());
+        }
+    }
+
+    /* Primes the value of cell i of t, copies it into the next arrays if it is live, and forwards the cell. Any number
+     * of threads may copy the same cell; exactly one of them forwards it. */
+    private void copySlot(Table t, int i) {
+        Object value = t.values.get(i);
+        while(!(value instanceof Primed)) {
+            if(value == FORWARDED) {
+                return;
+            }
+            Primed primed = new Primed(value);
+            if(t.values.compareAndSet(i, value, primed)) {
+                value = primed;
+            } else {
+                value = t.values.get(i);
+            }
+        }
+        Object raw = ((Primed) value).value;
+        if(live(raw)) {
+            // values are only ever written after their key, so the key of a live value is there
+            copyInto(t.next.get(), t.keys.get(i), (String) raw);
+        }
+        if(t.values.compareAndSet(i, value, FORWARDED)) {
+            if(live(raw)) {
+                t.moved.incrementAndGet();
+            }
+            if(t.copied.incrementAndGet() == t.keys.length()) {
+                promote(t);
+            }
+        }
+    }
+
+    /* Writes value into the cell of key in t, unless that cell has already been written to, which only happens once
+     * another thread has finished this copy. */
+    private void copyInto(Table t, String key, String value) {
+        int hash = spread(key);
+        while(true) {
+            int index = claim(t, key, hash);
+            if(index < 0) {
+                Table next = t.next.get();
+                t = (next != null) ? next : grow(t, true);
+                if(t == null)
+                    throw new NoMorePrimesException("All cells hold live records.");
+                continue;
+            }
+            Object current = t.values.get(index);
+            if(current == null && t.values.compareAndSet(index, null, value)) {
+                return;
+            }
+            current = t.values.get(index);
+            if(!(current instanceof Primed) && current != FORWARDED) {
+                return;
+            }
+            copySlot(t, index);
+            t = t.next.get();
+        }
+    }
+
+    /* Makes the next arrays of t current, once every cell of t has been forwarded, and keeps going while those have
+     * been copied already too. */
+    private void promote(Table t) {
+        while(t.copied.get() == t.keys.length()) {
+            Table next = t.next.get();
+            if(!this.table.compareAndSet(t, next)) {
+                return;
+            }
+            resizes.incrementAndGet();
+            next.event.report(this, t.keys.length(), next.keys.length(), t.moved.get());
+            t = next;
+        }
+    }
+
+    private void recordProbes(Operation op, int probes) {
+        probeCounter.record(op, probes);
+        LongProbeEvent.check(this, op, probes);
+    }
+}
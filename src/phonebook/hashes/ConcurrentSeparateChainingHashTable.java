@@ -0,0 +1,498 @@
+package phonebook.hashes;
+
+import phonebook.utils.ConcurrentProbeCounter;
+import phonebook.utils.NoMorePrimesException;
+import phonebook.utils.PrimeGenerator;
+import phonebook.utils.SipHash;
+import phonebook.utils.TableStats;
+import phonebook.utils.TableStats.Operation;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * <p>{@link ConcurrentSeparateChainingHashTable} is a thread-safe {@link HashTable} that implements <b>Separate
+ * Chaining</b>, so that many threads can share one table without wrapping it in a single lock:</p>
+ *
+ * <ul>
+ *     <li><b>Reads never lock.</b> The heads of the chains live in an {@link AtomicReferenceArray}, and the links and
+ *     values of the nodes are {@code volatile}, so {@code get}, {@code containsKey} and {@code containsValue} simply
+ *     walk the chains.</li>
+ *     <li><b>Writes lock a stripe.</b> Cell i is guarded by lock i modulo the number of stripes, so writes to cells of
+ *     different stripes proceed in parallel.</li>
+ *     <li><b>Resizes are shared.</b> Once it holds more records than cells, the table grows to the next prime of its
+ *     {@link PrimeGenerator}. Like {@link java.util.concurrent.ConcurrentHashMap} transfers its bins, every writer
+ *     that runs into the resize claims a batch of cells and moves their chains into the new array, locking one stripe
+ *     at a time, then leaves a forwarding marker behind. Readers that meet the marker continue in the new array, and
+ *     writers that meet it help until the whole array has been moved. Past the largest prime of
+ *     {@link PrimeGenerator}, the table stops growing and its chains get longer instead.</li>
+ * </ul>
+ *
+ * <p>Operations on different keys are linearizable; {@link #size()} and {@link #snapshot()} are only exact while no
+ * operation is in flight. Probe counts are kept per thread and summed by {@link #snapshot()}.</p>
+ *
+ * @see SeparateChainingHashTable
+ * @see CollisionResolver#CONCURRENT_SEPARATE_CHAINING
+ */
+public class ConcurrentSeparateChainingHashTable implements HashTable {
+
+    /** The default number of lock stripes. */
+    public static final int DEFAULT_STRIPES = 64;
+
+    /* The number of cells that a helper claims at a time during a resize. */
+    private static final int TRANSFER_BATCH = 16;
+
+    /* A chain node. Keys never change; values and links are volatile for the sake of lock-free readers. */
+    private static final class Node {
+        final int hash;
+        final String key;
+        volatile String value;
+        volatile Node next;
+
+        Node(int hash, String key, String value, Node next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /* Left in a cell of an old array once its chain has been moved to the next one. */
+    private static final Node FORWARDED = new Node(0, null, null, null);
+
+    /* An array of chains, and the state of its transfer into the next array, if any. */
+    private static final class Table {
+        final AtomicReferenceArray<Node> cells;
+        volatile Table next;
+        final AtomicInteger transferIndex = new AtomicInteger();
+        final AtomicInteger remaining;
+        final AtomicInteger moved = new AtomicInteger();
+        // the chains that were moved out of every forwarded cell, for spliterators; set just before next
+        AtomicReferenceArray<Node> movedChains;
+        ResizeEvent event;
+
+        Table(int capacity) {
+            cells = new AtomicReferenceArray<>(capacity);
+            remaining = new AtomicInteger(capacity);
+        }
+    }
+
+    private volatile Table table;
+    private final Object[] locks;
+    private final LongAdder count = new LongAdder();
+    private final PrimeGenerator primeGenerator = new PrimeGenerator();
+    private final AtomicInteger resizes = new AtomicInteger();
+    private final ConcurrentProbeCounter probeCounter = new ConcurrentProbeCounter();
+    private volatile SipHash seededHash;
+    private volatile boolean outOfPrimes;
+
+    /**
+     * Default constructor. Initializes the internal storage with a size equal to the default of
+     * {@link PrimeGenerator}, guarded by {@link #DEFAULT_STRIPES} locks.
+     */
+    public ConcurrentSeparateChainingHashTable() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates an empty table guarded by the given number of locks.
+     * @param stripes The number of lock stripes; roughly the number of writers that can proceed in parallel.
+     * @throws IllegalArgumentException if stripes is not positive.
+     */
+    public ConcurrentSeparateChainingHashTable(int stripes) {
+        if(stripes < 1)
+            throw new IllegalArgumentException("Provided " + stripes + " stripes.");
+        this.locks = new Object[stripes];
+        for(int i = 0; i < stripes; i++) {
+            this.locks[i] = new Object();
+        }
+        this.table = new Table(primeGenerator.getCurrPrime());
+    }
+
+    /**
+     * Makes this hash with seed instead of {@link String#hashCode()}. See
+     * {@link OpenAddressingHashTable#useSeededHash(SipHash)}.
+     * @param seed The keyed hash function to use, or {@code null} to go back to {@link String#hashCode()}.
+     * @throws IllegalStateException if this already holds records, which would have to be rehashed.
+     */
+    public void useSeededHash(SipHash seed) {
+        if(size() > 0)
+            throw new IllegalStateException("Cannot change the hash function of a table that holds " + size() + " records.");
+        this.seededHash = seed;
+    }
+
+    /* The 31-bit hash of key, which picks its cell in arrays of every capacity. */
+    private int spread(String key) {
+        SipHash seed = this.seededHash;
+        return (seed != null) ? seed.hash31(key) : key.hashCode() & 0x7fffffff;
+    }
+
+    @Override
+    public String put(String key, String value) {
+        if(key == null || value == null)
+            throw new IllegalArgumentException("Provided: key=" + key + " and value= " + value);
+        upsert(key, value);
+        return value;
+    }
+
+    @Override
+    public String upsert(String key, String value) {
+        if(key == null || value == null)
+            throw new IllegalArgumentException("Provided: key=" + key + " and value= " + value);
+        int hash = spread(key);
+        while(true) {
+            Table t = this.table;
+            int index = hash % t.cells.length();
+            String previous;
+            int probes = 1;
+            synchronized(lockOf(index)) {
+                Node head = t.cells.get(index);
+                if(head == FORWARDED || t != this.table) {
+                    previous = null;
+                    probes = -1;
+                } else {
+                    Node node = head;
+                    while(node != null && !node.key.equals(key)) {
+                        node = node.next;
+                        probes++;
+                    }
+                    if(node != null) {
+                        previous = node.value;
+                        node.value = value;
+                    } else {
+                        previous = null;
+                        t.cells.set(index, new Node(hash, key, value, head));
+                        count.increment();
+                    }
+                }
+            }
+            if(probes < 0) {
+                helpTransfer(t);
+                continue;
+            }
+            recordProbes(previous == null ? Operation.PUT_INSERT : Operation.PUT_UPDATE, probes);
+            if(previous == null && !outOfPrimes && count.sum() > t.cells.length()) {
+                grow(t, t.cells.length() + 1);
+            }
+            return previous;
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        if(key == null) {
+            return null;
+        }
+        int hash = spread(key);
+        Table t = this.table;
+        while(true) {
+            Node node = t.cells.get(hash % t.cells.length());
+            if(node == FORWARDED) {
+                t = t.next;
+                continue;
+            }
+            int probes = 1;
+            while(node != null) {
+                if(node.hash == hash && node.key.equals(key)) {
+                    recordProbes(Operation.GET_HIT, probes);
+                    return node.value;
+                }
+                node = node.next;
+                probes++;
+            }
+            recordProbes(Operation.GET_MISS, probes);
+            return null;
+        }
+    }
+
+    @Override
+    public String remove(String key) {
+        if(key == null) {
+            return null;
+        }
+        int hash = spread(key);
+        while(true) {
+            Table t = this.table;
+            int index = hash % t.cells.length();
+            String removed = null;
+            int probes = 1;
+            synchronized(lockOf(index)) {
+                Node head = t.cells.get(index);
+                if(head == FORWARDED || t != this.table) {
+                    probes = -1;
+                } else {
+                    Node previous = null;
+                    Node node = head;
+                    while(node != null && !node.key.equals(key)) {
+                        previous = node;
+                        node = node.next;
+                        probes++;
+                    }
+                    if(node != null) {
+                        removed = node.value;
+                        if(previous == null) {
+                            t.cells.set(index, node.next);
+                        } else {
+                            previous.next = node.next;
+                        }
+                        count.decrement();
+                    }
+                }
+            }
+            if(probes < 0) {
+                helpTransfer(t);
+                continue;
+            }
+            recordProbes(removed != null ? Operation.REMOVE_HIT : Operation.REMOVE_MISS, probes);
+            return removed;
+        }
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        if(key == null) {
+            return false;
+        }
+        int hash = spread(key);
+        Table t = this.table;
+        while(true) {
+            Node node = t.cells.get(hash % t.cells.length());
+            if(node == FORWARDED) {
+                t = t.next;
+                continue;
+            }
+            for(; node != null; node = node.next) {
+                if(node.hash == hash && node.key.equals(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if(value == null) {
+            return false;
+        }
+        return scan(this.table, value);
+    }
+
+    /* Searches every chain of t for value, and the next array too if some chains have already moved there. */
+    private boolean scan(Table t, String value) {
+        boolean forwarded = false;
+        for(int i = 0; i < t.cells.length(); i++) {
+            Node node = t.cells.get(i);
+            if(node == FORWARDED) {
+                forwarded = true;
+                continue;
+            }
+            for(; node != null; node = node.next) {
+                if(node.value.equals(value)) {
+                    return true;
+                }
+            }
+        }
+        return forwarded && scan(t.next, value);
+    }
+
+    /**
+     * Finishes a resize in progress, then walks the chains of the current array. The {@link Spliterator} is weakly
+     * consistent: it reports every record that was there when it was created and has not been removed since exactly
+     * once, and may or may not report later changes. When a later resize moves a chain before the traversal reaches
+     * it, the keys of the moved chain are looked up in the newer arrays.
+     * @param record Makes an element out of the key and the value of a record.
+     * @param <T> The type of the elements.
+     * @return A {@link Spliterator} over the records of this.
+     */
+    @Override
+    public <T> Spliterator<T> spliterator(BiFunction<String, String, T> record) {
+        Table t = this.table;
+        while(t.next != null) {
+            helpTransfer(t);
+            t = this.table;
+        }
+        Table root = t;
+        return new SlotSpliterator<>((cell, sink) -> forEachIn(root, cell, sink), root.cells.length(), count.sum(),
+                true, record);
+    }
+
+    /* Reports the records of cell i of t, with their latest values if the cell has been forwarded. */
+    private static void forEachIn(Table t, int i, BiConsumer<String, String> sink) {
+        Node node = t.cells.get(i);
+        boolean forwarded = (node == FORWARDED);
+        if(forwarded) {
+            node = t.movedChains.get(i);
+        }
+        for(; node != null; node = node.next) {
+            String value = forwarded ? valueOf(t.next, node.hash, node.key) : node.value;
+            if(value != null) {
+                sink.accept(node.key, value);
+            }
+        }
+    }
+
+    /* Looks key up from t on, like get() does, without counting probes. */
+    private static String valueOf(Table t, int hash, String key) {
+        while(true) {
+            Node node = t.cells.get(hash % t.cells.length());
+            if(node == FORWARDED) {
+                t = t.next;
+                continue;
+            }
+            for(; node != null; node = node.next) {
+                if(node.hash == hash && node.key.equals(key)) {
+                    return node.value;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public int size() {
+        return (int) count.sum();
+    }
+
+    @Override
+    public int capacity() {
+        return this.table.cells.length();
+    }
+
+    /**
+     * Grows this, at most once, until it has at least as many cells as size. Other threads keep reading and writing
+     * while the chains are moved.
+     * @param size The number of records that this should be able to hold.
+     */
+    @Override
+    public void ensureCapacity(int size) {
+        Table t = this.table;
+        if(t.cells.length() < size) {
+            grow(t, size);
+        }
+    }
+
+    @Override
+    public TableStats snapshot() {
+        Table t = this.table;
+        int longest = 0;
+        for(int i = 0; i < t.cells.length(); i++) {
+            int length = 0;
+            for(Node node = t.cells.get(i); node != null && node != FORWARDED; node = node.next) {
+                length++;
+            }
+            longest = Math.max(longest, length);
+        }
+        int primeIndex;
+        synchronized(primeGenerator) {
+            primeIndex = primeGenerator.getCurrIndex();
+        }
+        return probeCounter.snapshot(getClass().getSimpleName(), size(), t.cells.length(), 0, longest, resizes.get(),
+                primeIndex);
+    }
+
+    @Override
+    public int tombstones() {
+        return 0;
+    }
+
+    @Override
+    public int resizes() {
+        return resizes.get();
+    }
+
+    @Override
+    public int primeIndex() {
+        synchronized(primeGenerator) {
+            return primeGenerator.getCurrIndex();
+        }
+    }
+
+    private Object lockOf(int index) {
+        return locks[index % locks.length];
+    }
+
+    /* Starts moving the chains of t into an array of at least minCapacity cells, unless t is no longer current or is
+     * already being moved, then helps with the move until it is over. */
+    private void grow(Table t, int minCapacity) {
+        synchronized(primeGenerator) {
+            if(t == this.table && t.next == null) {
+                int capacity = primeGenerator.getCurrPrime();
+                try {
+                    while(capacity < minCapacity) {
+                        capacity = primeGenerator.getNextPrime();
+                    }
+                } catch(NoMorePrimesException e) {
+                    // out of primes: stay at the largest capacity reached, and let the chains grow instead
+                    capacity = primeGenerator.getCurrPrime();
+                    outOfPrimes = true;
+                }
+                if(capacity == t.cells.length()) {
+                    return;
+                }
+                Table next = new Table(capacity);
+                t.event = new ResizeEvent();
+                t.event.begin();
+                t.movedChains = new AtomicReferenceArray<>(t.cells.length());
+                t.next = next;
+            }
+        }
+        helpTransfer(t);
+    }
+
+    /* Moves batches of cells of t into t.next until none are left, then waits for the last batch to land. */
+    private void helpTransfer(Table t) {
+        Table next = t.next;
+        if(next == null) {
+            // a writer saw a stale table while another thread published the next one; just retry
+            return;
+        }
+        int capacity = t.cells.length();
+        int start;
+        while((start = t.transferIndex.getAndAdd(TRANSFER_BATCH)) < capacity) {
+            int end = Math.min(capacity, start + TRANSFER_BATCH);
+            for(int i = start; i < end; i++) {
+                transfer(t, next, i);
+            }
+            if(t.remaining.addAndGet(-(end - start)) == 0) {
+                this.table = next;
+                resizes.incrementAndGet();
+                t.event.report(this, capacity, next.cells.length(), t.moved.get());
+            }
+        }
+        while(this.table == t) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /* Copies the chain of cell i of t into next, and leaves a forwarding marker in its place. The copies are new nodes,
+     * so readers still walking the old chain are never led astray. */
+    private void transfer(Table t, Table next, int i) {
+        synchronized(lockOf(i)) {
+            int moved = 0;
+            for(Node node = t.cells.get(i); node != null; node = node.next) {
+                int index = node.hash % next.cells.length();
+                Node head;
+                Node copy;
+                // other helpers may be moving chains into the same cell of next
+                do {
+                    head = next.cells.get(index);
+                    copy = new Node(node.hash, node.key, node.value, head);
+                } while(!next.cells.compareAndSet(index, head, copy));
+                moved++;
+            }
+            t.movedChains.set(i, t.cells.get(i));
+            t.cells.set(i, FORWARDED);
+            t.moved.addAndGet(moved);
+        }
+    }
+
+    private void recordProbes(Operation op, int probes) {
+        probeCounter.record(op, probes);
+        LongProbeEvent.check(this, op, probes);
+    }
+}
@@ -0,0 +1,41 @@
+package phonebook.hashes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * <p>{@link DeleteCascadeEvent} is the JDK Flight Recorder event of a <b>hard</b> deletion from an openly addressed
+ * table: the re-insertion of the rest of the cluster of the deleted key (linear probing), or of the whole table
+ * (quadratic probing). Its duration is the time spent re-inserting.</p>
+ *
+ * @see ResizeEvent
+ */
+@Name("phonebook.DeleteCascade")
+@Label("Hard Delete Cascade")
+@Category({"Phonebook", "Hash Tables"})
+@Description("A hard deletion re-inserted entries to keep probe sequences unbroken")
+class DeleteCascadeEvent extends Event {
+
+    @Label("Table")
+    String table;
+
+    @Label("Capacity")
+    int capacity;
+
+    @Label("Entries Re-inserted")
+    int entriesReinserted;
+
+    /* Ends the event and commits it, if it is being recorded. */
+    void report(Object table, int capacity, int entriesReinserted) {
+        end();
+        if (shouldCommit()) {
+            this.table = table.getClass().getSimpleName();
+            this.capacity = capacity;
+            this.entriesReinserted = entriesReinserted;
+            commit();
+        }
+    }
+}
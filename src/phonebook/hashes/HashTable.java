@@ -1,5 +1,16 @@
 package phonebook.hashes;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import phonebook.utils.TableStats;
+
 /**
  * <p>{@link HashTable} is an abstraction over hash tables which store {@link String} keys and map to 
  * {@link String} values. Implementing classes should offer <em>amortized constant</em> insertion, search and 
@@ -32,6 +43,72 @@ public interface HashTable {
      */
     String put(String key, String value);
 
+    /**
+     * Inserts the pair &lt;key, value&gt; into this, <b>overwriting</b> the value of key if key is already stored,
+     * and reports what was overwritten. Unlike calling {@link #get(String)} followed by {@link #put(String, String)},
+     * implementations are expected to detect the existing record during the <b>same</b> probe that inserts the new
+     * one. The default implementation falls back to a {@link #remove(String)} followed by a {@link #put(String, String)}.
+     * @param key The record's key.
+     * @param value The record's value.
+     * @throws IllegalArgumentException if either argument is {@code null}.
+     * @return The value previously associated with key, or {@code null} if key was not stored.
+     */
+    default String upsert(String key, String value) {
+        if(key == null || value == null)
+            throw new IllegalArgumentException("Provided: key=" + key + " and value= " + value);
+        String previous = remove(key);
+        put(key, value);
+        return previous;
+    }
+
+    /**
+     * Inserts every pair of entries into this, as if by calling {@link #put(String, String)} on each of them, but
+     * sizes the table <b>once</b> for the whole batch instead of checking the resizing threshold on every insertion.
+     * The default implementation checks every pair first, calls {@link #ensureCapacity(int)} once, and then loops over
+     * {@link #put(String, String)}.
+     * @param entries The pairs to insert.
+     * @throws IllegalArgumentException if any key or value is {@code null}. In that case, no pair has been inserted.
+     */
+    default void putAll(Iterable<Map.Entry<String, String>> entries) {
+        List<Map.Entry<String, String>> batch = new ArrayList<>();
+        for(Map.Entry<String, String> entry : entries) {
+            if(entry == null || entry.getKey() == null || entry.getValue() == null)
+                throw new IllegalArgumentException("Provided: entry=" + entry);
+            batch.add(entry);
+        }
+        ensureCapacity(size() + batch.size());
+        for(Map.Entry<String, String> entry : batch) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes the record of every key in keys, as if by calling {@link #remove(String)} on each of them. Openly addressed
+     * implementations are expected to leave tombstones behind during the batch and to compact them <b>once</b> at its end,
+     * regardless of their deletion mode. The default implementation simply loops over {@link #remove(String)}.
+     * @param keys The keys to remove. {@code null} keys and keys that are not stored are ignored.
+     */
+    default void removeAll(Iterable<String> keys) {
+        for(String key : keys) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Resizes this {@link HashTable}, at most once, so that it can hold size records without resizing again. This
+     * method never shrinks the table. The default implementation has no effect.
+     * @param size The number of records that this should be able to hold.
+     */
+    default void ensureCapacity(int size) {
+    }
+
+    /**
+     * Discards every tombstone left behind by soft deletions, without changing the {@link #capacity()} of this.
+     * The default implementation has no effect, which is appropriate for tables that never leave tombstones.
+     */
+    default void compact() {
+    }
+
     /**
      * Get the value associated with key in the {@link HashTable}. This method is expected to run in <em>amortized constant time</em>.
      * @param key The key to search for.
@@ -40,6 +117,22 @@ public interface HashTable {
      */
     String get(String key);
 
+    /**
+     * Gets the values associated with every key in keys. Implementations are expected to compute the hashes of all
+     * keys first and to probe the table in <b>address order</b>, which is considerably friendlier to the cache than
+     * calling {@link #get(String)} in the caller's order. The default implementation loops over {@link #get(String)}.
+     * @param keys The keys to search for.
+     * @return An array as long as keys, whose i-th element is the value associated with the i-th key, or {@code null}
+     * if that key is {@code null} or does not exist in the database.
+     */
+    default String[] getAll(String[] keys) {
+        String[] values = new String[keys.length];
+        for(int i = 0; i < keys.length; i++) {
+            values[i] = get(keys[i]);
+        }
+        return values;
+    }
+
     /**
      * <b>Return</b> the value associated with key in the {@link HashTable}, and <b>remove</b> the {@link phonebook.utils.KVPair} from the table.
      * This method is expected to run in <em>amortized constant time</em>.
@@ -65,6 +158,25 @@ public interface HashTable {
      */
     boolean containsValue(String value);
 
+    /**
+     * Queries the {@link HashTable} about the existence of the value value, like {@link #containsValue(String)}, but
+     * scans the cells of the table with the workers of {@link ForkJoinPool#commonPool()}, each on
+     * a range of cells of its own, through a parallel {@link #values()} stream. The scan stops as soon as any worker
+     * finds value. It only pays off for large tables on machines with several cores, and falls back to
+     * {@link #containsValue(String)} when the pool has a single worker; a {@link ValueIndexedHashTable} answers in
+     * constant time instead.
+     * @param value The value to search for.
+     * @return {@code true} if value is the value of some record in our hash table, {@code false} otherwise, including
+     * when value is {@code null}.
+     * @see phonebook.benchmarks.ContainsValueBenchmark
+     */
+    default boolean containsValueParallel(String value) {
+        if(ForkJoinPool.getCommonPoolParallelism() < 2) {
+            return containsValue(value);
+        }
+        return value != null && values().parallel().anyMatch(value::equals);
+    }
+
     /**
      * Returns the number of records in this {@link HashTable}. Please note that this is <b>not</b> the same as returning the hash table's <b>capacity</b>
      * in Open Addressing collision resolution schemes (like Linear Probing)!
@@ -80,4 +192,81 @@ public interface HashTable {
      * @return the number of cells in the table.
      */
     int capacity();
+
+    /**
+     * Returns a {@link Spliterator} over the records of this, which turns every record into an element by calling
+     * record with its key and value. The {@link Spliterator} walks the cells of the table in address order, and splits
+     * by halving its range of cells, so parallel streams scan disjoint parts of the table without copying it. Records
+     * are reported in no particular order. Unless this is thread-safe, this must not change during the traversal.
+     * @param record Makes an element out of the key and the value of a record.
+     * @param <T> The type of the elements.
+     * @return A {@link Spliterator} that reports every record of this exactly once.
+     * @see #entries()
+     */
+    <T> Spliterator<T> spliterator(BiFunction<String, String, T> record);
+
+    /**
+     * Streams the records of this, as &lt;key, value&gt; pairs. Call {@link Stream#parallel()} to scan the table with
+     * more than one thread.
+     * @return A sequential {@link Stream} of the records of this, in no particular order.
+     * @see #spliterator(BiFunction)
+     */
+    default Stream<Map.Entry<String, String>> entries() {
+        return StreamSupport.stream(spliterator(Map::entry), false);
+    }
+
+    /**
+     * Streams the keys of this. No {@link Map.Entry} is created for them.
+     * @return A sequential {@link Stream} of the keys of this, in no particular order.
+     * @see #spliterator(BiFunction)
+     */
+    default Stream<String> keys() {
+        return StreamSupport.stream(spliterator((key, value) -> key), false);
+    }
+
+    /**
+     * Streams the values of this. No {@link Map.Entry} is created for them.
+     * @return A sequential {@link Stream} of the values of this, in no particular order.
+     * @see #spliterator(BiFunction)
+     */
+    default Stream<String> values() {
+        return StreamSupport.stream(spliterator((key, value) -> value), false);
+    }
+
+    /**
+     * Returns a snapshot of the health of this {@link HashTable}: its size, capacity and tombstones, and a histogram of
+     * the number of probes of every successful and unsuccessful {@code get}, {@code put} and {@code remove} it has served.
+     * Implementations count probes in always-on, allocation-free counters.
+     * @return A new {@link TableStats} instance.
+     */
+    TableStats snapshot();
+
+    /**
+     * Returns the number of tombstones in this, like {@link #snapshot()} does, but without scanning the table. The
+     * default implementation takes a whole {@link #snapshot()}; every table of this package overrides it.
+     * @return The number of tombstones in this.
+     */
+    default int tombstones() {
+        return snapshot().getTombstones();
+    }
+
+    /**
+     * Returns the number of times that this has changed capacity, like {@link #snapshot()} does, but without
+     * scanning the table. The default implementation takes a whole {@link #snapshot()}; every table of this package
+     * overrides it.
+     * @return The number of resizes of this.
+     */
+    default int resizes() {
+        return snapshot().getResizes();
+    }
+
+    /**
+     * Returns the index of the current capacity of this among the primes of {@link phonebook.utils.PrimeGenerator},
+     * like {@link #snapshot()} does, but without scanning the table. The default implementation takes a whole
+     * {@link #snapshot()}; every table of this package overrides it.
+     * @return The index of the current prime of this.
+     */
+    default int primeIndex() {
+        return snapshot().getPrimeIndex();
+    }
 }
@@ -0,0 +1,72 @@
+package phonebook.hashes;
+
+import phonebook.utils.TableStats;
+
+/**
+ * <p>{@link HashTableMXBean} is the JMX management interface of a single {@link HashTable}. Its attributes are read
+ * from the table on every call, so they are always current; its operations let an operator compact the table or
+ * reserve capacity for an expected burst of insertions without restarting the application.</p>
+ *
+ * @see HashTableMonitor
+ * @see TableStats
+ */
+public interface HashTableMXBean {
+
+    /**
+     * Returns the simple class name of the monitored table.
+     * @return The kind of the monitored table, e.g &quot;LinearProbingHashTable&quot;.
+     */
+    String getTable();
+
+    /**
+     * @return The number of records in the table.
+     * @see HashTable#size()
+     */
+    int getSize();
+
+    /**
+     * @return The capacity of the table.
+     * @see HashTable#capacity()
+     */
+    int getCapacity();
+
+    /**
+     * @return The size of the table divided by its capacity.
+     */
+    double getLoadFactor();
+
+    /**
+     * @return The number of tombstones in the table. Always 0 for separate chaining and hard deletion.
+     */
+    int getTombstones();
+
+    /**
+     * @return The most probes that any stored record needs to be found, or the length of the longest
+     * list for separate chaining.
+     * @see TableStats#getLongestChain()
+     */
+    int getLongestChain();
+
+    /**
+     * @return The number of times that the table has changed capacity.
+     */
+    int getResizes();
+
+    /**
+     * @return The index of the current capacity in the list of primes of {@link phonebook.utils.PrimeGenerator}.
+     */
+    int getPrimeIndex();
+
+    /**
+     * Rebuilds the table in place, dropping every tombstone.
+     * @see HashTable#compact()
+     */
+    void compact();
+
+    /**
+     * Resizes the table, at most once, so that it can hold size records without resizing again.
+     * @param size The number of records that the table should be able to hold.
+     * @see HashTable#ensureCapacity(int)
+     */
+    void ensureCapacity(int size);
+}
@@ -0,0 +1,107 @@
+package phonebook.hashes;
+
+import phonebook.utils.TableStats;
+
+/**
+ * <p>{@link HashTableMonitor} is the {@link HashTableMXBean} of a {@link HashTable}. Since our tables are not
+ * thread-safe, and JMX calls arrive on their own threads, every attribute and operation runs while holding a lock
+ * provided by the application: the same object that the application synchronizes on whenever it uses the table.
+ * Applications that confine the table to a single thread should not invoke the operations. Every attribute but the
+ * longest chain is read in constant time, so a console that polls them holds the lock only briefly; the longest chain
+ * takes a whole {@link HashTable#snapshot()}.</p>
+ *
+ * @see HashTableMXBean
+ * @see javax.management.MBeanServer#registerMBean(Object, javax.management.ObjectName)
+ */
+public class HashTableMonitor implements HashTableMXBean {
+
+    private final HashTable table;
+    private final Object lock;
+
+    /**
+     * Creates the monitor of table.
+     * @param table The {@link HashTable} to monitor.
+     * @param lock The object that guards every access to table.
+     * @throws IllegalArgumentException if either argument is {@code null}.
+     */
+    public HashTableMonitor(HashTable table, Object lock) {
+        if (table == null || lock == null)
+            throw new IllegalArgumentException("Provided: table=" + table + " and lock=" + lock);
+        this.table = table;
+        this.lock = lock;
+    }
+
+    /* Only the longest chain needs a whole snapshot, which scans the table. */
+    private TableStats stats() {
+        synchronized (lock) {
+            return table.snapshot();
+        }
+    }
+
+    @Override
+    public String getTable() {
+        return table.getClass().getSimpleName();
+    }
+
+    @Override
+    public int getSize() {
+        synchronized (lock) {
+            return table.size();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        synchronized (lock) {
+            return table.capacity();
+        }
+    }
+
+    @Override
+    public double getLoadFactor() {
+        synchronized (lock) {
+            int capacity = table.capacity();
+            return (capacity == 0) ? 0 : (double) table.size() / capacity;
+        }
+    }
+
+    @Override
+    public int getTombstones() {
+        synchronized (lock) {
+            return table.tombstones();
+        }
+    }
+
+    @Override
+    public int getLongestChain() {
+        return stats().getLongestChain();
+    }
+
+    @Override
+    public int getResizes() {
+        synchronized (lock) {
+            return table.resizes();
+        }
+    }
+
+    @Override
+    public int getPrimeIndex() {
+        synchronized (lock) {
+            return table.primeIndex();
+        }
+    }
+
+    @Override
+    public void compact() {
+        synchronized (lock) {
+            table.compact();
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int size) {
+        synchronized (lock) {
+            table.ensureCapacity(size);
+        }
+    }
+}
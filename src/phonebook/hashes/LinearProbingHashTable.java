@@ -5,6 +5,8 @@ import java.util.ArrayList;
 import phonebook.exceptions.UnimplementedMethodException;
 import phonebook.utils.KVPair;
 import phonebook.utils.PrimeGenerator;
+import phonebook.utils.Trace;
+import phonebook.utils.TableStats.Operation;
 import phonebook.utils.Probes;
 /**
  * <p>{@link LinearProbingHashTable} is an Openly Addressed {@link HashTable} implemented with <b>Linear Probing</b> as its
@@ -29,8 +31,6 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
     /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
     /* ********************************************************************/
 	private boolean soft_check;
-	private int tombstone_count;
-	private double threshold;
     /* ******************************************/
     /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS: */
     /* **************************************** */
@@ -53,9 +53,23 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
      *             we want soft deletion, {@code false} otherwise.
      */
     public LinearProbingHashTable(boolean soft) {
+        this(soft, 0.5);
+    }
+
+    /**
+     * Constructor with soft deletion option and a custom resizing threshold. Initializes the internal storage with a size
+     * equal to the starting value of {@link PrimeGenerator}.
+     * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
+     *               we want soft deletion, {@code false} otherwise.
+     * @param threshold The load factor, including tombstones, above which the table grows. The default is 0.5.
+     * @throws IllegalArgumentException if threshold is not strictly between 0 and 1.
+     */
+    public LinearProbingHashTable(boolean soft, double threshold) {
+        if(threshold <= 0 || threshold >= 1)
+            throw new IllegalArgumentException("Provided a threshold of " + threshold + ".");
         this.soft_check = soft;
         this.tombstone_count = 0;
-        this.threshold = 0.5;
+        this.threshold = threshold;
         this.count = 0;
         this.softFlag = soft;
         this.primeGenerator = new PrimeGenerator();
@@ -80,98 +94,115 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
      */
     @Override
     public String put(String key, String value) {
-       //Print statement for testing
-       System.out.println("Insertion LP--> Key: " + key + ", Value: " + value);
-       
+       upsert(key, value);
+       //return string value of cell
+       return value;
+    }
+
+    /**
+     * Inserts the pair &lt;key, value&gt; into this, or overwrites the value of key in place if key is already
+     * stored. The existing record is detected during the same probe that looks for a free cell.
+     *
+     * @param key   The record's key.
+     * @param value The record's value.
+     * @return The value previously associated with key, or {@code null} if key was not stored.
+     * @throws IllegalArgumentException if either argument is {@code null}.
+     */
+    @Override
+    public String upsert(String key, String value) {
        if(key == null || value == null) {
     	   throw new IllegalArgumentException();
-       }else {
-    	   //If the threshold has been passed, resize the hash table
-    	   if(threshold < ((double)(this.count + this.tombstone_count))/((double) this.table.length)){
-    		   
-    		   ArrayList<KVPair> newTable = new ArrayList<>();
-    		   
-    		   for(KVPair pairs: this.table) {
-    			   if(pairs != null && pairs != TOMBSTONE) {
-    				   newTable.add(pairs);
-    			   }
-    		   }
-    		   
-    		   this.count = 0;
-    		   this.tombstone_count = 0; //No tombstones present after a resize
-    		   // make a new table with a capacity of a prime number greater than previous 
-    		   this.table = new KVPair[this.primeGenerator.getNextPrime()];
-    		   
-    		   // if there are any elements to re-insert
-    		   if(newTable.size() > 0) {
-    			   for(KVPair pairs : newTable) {
-    				   //for each KV pair, get the hash value of the key
-    				   int newIndex = this.hash(pairs.getKey());
-    				   //search for unoccupied entry
-    				   while(this.table[newIndex] != null) {
-    					   newIndex = (newIndex + 1) % this.table.length;
-    				   }
-    				   //re-insert the KV Pair
-    				   this.table[newIndex] = pairs;
-    				   this.count++;
-    				   
-    				   //recursive call to put may be causing an infinite loop
-    				   //this.put(pairs.getKey(), pairs.getValue());
-    			   }
-    		   }
-    	   }
-    	   //----------------------------------------------
-    	   //Actual Insert, regardless of whether the increase in size was performed
-    	   //----------------------------------------------
-    	   
-    	   //set target_index as hash of key to be inserted
-    	   int target_index = this.hash(key);
-    	   //int start_check = this.hash(key);
-    	   //int collisions = 0;
-    	   
-    	   //find next available cell. If a cell is occupied, then increment target_index by one a.k.a. to the next cell
-    	   while(this.table[target_index] != null) {
-    		  /* if(target_index == start_check && collisions > 0) {
-    			   return null;
-    		   }*/
-   			   target_index = (target_index +1) % this.table.length;
-   			   //collisions++;
-       	   }
-    	   this.table[target_index] = new KVPair(key, value);
-    	   this.count++; 
-    	   
-    	   //return string value of cell
-    	   return value;   
        }
+       if(Trace.OPERATIONS) Trace.record("LP.put", key, value);
+       //If the threshold has been passed, resize the hash table
+       if(threshold < ((double)(this.count + this.tombstone_count))/((double) this.table.length)){
+    	   // make a new table with a capacity of a prime number greater than previous 
+    	   rehash(this.primeGenerator.getNextPrime());
+       }
+       String previous = place(key, value);
+       recordProbes(previous == null ? Operation.PUT_INSERT : Operation.PUT_UPDATE, this.lastProbes);
+       return previous;
     }
 
+    /* Upserts without checking the resizing threshold or counting the operation. The number of cells
+     * inspected is left in lastProbes. */
     @Override
-    public String get(String key) {
-    	if(key == null) {
-    		return null;
-    	}
-       // set target cell
+    protected String place(String key, String value) {
+       //----------------------------------------------
+       //Actual Insert, regardless of whether the increase in size was performed
+       //----------------------------------------------
+       
+       //set target_index as hash of key to be inserted
        int target_index = this.hash(key);
-       int start_index = this.hash(key);
-       int collision_count = 0;
-       //search for target cell. If found, return value that is paired with the key
+       this.lastProbes = 1;
+       
+       //find next available cell. If a cell holds the key, overwrite its value instead
        while(this.table[target_index] != null) {
-    	   
-    	   if(target_index == start_index && collision_count > 0) {
-    		   //visited all relevant cells and ended up at the beginning search --> key not in table
-    		   return null;
-    	   }
-    	   // if not found immediately, loop will not stop until found, or key is not in table 
-    	   if(this.table[target_index].getKey().equals(key) && this.table[target_index] != TOMBSTONE) {
-    		   return this.table[target_index].getValue();
+    	   if(this.table[target_index] != TOMBSTONE && this.table[target_index].getKey().equals(key)) {
+    		   String previous = this.table[target_index].getValue();
+    		   this.table[target_index].setValue(value);
+    		   return previous;
     	   }
-    	   target_index = (target_index + 1) % this.table.length;
-    	   collision_count++;
+    	   target_index = (target_index +1) % this.table.length;
+    	   this.lastProbes++;
        }
-       //key not found in table: returning null
+       this.table[target_index] = new KVPair(key, value);
+       this.count++; 
        return null;
     }
 
+    /* The cell visited after the given number of collisions: one address over per collision, with wrap-around. */
+    @Override
+    protected int probe(int home, int collisions) {
+    	return (home + collisions) % this.table.length;
+    }
+
+    /* Re-inserts every live pair into a fresh table of the given capacity, dropping all tombstones. */
+    @Override
+    protected void rehash(int capacity) {
+	   ResizeEvent event = new ResizeEvent();
+	   event.begin();
+	   int old_capacity = this.table.length;
+	   ArrayList<KVPair> newTable = new ArrayList<>();
+	   
+	   for(KVPair pairs: this.table) {
+		   if(pairs != null && pairs != TOMBSTONE) {
+			   newTable.add(pairs);
+		   }
+	   }
+	   
+	   this.count = 0;
+	   this.tombstone_count = 0; //No tombstones present after a resize
+	   this.table = new KVPair[capacity];
+	   
+	   for(KVPair pairs : newTable) {
+		   //for each KV pair, get the hash value of the key
+		   int newIndex = this.hash(pairs.getKey());
+		   //search for unoccupied entry
+		   while(this.table[newIndex] != null) {
+			   newIndex = (newIndex + 1) % this.table.length;
+		   }
+		   //re-insert the KV Pair
+		   this.table[newIndex] = pairs;
+		   this.count++;
+	   }
+	   if(capacity != old_capacity) {
+		   this.resizes++;
+	   }
+	   event.report(this, old_capacity, capacity, newTable.size());
+    }
+
+    @Override
+    public String get(String key) {
+    	if(key == null) {
+    		return null;
+    	}
+    	//search for target cell. If found, return value that is paired with the key
+    	int target_index = find(key);
+    	recordProbes(target_index >= 0 ? Operation.GET_HIT : Operation.GET_MISS, this.lastProbes);
+    	return (target_index >= 0) ? this.table[target_index].getValue() : null;
+    }
+
 
     /**
      * <b>Return</b> the value associated with key in the {@link HashTable}, and <b>remove</b> the {@link phonebook.utils.KVPair} from the table.
@@ -184,86 +215,51 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
      */
     @Override
     public String remove(String key) {
-    	System.out.println("Removal LP--> Key: " + key);
+    	if(Trace.OPERATIONS) Trace.record("LP.remove", key, null);
     	if(key == null) {
     		return null;
     	}
+    	int target_index = find(key);
+    	if(target_index < 0) {
+    		//not found, return null
+    		recordProbes(Operation.REMOVE_MISS, this.lastProbes);
+    		return null;
+    	}
+    	recordProbes(Operation.REMOVE_HIT, this.lastProbes);
+    	String ret_val = this.table[target_index].getValue();
     	
-    	int target_index = this.hash(key);
-    	int start_index = this.hash(key);
-    	int collisions = 0;
-    	String ret_val;
-    	
-    	//soft deletion
-    	//-----------------------------------------------
         if(this.soft_check) {
-        	//find target
-        	while(this.table[target_index] != null) {
-        		if(target_index == start_index && collisions > 0) {
-        			return null;
-        		}
-        		if(this.table[target_index].getKey().equals(key) && this.table[target_index] != TOMBSTONE) {
-        			ret_val = this.table[target_index].getValue();
-        			this.table[target_index] = TOMBSTONE;
-        			this.tombstone_count++;
-        			this.count--;
-        			return ret_val;
-        		}
-        		//increment target_index with wrap-around
-        		target_index = (target_index +1) % this.table.length;
-        		collisions++;
-        	}
-        	//return null if key is not found in table
-        	return null;
-        }else {
-        	//hard deletion
-        	//-------------------------------------------
-        	while(this.table[target_index] != null) {
-        		
-        		if(target_index == start_index && collisions > 0 ) {
-        			return null;
-        		}
-        		
-        		if(this.table[target_index].getKey().equals(key)) {
-        			//record return value
-        			ret_val = this.table[target_index].getValue();
-        			//set table cell to null
-        			this.table[target_index] = null;
-        			this.count--;
-        			//set up for re-insertion after removal
-        			ArrayList<KVPair> new_table = new ArrayList<>();
-        			// Move index forward because current cell is null after hard-deletion
-        			int ref_target_index = (target_index + 1) % this.table.length;
-        			
-        			
-        			//Does this work for re-insertion after deletion???????
-        			// Loop would terminate if an empty cell is visited. Then no re-insertions happen.
-        			while(this.table[ref_target_index] != null) {
-        				//archive cell for new table
-        				new_table.add(this.table[ref_target_index]);
-        				//delete cell
-        				this.table[ref_target_index] = null;
-        				this.count--;
-        				//update reference target_index
-        				ref_target_index = (ref_target_index + 1) % this.table.length;
-        			}
-        			//re-insert all cells
-        			if(new_table.size() != 0) {
-        				for(KVPair pairs : new_table) {
-        					this.put(pairs.getKey(), pairs.getValue());
-        				}
-        			}
-        			//return Value associated with key
-        			return ret_val;
-        		}
-        		//not found YET, increment target_index
-        		target_index = (target_index + 1) % this.table.length;
-        		collisions++;
-        	}
-        	
-        	//not found, return null
-        	return null;
+        	//soft deletion
+        	this.table[target_index] = TOMBSTONE;
+        	this.tombstone_count++;
+        	this.count--;
+        	return ret_val;
+        }
+        //hard deletion
+        //-------------------------------------------
+        DeleteCascadeEvent event = new DeleteCascadeEvent();
+        event.begin();
+        this.table[target_index] = null;
+        this.count--;
+        //set up for re-insertion after removal
+        ArrayList<KVPair> new_table = new ArrayList<>();
+        // only keys after the key that was deleted/nullified should be re-inserted.
+        // Loop terminates once an empty cell is visited.
+        int nextIndex = (target_index + 1) % this.table.length;
+        while(this.table[nextIndex] != null) {
+        	//archive cell for new table and delete it
+        	new_table.add(this.table[nextIndex]);
+        	this.table[nextIndex] = null;
+        	this.count--;
+        	nextIndex = (nextIndex + 1) % this.table.length;
+        }
+        //re-insert all cells
+        for(KVPair pairs : new_table) {
+        	place(pairs.getKey(), pairs.getValue());
         }
+        event.report(this, this.table.length, new_table.size());
+        //return Value associated with key
+        return ret_val;
     }
 
     @Override
@@ -281,7 +277,7 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
     @Override
     public boolean containsValue(String value) {
         for(int i =0; i < this.table.length; i++) {
-        	if(this.table[i] != TOMBSTONE && this.table[i].getValue().equals(value)) {
+        	if(this.table[i] != null && this.table[i] != TOMBSTONE && this.table[i].getValue().equals(value)) {
         		return true;
         	}
         }
@@ -0,0 +1,59 @@
+package phonebook.hashes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import phonebook.utils.TableStats.Operation;
+
+/**
+ * <p>{@link LongProbeEvent} is the JDK Flight Recorder event of a single operation whose probe sequence was longer
+ * than {@link #THRESHOLD} cells (or list nodes). The threshold defaults to 32 and can be changed with the system
+ * property {@code phonebook.jfr.probeThreshold}. Operations under the threshold never allocate the event, so the
+ * common case costs one comparison.</p>
+ *
+ * @see phonebook.utils.TableStats
+ */
+@Name("phonebook.LongProbe")
+@Label("Long Probe Sequence")
+@Category({"Phonebook", "Hash Tables"})
+@Description("A get, put or remove inspected more cells than the configured threshold")
+@StackTrace(false)
+class LongProbeEvent extends Event {
+
+    /** The number of probes above which an operation is reported. */
+    static final int THRESHOLD = Integer.getInteger("phonebook.jfr.probeThreshold", 32);
+
+    @Label("Table")
+    String table;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Probes")
+    int probes;
+
+    @Label("Size")
+    int size;
+
+    @Label("Capacity")
+    int capacity;
+
+    /* Commits an event for op if probes is over the threshold and the event is being recorded. */
+    static void check(HashTable table, Operation op, int probes) {
+        if (probes > THRESHOLD) {
+            LongProbeEvent event = new LongProbeEvent();
+            if (event.shouldCommit()) {
+                event.table = table.getClass().getSimpleName();
+                event.operation = op.name();
+                event.probes = probes;
+                event.size = table.size();
+                event.capacity = table.capacity();
+                event.commit();
+            }
+        }
+    }
+}
@@ -1,7 +1,17 @@
 package phonebook.hashes;
 
 import phonebook.utils.KVPair;
+import phonebook.utils.ProbeCounter;
 import phonebook.utils.PrimeGenerator;
+import phonebook.utils.SipHash;
+import phonebook.utils.SlotOrder;
+import phonebook.utils.TableStats;
+import phonebook.utils.TableStats.Operation;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
 
 /**
  * <p>{@code OpenAddressingHashTable} is an {@code abstract} class that models <b>openly addressed hash tables</b>, i.e
@@ -76,8 +86,11 @@ public abstract class OpenAddressingHashTable implements HashTable{
      * @return The hash code of the parameter {@link String} as produced by {@link String#hashCode()},
      * but with the top bit masked.
      * @see String#hashCode()
+     * @see #useSeededHash(SipHash)
      */
     public int hash(String key) {
+        if (seededHash != null)
+            return seededHash.hash31(key) % table.length;
         return (key.hashCode() & 0x7fffffff) % table.length;
     }
 
@@ -109,4 +122,245 @@ public abstract class OpenAddressingHashTable implements HashTable{
     /* *** ADD ANY ADDITIONAL PROTECTED FIELDS OR METHODS HERE: ****** */
     /* *************************************************************** */
 
+    /**
+     * Always-on probe count histograms of every {@code get}, {@code put} and {@code remove} served by this table.
+     * @see #snapshot()
+     */
+    protected final ProbeCounter probeCounter = new ProbeCounter();
+
+    /**
+     * Counts one operation in {@link #probeCounter}, and reports it to Flight Recorder if its probe sequence was
+     * unusually long.
+     * @param op The kind of operation.
+     * @param probes The number of cells that the operation inspected.
+     */
+    protected void recordProbes(Operation op, int probes) {
+        probeCounter.record(op, probes);
+        LongProbeEvent.check(this, op, probes);
+    }
+
+    /**
+     * The keyed hash function that {@link #hash(String)} uses instead of {@link String#hashCode()}, or {@code null}.
+     */
+    protected SipHash seededHash;
+
+    /**
+     * Makes {@link #hash(String)} use seed instead of {@link String#hashCode()}. Colliding {@link String#hashCode()}s
+     * are trivial to generate, so tables whose keys come from untrusted sources should opt in, preferably with
+     * {@link SipHash#random()}, at the price of hashing every key on every operation instead of reusing the hash code
+     * cached in the {@link String}.
+     * @param seed The keyed hash function to use, or {@code null} to go back to {@link String#hashCode()}.
+     * @throws IllegalStateException if this already holds records, which would have to be rehashed.
+     */
+    public void useSeededHash(SipHash seed) {
+        if (count > 0)
+            throw new IllegalStateException("Cannot change the hash function of a table that holds " + count + " records.");
+        this.seededHash = seed;
+    }
+
+    /**
+     * The number of tombstones in {@link #table}, which count towards the load factor until the next rehash.
+     */
+    protected int tombstone_count;
+
+    /**
+     * The load factor, including tombstones, above which the table grows.
+     */
+    protected double threshold;
+
+    /**
+     * The number of cells inspected by the latest call to {@link #place(String, String)} or
+     * {@link #find(String, int)}.
+     */
+    protected int lastProbes;
+
+    /**
+     * The number of times that the table has changed capacity.
+     */
+    protected int resizes;
+
+    /**
+     * Upserts the pair &lt;key, value&gt; without checking the resizing threshold or counting the operation, and
+     * leaves the number of cells inspected in {@link #lastProbes}.
+     * @param key The record's key.
+     * @param value The record's value.
+     * @return The value previously associated with key, or {@code null} if key was not stored.
+     */
+    protected abstract String place(String key, String value);
+
+    /**
+     * Re-inserts every live pair into a fresh table of the given capacity, or of a larger one if the collision
+     * resolution strategy needs it, dropping all tombstones.
+     * @param capacity The capacity of the fresh table.
+     */
+    protected abstract void rehash(int capacity);
+
+    /**
+     * Returns the cell that a probe sequence visits after the given number of collisions.
+     * @param home The home cell of the key, where the probe sequence starts.
+     * @param collisions The number of cells already visited.
+     * @return The next cell of the probe sequence.
+     */
+    protected abstract int probe(int home, int collisions);
+
+    /**
+     * Tells whether key cannot be stored past pair in its probe sequence, so that {@link #find(String, int)} can
+     * stop early. Only tables that keep their chains ordered can tell; the default answer is {@code false}.
+     * @param pair A live pair of the probe sequence of key.
+     * @param key The key being searched for.
+     * @return {@code true} if key is certainly not stored further down the probe sequence.
+     */
+    protected boolean passed(KVPair pair, String key) {
+        return false;
+    }
+
+    /**
+     * Returns the cell that holds key, or -1 if key is not stored.
+     * @param key The key to search for.
+     * @return The cell that holds key, or -1.
+     */
+    protected int find(String key) {
+        return find(key, hash(key));
+    }
+
+    /**
+     * Returns the cell that holds key, probing from its precomputed home cell, or -1 if key is not stored. The
+     * number of cells inspected is left in {@link #lastProbes}.
+     * @param key The key to search for.
+     * @param home The home cell of key.
+     * @return The cell that holds key, or -1.
+     */
+    protected int find(String key, int home) {
+        int target_index = home;
+        int collisions = 0;
+        while (table[target_index] != null && collisions < table.length) {
+            if (table[target_index] != TOMBSTONE) {
+                if (table[target_index].getKey().equals(key)) {
+                    lastProbes = collisions + 1;
+                    return target_index;
+                }
+                if (passed(table[target_index], key))
+                    break;
+            }
+            collisions++;
+            target_index = probe(home, collisions);
+        }
+        lastProbes = collisions + 1;
+        return -1;
+    }
+
+    @Override
+    public String[] getAll(String[] keys) {
+        //hash every key first, then probe in ascending address order
+        int[] homes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            homes[i] = (keys[i] == null) ? -1 : hash(keys[i]);
+        }
+        String[] values = new String[keys.length];
+        for (int i : SlotOrder.byHome(homes)) {
+            int target_index = find(keys[i], homes[i]);
+            recordProbes(target_index >= 0 ? Operation.GET_HIT : Operation.GET_MISS, lastProbes);
+            if (target_index >= 0) {
+                values[i] = table[target_index].getValue();
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void putAll(Iterable<Map.Entry<String, String>> entries) {
+        //validate the whole batch before touching the table
+        ArrayList<Map.Entry<String, String>> batch = new ArrayList<>();
+        for (Map.Entry<String, String> entry : entries) {
+            if (entry.getKey() == null || entry.getValue() == null)
+                throw new IllegalArgumentException();
+            batch.add(entry);
+        }
+        //a single resize for the whole batch, then no more threshold checks
+        ensureCapacity(count + batch.size());
+        for (Map.Entry<String, String> entry : batch) {
+            String previous = place(entry.getKey(), entry.getValue());
+            recordProbes(previous == null ? Operation.PUT_INSERT : Operation.PUT_UPDATE, lastProbes);
+        }
+    }
+
+    @Override
+    public void removeAll(Iterable<String> keys) {
+        //tombstone every key, whatever the deletion mode, and compact a single time at the end
+        for (String key : keys) {
+            if (key == null)
+                continue;
+            int target_index = find(key);
+            recordProbes(target_index >= 0 ? Operation.REMOVE_HIT : Operation.REMOVE_MISS, lastProbes);
+            if (target_index >= 0) {
+                table[target_index] = TOMBSTONE;
+                tombstone_count++;
+                count--;
+            }
+        }
+        compact();
+    }
+
+    @Override
+    public void ensureCapacity(int size) {
+        int capacity = table.length;
+        while (threshold < ((double) size) / ((double) capacity)) {
+            capacity = primeGenerator.getNextPrime();
+        }
+        if (capacity != table.length || threshold < ((double) (size + tombstone_count)) / ((double) capacity))
+            rehash(capacity);
+    }
+
+    @Override
+    public void compact() {
+        if (tombstone_count > 0)
+            rehash(table.length);
+    }
+
+    @Override
+    public TableStats snapshot() {
+        //the longest chain is the longest probe sequence of any stored key
+        int longest = 0;
+        for (KVPair pair : table) {
+            if (pair != null && pair != TOMBSTONE) {
+                find(pair.getKey());
+                longest = Math.max(longest, lastProbes);
+            }
+        }
+        return probeCounter.snapshot(getClass().getSimpleName(), count, table.length, tombstone_count, longest,
+                resizes, primeGenerator.getCurrIndex());
+    }
+
+    @Override
+    public int tombstones() {
+        return tombstone_count;
+    }
+
+    @Override
+    public int resizes() {
+        return resizes;
+    }
+
+    @Override
+    public int primeIndex() {
+        return primeGenerator.getCurrIndex();
+    }
+
+    /**
+     * Walks the cells of the current array, skipping empty cells and tombstones. A resize does not affect a
+     * {@link Spliterator} that was created before it, which keeps walking the old array.
+     * @param record Makes an element out of the key and the value of a record.
+     * @param <T> The type of the elements.
+     * @return A {@link Spliterator} over the records of this, sized until it is split.
+     */
+    @Override
+    public <T> Spliterator<T> spliterator(BiFunction<String, String, T> record) {
+        KVPair[] cells = table;
+        return new SlotSpliterator<>((cell, sink) -> {
+            KVPair pair = cells[cell];
+            if (pair != null && pair != TOMBSTONE)
+                sink.accept(pair.getKey(), pair.getValue());
+        }, cells.length, count, false, record);
+    }
+
 }
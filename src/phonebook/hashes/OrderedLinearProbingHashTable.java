@@ -5,6 +5,8 @@ import java.util.ArrayList;
 import phonebook.exceptions.UnimplementedMethodException;
 import phonebook.utils.KVPair;
 import phonebook.utils.PrimeGenerator;
+import phonebook.utils.Trace;
+import phonebook.utils.TableStats.Operation;
 
 /**
  * <p>{@link OrderedLinearProbingHashTable} is an Openly Addressed {@link HashTable} implemented with
@@ -28,8 +30,6 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
     /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
     /* ********************************************************************/
 	private boolean soft_check;
-	private int tombstone_count;
-	private double threshold;
 
     /* ******************************************/
     /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS: */
@@ -54,11 +54,25 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
      *               we want soft deletion, {@code false} otherwise.
      */
     public OrderedLinearProbingHashTable(boolean soft){
+        this(soft, 0.5);
+    }
+
+    /**
+     * Constructor with soft deletion option and a custom resizing threshold. Initializes the internal storage with a size
+     * equal to the starting value of {@link PrimeGenerator}.
+     * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
+     *               we want soft deletion, {@code false} otherwise.
+     * @param threshold The load factor, including tombstones, above which the table grows. The default is 0.5.
+     * @throws IllegalArgumentException if threshold is not strictly between 0 and 1.
+     */
+    public OrderedLinearProbingHashTable(boolean soft, double threshold){
+        if(threshold <= 0 || threshold >= 1)
+            throw new IllegalArgumentException("Provided a threshold of " + threshold + ".");
         this.softFlag = soft;
         this.soft_check = soft;
         this.tombstone_count = 0;
         this.count = 0;
-        this.threshold = 0.5;
+        this.threshold = threshold;
         this.primeGenerator = new PrimeGenerator();
         this.table = new KVPair[primeGenerator.getCurrPrime()];
     }
@@ -86,93 +100,120 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
      */
     @Override
     public String put(String key, String value) {
-    	System.out.println("Insertion OLP--> Key: " + key + ", Value: " + value + ", Hash Value: " + this.hash(key));
-    	
         if(key == null || value == null) {
         	return null;
-        }else {
-        	 //calculate hash value of key
-        	 int target_index = this.hash(key);
-        	 
-        	 //int start_index = this.hash(key);
-        	 //int collisions = 0;
-             //check if table has reached capacity threshold (alpha value)
-        	 if(threshold < ((double)(this.count + this.tombstone_count))/ ((double) this.table.length)) {
-        		 //if so, transfer all KV pairs to a list
-        		 ArrayList<KVPair> newTable = new ArrayList<>();
-        		 for(KVPair pairs : this.table) {
-        			 if(pairs != null && pairs  != TOMBSTONE) {
-        				 newTable.add(pairs);
-        			 }
-        		 }
-        		 //Re-initilaize the hash table with next prime 
-        		 this.count = 0;
-        		 this.tombstone_count = 0;
-        		 this.table = new KVPair[this.primeGenerator.getNextPrime()];
-        		 //As long as list has values, begin placing them 
-        		 if(newTable.size() > 0) {
-        			 for(KVPair pairs : newTable) {
-        				 
-        				 put(pairs.getKey(), pairs.getValue());
-        				 
-        			 }
-        		 }
-        	 }
-        	 target_index = this.hash(key);
-        	 //if no re-size is needed, place new KV pair
-        	 KVPair insert = new KVPair(key, value);
-             while(this.table[target_index] != null) {
-            	 
-            	 //iteration is based on comparison rather than equality
-            	 if(this.table[target_index].getKey().compareTo(insert.getKey()) >= 0 && this.table[target_index] != TOMBSTONE) {
-            		 System.out.println("Swapping Key " + insert.getKey() + " with Key " + this.table[target_index].getKey());
-            		 
-            		 KVPair pair = this.table[target_index];
-            		 this.table[target_index] = insert;
-            		 insert = pair;
-            	 }
-            	 target_index = (target_index + 1) % this.table.length;
-            	// collisions++;
-             }
-             //found available cell, insert, increment count, return...
-             this.table[target_index] = insert;
-             this.count++;
-             
-             return value;
         }
-       
+        upsert(key, value);
+        return value;
+    }
+
+    /**
+     * Inserts the pair &lt;key, value&gt; into this, or overwrites the value of key in place if key is already
+     * stored. Since the chain is ordered, an existing record is met exactly where the new pair would first be
+     * swapped into the chain, so detecting it costs nothing beyond the insertion probe itself.
+     *
+     * @param key The record's key.
+     * @param value The record's value.
+     * @throws IllegalArgumentException if either argument is {@code null}.
+     * @return The value previously associated with key, or {@code null} if key was not stored.
+     */
+    @Override
+    public String upsert(String key, String value) {
+        if(key == null || value == null) {
+        	throw new IllegalArgumentException();
+        }
+        if(Trace.OPERATIONS) Trace.record("OLP.put", key, value);
+        //check if table has reached capacity threshold (alpha value)
+        if(threshold < ((double)(this.count + this.tombstone_count))/ ((double) this.table.length)) {
+        	rehash(this.primeGenerator.getNextPrime());
+        }
+        String previous = place(key, value);
+        recordProbes(previous == null ? Operation.PUT_INSERT : Operation.PUT_UPDATE, this.lastProbes);
+        return previous;
+    }
+
+    /* Upserts without checking the resizing threshold or counting the operation. The number of cells
+     * inspected is left in lastProbes. */
+    @Override
+    protected String place(String key, String value) {
+        int target_index = this.hash(key);
+        //if no re-size is needed, place new KV pair
+        KVPair insert = new KVPair(key, value);
+        this.lastProbes = 1;
+        while(this.table[target_index] != null) {
+        	
+        	//iteration is based on comparison rather than equality
+        	if(this.table[target_index].getKey().compareTo(insert.getKey()) >= 0 && this.table[target_index] != TOMBSTONE) {
+        		if(insert.getKey().equals(key) && this.table[target_index].getKey().equals(key)) {
+        			//key already stored: overwrite in place, nothing was swapped yet
+        			String previous = this.table[target_index].getValue();
+        			this.table[target_index].setValue(value);
+        			return previous;
+        		}
+        		if(Trace.DETAILS) Trace.record("OLP.swap", insert.getKey(), this.table[target_index].getKey());
+        		
+        		KVPair pair = this.table[target_index];
+        		this.table[target_index] = insert;
+        		insert = pair;
+        	}
+        	target_index = (target_index + 1) % this.table.length;
+        	this.lastProbes++;
+        }
+        //found available cell, insert, increment count, return...
+        this.table[target_index] = insert;
+        this.count++;
+        
+        return null;
+    }
+
+    /* The cell visited after the given number of collisions: one address over per collision, with wrap-around. */
+    @Override
+    protected int probe(int home, int collisions) {
+    	return (home + collisions) % this.table.length;
+    }
+
+    /* Chains are ordered: a larger key means that key cannot appear further down the chain. */
+    @Override
+    protected boolean passed(KVPair pair, String key) {
+    	return pair.getKey().compareTo(key) > 0;
+    }
+
+    /* Re-inserts every live pair into a fresh table of the given capacity, dropping all tombstones. */
+    @Override
+    protected void rehash(int capacity) {
+    	ResizeEvent event = new ResizeEvent();
+    	event.begin();
+    	int old_capacity = this.table.length;
+    	//transfer all KV pairs to a list
+    	ArrayList<KVPair> newTable = new ArrayList<>();
+    	for(KVPair pairs : this.table) {
+    		if(pairs != null && pairs  != TOMBSTONE) {
+    			newTable.add(pairs);
+    		}
+    	}
+    	//Re-initilaize the hash table with next prime 
+    	this.count = 0;
+    	this.tombstone_count = 0;
+    	this.table = new KVPair[capacity];
+    	//As long as list has values, begin placing them 
+    	for(KVPair pairs : newTable) {
+    		place(pairs.getKey(), pairs.getValue());
+    	}
+    	if(capacity != old_capacity) {
+    		this.resizes++;
+    	}
+    	event.report(this, old_capacity, capacity, newTable.size());
     }
 
     @Override
     public String get(String key) {
-       String ret_val = null;
-       
-       if(key == null) {
-    	   return null;
-       }
-       //set target to hashed key value
-       int target_index = this.hash(key);
-       int start_index = this.hash(key);
-       int collisions = 0;
-       
-       //move through the table, looking for the key that matches
-       //return value if found, otherwise iterate
-       //return null if never found
-       while(this.table[target_index] != null) {
-    	   
-    	   if(target_index == start_index && collisions > 0) {
-    		   return null;
-    	   }
-    	   
-    	   if(this.table[target_index].getKey().compareTo(key) == 0  && this.table[target_index] != TOMBSTONE) {
-    		   if(this.table[target_index].getKey().equals(key)) {
-    			   ret_val = this.table[target_index].getValue();
-    		   }
-    	   }
-    	   target_index = (target_index + 1) % this.table.length;
-    	   collisions++;
-       } 
-       return ret_val;
+    	if(key == null) {
+    		return null;
+    	}
+    	//search for target cell. If found, return value that is paired with the key
+    	int target_index = find(key);
+    	recordProbes(target_index >= 0 ? Operation.GET_HIT : Operation.GET_MISS, this.lastProbes);
+    	return (target_index >= 0) ? this.table[target_index].getValue() : null;
     }
 
 
@@ -187,77 +228,51 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
      */
     @Override
     public String remove(String key) {
-    	System.out.println("Removal OLP--> Key: " + key);
-        if(key == null) {
-        	return null;
-        }
-        int target_index = this.hash(key);
-        int start_index = this.hash(key);
-        int collisions = 0;
-        String ret_val;
-        
-        //check for deletion method in use
+    	if(Trace.OPERATIONS) Trace.record("OLP.remove", key, null);
+    	if(key == null) {
+    		return null;
+    	}
+    	int target_index = find(key);
+    	if(target_index < 0) {
+    		//not found, return null
+    		recordProbes(Operation.REMOVE_MISS, this.lastProbes);
+    		return null;
+    	}
+    	recordProbes(Operation.REMOVE_HIT, this.lastProbes);
+    	String ret_val = this.table[target_index].getValue();
+    	
         if(this.soft_check) {
         	//soft deletion
-        	while(this.table[target_index] != null) {
-        		if(target_index == start_index && collisions > 0) {
-        			return null;
-        		}
-        		
-        		if(this.table[target_index].getKey().compareTo(key) == 0 && this.table[target_index] != TOMBSTONE) {
-        			ret_val = this.table[target_index].getValue();
-        			this.table[target_index] = TOMBSTONE;
-        			this.tombstone_count++;
-        			this.count--;
-        			return ret_val;
-        		}
-        		
-        		target_index = (target_index + 1) % this.table.length;
-        		collisions++;
-        	}
-        }else {
-        	//hard deletion
-        	while(this.table[target_index] != null) {
-        		
-        		if(target_index == start_index && collisions > 0) {
-        			return null;
-        		}
-        		
-        		if(this.table[target_index].getKey().compareTo(key) == 0 && this.table[target_index] != TOMBSTONE ) {
-        			ret_val = this.table[target_index].getValue();
-        			//delete node
-        			this.table[target_index] = null;
-        			this.count--;
-        			//set up for re-insertion post-deletion
-        			ArrayList<KVPair> new_table = new ArrayList<>();
-        			//move forward one index
-        			//only keys after the key that was deleted/nullified should be re-inserted. 
-        			int nextIndex = (target_index + 1) % this.table.length;
-        			// loop will stop once null cell is found ak
-        			while(this.table[nextIndex] != null) {
-        				// store value in new list and delete
-        				new_table.add(this.table[nextIndex]);
-        				this.table[nextIndex] = null;
-        				this.count--;
-        				//iterate by incrementing reference idx with wrap-around
-        				nextIndex = (nextIndex + 1) % this.table.length;
-        			}
-        			//re-insert all cells
-        			if(new_table.size() > 0) {
-        				for(KVPair pairs : new_table) {
-        					this.put(pairs.getKey(), pairs.getValue());
-        				}
-        			}
-        			
-        			return ret_val;
-        			        			
-        		}
-        		target_index = (target_index + 1) % this.table.length;
-        		collisions++;
-        	}
+        	this.table[target_index] = TOMBSTONE;
+        	this.tombstone_count++;
+        	this.count--;
+        	return ret_val;
         }
-        //key not found, return null
-        return null;
+        //hard deletion
+        //-------------------------------------------
+        DeleteCascadeEvent event = new DeleteCascadeEvent();
+        event.begin();
+        this.table[target_index] = null;
+        this.count--;
+        //set up for re-insertion after removal
+        ArrayList<KVPair> new_table = new ArrayList<>();
+        // only keys after the key that was deleted/nullified should be re-inserted.
+        // Loop terminates once an empty cell is visited.
+        int nextIndex = (target_index + 1) % this.table.length;
+        while(this.table[nextIndex] != null) {
+        	//archive cell for new table and delete it
+        	new_table.add(this.table[nextIndex]);
+        	this.table[nextIndex] = null;
+        	this.count--;
+        	nextIndex = (nextIndex + 1) % this.table.length;
+        }
+        //re-insert all cells
+        for(KVPair pairs : new_table) {
+        	place(pairs.getKey(), pairs.getValue());
+        }
+        event.report(this, this.table.length, new_table.size());
+        //return Value associated with key
+        return ret_val;
     }
 
     @Override
@@ -277,7 +292,7 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
         	return false;
         }
         for(int i=0; i < this.table.length; i++) {
-        	if(this.table[i].getValue().equals(value) && this.table[i] != TOMBSTONE) {
+        	if(this.table[i] != null && this.table[i] != TOMBSTONE && this.table[i].getValue().equals(value)) {
         		return true;
         	}
         }
@@ -0,0 +1,336 @@
+package phonebook.hashes;
+
+import phonebook.utils.NoMorePrimesException;
+import phonebook.utils.PrimeGenerator;
+
+import java.util.Arrays;
+
+/**
+ * <p>{@link PersistentHashTable} is an <b>immutable</b> linearly probed map from {@link String}s to {@link String}s.
+ * Its cells are laid out compactly, each key next to its value, in segments of {@link #SEGMENT_SIZE} cells, and a
+ * table is just an array of references to its segments. Changes go through an {@link Editor}, which copies a segment
+ * the first time that it writes to it and <b>shares</b> every other segment with the original table, then
+ * {@link Editor#publish() publishes} the result as a new table. The original table never changes, so any number of
+ * threads can read it without locks, and a table that they got hold of is never resized under them.</p>
+ *
+ * <p>Like {@link BidirectionalHashTable}, the table is kept at a load factor of at most 50&#37;, its capacity is
+ * always a prime provided by {@link PrimeGenerator}, and deletions shift the later keys of their cluster back, so no
+ * tombstones are ever left behind. A deletion may therefore copy the segments of the rest of its cluster.</p>
+ *
+ * @see phonebook.Phonebook#copyOnWrite()
+ */
+public final class PersistentHashTable {
+
+    /** The number of cells of a segment. */
+    public static final int SEGMENT_SIZE = 32;
+
+    private static final double THRESHOLD = 0.5;
+
+    private final String[][] segments;
+    private final int capacity;
+    private final int count;
+
+    /**
+     * Creates an empty table, whose capacity is the starting value of {@link PrimeGenerator}.
+     */
+    public PersistentHashTable() {
+        this(new PrimeGenerator().getCurrPrime());
+    }
+
+    private PersistentHashTable(int capacity) {
+        this(allocate(capacity), capacity, 0);
+    }
+
+    private PersistentHashTable(String[][] segments, int capacity, int count) {
+        this.segments = segments;
+        this.capacity = capacity;
+        this.count = count;
+    }
+
+    /**
+     * Retrieves the value of key.
+     * @param key The key to search for.
+     * @return The value of key, or {@code null} if key is {@code null} or not stored.
+     */
+    public String get(String key) {
+        if(key == null) {
+            return null;
+        }
+        int cell = find(segments, capacity, key);
+        return (cell < 0) ? null : segments[cell / SEGMENT_SIZE][2 * (cell % SEGMENT_SIZE) + 1];
+    }
+
+    /**
+     * Tells whether key is stored.
+     * @param key The key to search for.
+     * @return {@code true} if, and only if, key is not {@code null} and stored.
+     */
+    public boolean containsKey(String key) {
+        return key != null && find(segments, capacity, key) >= 0;
+    }
+
+    /**
+     * Returns the number of keys stored.
+     * @return the number of keys stored.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the number of cells of this table.
+     * @return the number of cells of this table.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Counts the segments that this table shares with other, i.e the segments that neither table has copied since
+     * they were last written to.
+     * @param other Another table, typically an earlier or later version of this one.
+     * @return The number of segments that are one and the same object in both tables.
+     */
+    public int sharedSegments(PersistentHashTable other) {
+        int shared = 0;
+        for(int i = 0; i < Math.min(segments.length, other.segments.length); i++) {
+            if(segments[i] == other.segments[i]) {
+                shared++;
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Starts a new version of this table. This table itself is not affected by the {@link Editor}.
+     * @return An {@link Editor} that starts out with the contents of this table.
+     */
+    public Editor edit() {
+        return new Editor(this);
+    }
+
+    /**
+     * <p>An {@link Editor} accumulates changes to a {@link PersistentHashTable} and publishes them as a new table. Every
+     * segment is copied at most once per {@link Editor}, so a batch of changes to nearby keys copies little. An
+     * {@link Editor} is meant to be used by a single thread, and cannot be used after {@link #publish()}.</p>
+     */
+    public static final class Editor {
+
+        private String[][] segments;
+        private boolean[] owned;
+        private int capacity;
+        private int count;
+        private PrimeGenerator primeGenerator;
+        private boolean published;
+
+        private Editor(PersistentHashTable table) {
+            this.segments = table.segments.clone();
+            this.owned = new boolean[segments.length];
+            this.capacity = table.capacity;
+            this.count = table.count;
+            this.primeGenerator = positionedAt(capacity);
+        }
+
+        /**
+         * Retrieves the value of key, including the changes made so far.
+         * @param key The key to search for.
+         * @return The value of key, or {@code null} if key is {@code null} or not stored.
+         */
+        public String get(String key) {
+            checkOpen();
+            if(key == null) {
+                return null;
+            }
+            int cell = find(segments, capacity, key);
+            return (cell < 0) ? null : segments[cell / SEGMENT_SIZE][2 * (cell % SEGMENT_SIZE) + 1];
+        }
+
+        /**
+         * Associates value with key, replacing the value that key had, if any.
+         * @param key The key.
+         * @param value The value.
+         * @return The previous value of key, or {@code null} if key was not stored.
+         * @throws IllegalArgumentException if key or value is {@code null}.
+         * @throws NoMorePrimesException if the table would need to grow past the largest prime of
+         * {@link PrimeGenerator}.
+         */
+        public String put(String key, String value) {
+            checkOpen();
+            if(key == null || value == null)
+                throw new IllegalArgumentException("Provided: key=" + key + " and value= " + value);
+            int cell = find(segments, capacity, key);
+            if(cell >= 0) {
+                String previous = segments[cell / SEGMENT_SIZE][2 * (cell % SEGMENT_SIZE) + 1];
+                if(!previous.equals(value)) {
+                    own(cell / SEGMENT_SIZE)[2 * (cell % SEGMENT_SIZE) + 1] = value;
+                }
+                return previous;
+            }
+            if(count + 1 > capacity * THRESHOLD) {
+                rehash(primeGenerator.getNextPrime());
+            }
+            insert(key, value);
+            count++;
+            return null;
+        }
+
+        /**
+         * Removes key.
+         * @param key The key to remove.
+         * @return The value that key had, or {@code null} if key is {@code null} or was not stored.
+         */
+        public String remove(String key) {
+            checkOpen();
+            if(key == null) {
+                return null;
+            }
+            int cell = find(segments, capacity, key);
+            if(cell < 0) {
+                return null;
+            }
+            String previous = segments[cell / SEGMENT_SIZE][2 * (cell % SEGMENT_SIZE) + 1];
+            unindex(cell);
+            count--;
+            return previous;
+        }
+
+        /**
+         * Grows the table, at most once, so that it can hold size keys without growing again.
+         * @param size The number of keys that the table should be able to hold.
+         * @throws NoMorePrimesException if that would take a capacity past the largest prime of {@link PrimeGenerator}.
+         */
+        public void ensureCapacity(int size) {
+            checkOpen();
+            // walk a copy of the generator, so that a NoMorePrimesException leaves this Editor as it was
+            PrimeGenerator primes = positionedAt(capacity);
+            int target = capacity;
+            while(size > target * THRESHOLD) {
+                target = primes.getNextPrime();
+            }
+            if(target != capacity) {
+                primeGenerator = primes;
+                rehash(target);
+            }
+        }
+
+        /**
+         * Returns the number of keys stored, including the changes made so far.
+         * @return the number of keys stored.
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Publishes the changes as a new {@link PersistentHashTable}, and closes this {@link Editor}.
+         * @return The new table.
+         * @throws IllegalStateException if this was already published.
+         */
+        public PersistentHashTable publish() {
+            checkOpen();
+            published = true;
+            return new PersistentHashTable(segments, capacity, count);
+        }
+
+        private void checkOpen() {
+            if(published)
+                throw new IllegalStateException("This Editor has already been published.");
+        }
+
+        /* Returns segment s, copying it first if this Editor has not written to it yet. */
+        private String[] own(int s) {
+            if(!owned[s]) {
+                segments[s] = segments[s].clone();
+                owned[s] = true;
+            }
+            return segments[s];
+        }
+
+        private String keyAt(int cell) {
+            return segments[cell / SEGMENT_SIZE][2 * (cell % SEGMENT_SIZE)];
+        }
+
+        private void insert(String key, String value) {
+            int cell = hash(key, capacity);
+            while(keyAt(cell) != null) {
+                cell = (cell + 1) % capacity;
+            }
+            set(cell, key, value);
+        }
+
+        private void set(int cell, String key, String value) {
+            String[] segment = own(cell / SEGMENT_SIZE);
+            segment[2 * (cell % SEGMENT_SIZE)] = key;
+            segment[2 * (cell % SEGMENT_SIZE) + 1] = value;
+        }
+
+        /* Knuth's Algorithm R: shift later members of the cluster back so that no probe sequence is broken. */
+        private void unindex(int cell) {
+            int hole = cell;
+            int next = (cell + 1) % capacity;
+            String key;
+            while((key = keyAt(next)) != null) {
+                int home = hash(key, capacity);
+                boolean movable = (hole < next) ? (home <= hole || home > next) : (home <= hole && home > next);
+                if(movable) {
+                    set(hole, key, segments[next / SEGMENT_SIZE][2 * (next % SEGMENT_SIZE) + 1]);
+                    hole = next;
+                }
+                next = (next + 1) % capacity;
+            }
+            set(hole, null, null);
+        }
+
+        private void rehash(int newCapacity) {
+            String[][] old = segments;
+            int oldCapacity = capacity;
+            segments = allocate(newCapacity);
+            owned = new boolean[segments.length];
+            Arrays.fill(owned, true);
+            capacity = newCapacity;
+            for(int cell = 0; cell < oldCapacity; cell++) {
+                String[] segment = old[cell / SEGMENT_SIZE];
+                String key = segment[2 * (cell % SEGMENT_SIZE)];
+                if(key != null) {
+                    insert(key, segment[2 * (cell % SEGMENT_SIZE) + 1]);
+                }
+            }
+        }
+    }
+
+    /* A PrimeGenerator whose current prime is capacity. */
+    private static PrimeGenerator positionedAt(int capacity) {
+        PrimeGenerator primes = new PrimeGenerator();
+        while(primes.getCurrPrime() < capacity) {
+            primes.getNextPrime();
+        }
+        return primes;
+    }
+
+    /* Hashes with the same masked String.hashCode() that the rest of our tables use. */
+    private static int hash(String key, int capacity) {
+        return (key.hashCode() & 0x7fffffff) % capacity;
+    }
+
+    /* Returns the cell that holds key, or -1 if key is not stored. */
+    private static int find(String[][] segments, int capacity, String key) {
+        int cell = hash(key, capacity);
+        String current;
+        while((current = segments[cell / SEGMENT_SIZE][2 * (cell % SEGMENT_SIZE)]) != null) {
+            if(current.equals(key)) {
+                return cell;
+            }
+            cell = (cell + 1) % capacity;
+        }
+        return -1;
+    }
+
+    /* Segments for capacity cells; the last one is only as long as it needs to be. */
+    private static String[][] allocate(int capacity) {
+        String[][] segments = new String[(capacity + SEGMENT_SIZE - 1) / SEGMENT_SIZE][];
+        for(int s = 0; s < segments.length; s++) {
+            segments[s] = new String[2 * Math.min(SEGMENT_SIZE, capacity - s * SEGMENT_SIZE)];
+        }
+        return segments;
+    }
+}
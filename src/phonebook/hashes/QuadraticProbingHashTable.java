@@ -1,10 +1,13 @@
 package phonebook.hashes;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import phonebook.exceptions.UnimplementedMethodException;
 import phonebook.utils.KVPair;
 import phonebook.utils.PrimeGenerator;
+import phonebook.utils.Trace;
+import phonebook.utils.TableStats.Operation;
 
 /**
  * <p>{@link QuadraticProbingHashTable} is an Openly Addressed {@link HashTable} which uses <b>Quadratic
@@ -35,8 +38,6 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
     /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
     /* ********************************************************************/
 	private boolean soft_check;
-	private int tombstone_count;
-	private double threshold;
     /* ******************************************/
     /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS: */
     /* **************************************** */
@@ -60,9 +61,24 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
      *               we want soft deletion, {@code false} otherwise.
      */
     public QuadraticProbingHashTable(boolean soft) {
+        this(soft, 0.5);
+    }
+
+    /**
+     * Constructor with soft deletion option and a custom resizing threshold. Initializes the internal storage with a size
+     * equal to the starting value of {@link PrimeGenerator}. Above 0.5, the probe sequence of a key is no longer
+     * guaranteed to meet an empty cell; the table then grows early.
+     * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
+     *               we want soft deletion, {@code false} otherwise.
+     * @param threshold The load factor, including tombstones, above which the table grows. The default is 0.5.
+     * @throws IllegalArgumentException if threshold is not strictly between 0 and 1.
+     */
+    public QuadraticProbingHashTable(boolean soft, double threshold) {
+        if(threshold <= 0 || threshold >= 1)
+            throw new IllegalArgumentException("Provided a threshold of " + threshold + ".");
         this.soft_check = soft;
         this.tombstone_count = 0;
-        this.threshold = 0.5;
+        this.threshold = threshold;
         this.count = 0;
         this.softFlag = soft;
         this.primeGenerator = new PrimeGenerator();
@@ -71,192 +87,179 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
 
     @Override
     public String put(String key, String value) {
-    	System.out.println("Insertion QP --> Key: " + key + ", Value: " + value);
-    	
         if(key == null || value == null) {
         	return null;
-        }else {
-        	//
-        	//if threshold had been reached, resize and reinsert
-        	if(threshold < ((double)(this.count + this.tombstone_count))/((double) this.table.length)){
-     		   ArrayList<KVPair> newTable = new ArrayList<>();
-     		   for(KVPair pairs: this.table) {
-     			   if(pairs != null && pairs != TOMBSTONE) {
-     				   newTable.add(pairs);
-     			   }
-     		   }
-     		   this.count = 0;
-     		   this.tombstone_count = 0; //No tombstones after a resize
-     		   this.table = new KVPair[this.primeGenerator.getNextPrime()];
-     		   
-     		   int collision_count = 1;
-       		   int quad_probing = 0;
-     		   
-     		   //Re-insert all elements
-     		   if(newTable.size() > 0) {
-     			   for(KVPair pairs : newTable) {
-     				  collision_count = 1;
-     	       		  quad_probing = 0;
-     	       		   
-     				   int newIndex = this.hash(pairs.getKey());
-     				   int startIndex = this.hash(pairs.getKey());
-     				   
-     				   while(this.table[newIndex] != null) {
-     					//if a collision occurs, calculate ---> (i^2) + i
-     		     	    	quad_probing = (collision_count*collision_count) + collision_count;
-     		     	    	//use polynomial (i^2) + i to increment target cells
-     		     	    	newIndex = (startIndex + quad_probing) % this.table.length;
-     		     	    	//increment collision counter to prepare for another collision
-     		     	    	collision_count++;
-     				   }
-     				   this.table[newIndex] = pairs;
-     				   this.count++;
-     				   //reset variables for quadratic probing
-     			   }
-     		   }
-     	    }
-        	//---------------------------------
-        	//The actual insertion: ----------------------------
-        	//---------------------------------
-        	//calculate target index
-     	    int target_index = this.hash(key);
-     	    int start_index = this.hash(key);
-     	    //int collisions = 0;
-     	    // set collision counter to use for probing calculation
-     		int collision_count = 1;
-     		int quad_probing = 0;
-     		
-     	    while(this.table[target_index] != null) {
-     	    	//Collision occurred, calculate ---> (i^2) + i
-     	    	quad_probing = (collision_count*collision_count) + collision_count;
-     	    	//use polynomial (i^2) + i to increment target cells
-     	    	target_index = (start_index + quad_probing) % this.table.length;
-     	    	//increment collision counter to prepare for another collision
-     	    	collision_count++;
-     	    }
-     	    
-     	    // found empty cell, now insert
-     	    this.table[target_index] = new KVPair(key, value);
-     	    this.count++;
-     	    //return string associated with key
-     	    return value;
-     	   
         }
+        upsert(key, value);
+        //return string associated with key
+        return value;
     }
 
-
+    /**
+     * Inserts the pair &lt;key, value&gt; into this, or overwrites the value of key in place if key is already
+     * stored. The existing record is detected during the same probe that looks for a free cell.
+     *
+     * @param key The record's key.
+     * @param value The record's value.
+     * @throws IllegalArgumentException if either argument is {@code null}.
+     * @return The value previously associated with key, or {@code null} if key was not stored.
+     */
     @Override
-    public String get(String key) {
-    	
-        if(key == null) {
-        	return null;
+    public String upsert(String key, String value) {
+        if(key == null || value == null) {
+        	throw new IllegalArgumentException();
         }
-        
+        if(Trace.OPERATIONS) Trace.record("QP.put", key, value);
+        //if threshold had been reached, resize and reinsert
+        if(threshold < ((double)(this.count + this.tombstone_count))/((double) this.table.length)){
+        	rehash(this.primeGenerator.getNextPrime());
+        }
+        String previous = place(key, value);
+        recordProbes(previous == null ? Operation.PUT_INSERT : Operation.PUT_UPDATE, this.lastProbes);
+        return previous;
+    }
+
+    /* Upserts without checking the resizing threshold or counting the operation. The number of cells
+     * inspected is left in lastProbes. */
+    @Override
+    protected String place(String key, String value) {
+        //---------------------------------
+        //The actual insertion: ----------------------------
+        //---------------------------------
         //calculate target index
- 	    int target_index = this.hash(key);
- 	    int wrap_check = this.hash(key);
+ 	    int start_index = this.hash(key);
+ 	    int target_index = start_index;
  	    // set collision counter to use for probing calculation
  		int collision_count = 0;
- 		int quad_probing;
-        
- 		//search until key is found, while avoiding Tombstones 
-        while(this.table[target_index] != null) {
-        	 if (target_index == wrap_check && collision_count > 0){ // search fail, wrap around to the start index
-                 return null;
-             }
-        	 if (this.table[target_index].getKey().equals(key) && this.table[target_index] != TOMBSTONE){
-        		 String ret_val = this.table[target_index].getValue();
-        	       
-        	     return ret_val;
-             }
-        	//if a collision occurred during insertion, calculate ---> (i^2) + i
- 	    	quad_probing = ((collision_count*collision_count) + collision_count);
- 	    	//use polynomial (i^2) + i to increment target cells
- 	    	target_index = (target_index + quad_probing) % this.table.length;
- 	    	//increment collision counter to keep up with other previous collisions
+ 		
+ 	    while(this.table[target_index] != null) {
+ 	    	if(this.table[target_index] != TOMBSTONE && this.table[target_index].getKey().equals(key)) {
+ 	    		this.lastProbes = collision_count + 1;
+ 	    		String previous = this.table[target_index].getValue();
+ 	    		this.table[target_index].setValue(value);
+ 	    		return previous;
+ 	    	}
+ 	    	//Collision occurred, move on to the next cell of the probe sequence
  	    	collision_count++;
-        }
-       
-       return null;
+ 	    	if(collision_count >= this.table.length) {
+ 	    		//probe sequence exhausted without meeting an empty cell: grow and try again
+ 	    		rehash(this.primeGenerator.getNextPrime());
+ 	    		return place(key, value);
+ 	    	}
+ 	    	target_index = probe(start_index, collision_count);
+ 	    }
+ 	    this.lastProbes = collision_count + 1;
+ 	    
+ 	    // found empty cell, now insert
+ 	    this.table[target_index] = new KVPair(key, value);
+ 	    this.count++;
+ 	    return null;
+    }
+
+    /* The cell visited after the given number of collisions: start + (i^2) + i, with wrap-around. */
+    @Override
+    protected int probe(int start_index, int collision_count) {
+    	return (int)((start_index + (long)collision_count * collision_count + collision_count) % this.table.length);
+    }
+
+    /* Re-inserts every live pair into a fresh table of the given capacity, dropping all tombstones. */
+    @Override
+    protected void rehash(int capacity) {
+    	ResizeEvent event = new ResizeEvent();
+    	event.begin();
+    	int old_capacity = this.table.length;
+    	ArrayList<KVPair> newTable = new ArrayList<>();
+    	for(KVPair pairs: this.table) {
+    		if(pairs != null && pairs != TOMBSTONE) {
+    			newTable.add(pairs);
+    		}
+    	}
+    	this.tombstone_count = 0; //No tombstones after a resize
+    	//Re-insert all elements; above half load a probe sequence may miss every empty cell, so grow until all fit
+    	while(!reinsert(newTable, capacity)) {
+    		capacity = this.primeGenerator.getNextPrime();
+    	}
+    	if(capacity != old_capacity) {
+    		this.resizes++;
+    	}
+    	event.report(this, old_capacity, capacity, newTable.size());
+    }
+
+
+    /* Places every pair into a fresh table of the given capacity. Returns false if some pair's probe sequence
+     * met no empty cell, in which case the table must be rebuilt at a larger capacity. */
+    private boolean reinsert(List<KVPair> pairs, int capacity) {
+    	this.count = 0;
+    	this.table = new KVPair[capacity];
+    	for(KVPair pair : pairs) {
+    		int startIndex = this.hash(pair.getKey());
+    		int newIndex = startIndex;
+    		int collision_count = 0;
+    		while(this.table[newIndex] != null) {
+    			collision_count++;
+    			if(collision_count >= capacity) {
+    				return false;
+    			}
+    			newIndex = probe(startIndex, collision_count);
+    		}
+    		this.table[newIndex] = pair;
+    		this.count++;
+    	}
+    	return true;
+    }
+
+    @Override
+    public String get(String key) {
+    	if(key == null) {
+    		return null;
+    	}
+    	//search for target cell. If found, return value that is paired with the key
+    	int target_index = find(key);
+    	recordProbes(target_index >= 0 ? Operation.GET_HIT : Operation.GET_MISS, this.lastProbes);
+    	return (target_index >= 0) ? this.table[target_index].getValue() : null;
     }
 
     @Override
     public String remove(String key) {
-    	
-    	System.out.println("Removal QP --> Key: " + key);
-    	
+    	if(Trace.OPERATIONS) Trace.record("QP.remove", key, null);
     	if(key == null) {
     		return null;
     	}
+    	int target_index = find(key);
+    	if(target_index < 0) {
+    		//not found, return null
+    		recordProbes(Operation.REMOVE_MISS, this.lastProbes);
+    		return null;
+    	}
+    	recordProbes(Operation.REMOVE_HIT, this.lastProbes);
+    	String ret_val = this.table[target_index].getValue();
     	
-        //calculate target index
- 	    int target_index = this.hash(key);
- 	    int wrap_check = this.hash(key);
- 	    // set collision counter to use for probing calculation
- 		int collision_count = 0;
- 		int quad_probing = 0;
- 		
- 		String ret_val;
- 		
- 		if(this.soft_check) {
- 			//soft deletion
- 			while(this.table[target_index] != null) {
- 				//if all locations have been visited, return null
- 				if(target_index == wrap_check && collision_count > 0) {
- 					return null;
- 				}
- 				
- 				if(this.table[target_index].getKey().equals(key) && this.table[target_index] != TOMBSTONE) {
- 					ret_val = this.table[target_index].getValue();
- 					this.table[target_index] = TOMBSTONE;
- 					this.tombstone_count++;
- 					this.count--;
- 					return ret_val;
- 				}
- 				//quadratic probing mechanism
- 				quad_probing = ((collision_count*collision_count) + collision_count);
- 				target_index = (wrap_check + quad_probing) % this.table.length;
- 				collision_count++;
- 			}
- 		}else {
- 			//hard deletion
- 			while(this.table[target_index] != null) {
- 				
- 				if(target_index == wrap_check && collision_count > 0) {
- 					return null;
- 				}
- 				//find key
- 				if(this.table[target_index].getKey().equals(key)) {
- 					//extract value from KV Pair
- 					ret_val = this.table[target_index].getValue();
- 					//set target to null
- 					this.table[target_index] = null;
- 					// Re-insert after deletion
- 					this.count = 0;
- 					ArrayList<KVPair> new_table = new ArrayList<>();
- 					for(KVPair pairs : this.table) {
- 						if(pairs != null) {
- 							new_table.add(pairs);
- 						}
- 					}
- 					// re-instantiation of hash table
- 					this.table = new KVPair[primeGenerator.getCurrPrime()];
- 					
- 					if(new_table.size() > 0) {
- 						for(KVPair pairs: new_table) {
- 							this.put(pairs.getKey(), pairs.getValue());
- 						}
- 					}
- 					
- 					return ret_val;
- 				}
- 				//quadratic probing
- 				quad_probing = (collision_count*collision_count) + collision_count;
- 				target_index = (wrap_check + quad_probing) % this.table.length;
- 				collision_count++;
- 			}
- 		}
- 		return null;
+        if(this.soft_check) {
+        	//soft deletion
+        	this.table[target_index] = TOMBSTONE;
+        	this.tombstone_count++;
+        	this.count--;
+        	return ret_val;
+        }
+        //hard deletion: set target to null
+        DeleteCascadeEvent event = new DeleteCascadeEvent();
+        event.begin();
+        this.table[target_index] = null;
+        // Re-insert after deletion
+        this.count = 0;
+        ArrayList<KVPair> new_table = new ArrayList<>();
+        for(KVPair pairs : this.table) {
+        	if(pairs != null) {
+        		new_table.add(pairs);
+        	}
+        }
+        // re-instantiation of hash table
+        this.table = new KVPair[primeGenerator.getCurrPrime()];
+        for(KVPair pairs: new_table) {
+        	place(pairs.getKey(), pairs.getValue());
+        }
+        event.report(this, this.table.length, new_table.size());
+        return ret_val;
     }
 
 
@@ -279,7 +282,7 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
        }
        
        for(int i = 0; i < this.table.length; i++) {
-    	   if(this.table[i].getValue().equals(value) && this.table[i] != TOMBSTONE) {
+    	   if(this.table[i] != null && this.table[i] != TOMBSTONE && this.table[i].getValue().equals(value)) {
     		   return true;
     	   }
        }
@@ -0,0 +1,47 @@
+package phonebook.hashes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * <p>{@link ResizeEvent} is the JDK Flight Recorder event of a table rebuild: a resize of an openly addressed
+ * table from its {@code put()} path or from {@link HashTable#ensureCapacity(int)}, a compaction that drops
+ * tombstones, a call to {@link SeparateChainingHashTable#enlarge()} or {@link SeparateChainingHashTable#shrink()}, or
+ * a growth of the indices of {@link BidirectionalHashTable}. Its duration is the time spent moving the entries.</p>
+ *
+ * <p>When Flight Recorder is not recording this event, {@link #begin()} and {@link #report(Object, int, int, int)}
+ * reduce to a check of a flag, so the event can stay in the code unconditionally.</p>
+ */
+@Name("phonebook.Resize")
+@Label("Hash Table Resize")
+@Category({"Phonebook", "Hash Tables"})
+@Description("A hash table moved all of its entries into a new array")
+class ResizeEvent extends Event {
+
+    @Label("Table")
+    String table;
+
+    @Label("Old Capacity")
+    int oldCapacity;
+
+    @Label("New Capacity")
+    int newCapacity;
+
+    @Label("Entries Moved")
+    int entriesMoved;
+
+    /* Ends the event and commits it, if it is being recorded. */
+    void report(Object table, int oldCapacity, int newCapacity, int entriesMoved) {
+        end();
+        if (shouldCommit()) {
+            this.table = table.getClass().getSimpleName();
+            this.oldCapacity = oldCapacity;
+            this.newCapacity = newCapacity;
+            this.entriesMoved = entriesMoved;
+            commit();
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package phonebook.hashes;
 
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
 
 import phonebook.exceptions.UnimplementedMethodException;
 import phonebook.utils.KVPair;
 import phonebook.utils.KVPairList;
 import phonebook.utils.PrimeGenerator;
-import phonebook.utils.Probes;
+import phonebook.utils.Trace;
+import phonebook.utils.ProbeCounter;
+import phonebook.utils.SipHash;
+import phonebook.utils.SlotOrder;
+import phonebook.utils.TableStats;
+import phonebook.utils.TableStats.Operation;
 
 /**<p>{@link SeparateChainingHashTable} is a {@link HashTable} that implements <b>Separate Chaining</b>
  * as its collision resolution strategy, i.e the collision chains are implemented as actual
@@ -32,12 +40,29 @@ public class SeparateChainingHashTable implements HashTable{
     private KVPairList[] table;
     private int count;
     private PrimeGenerator primeGenerator;
+    private final ProbeCounter probeCounter = new ProbeCounter();
+    private int resizes;
+    private SipHash seededHash;
 
     // We mask the top bit of the default hashCode() to filter away negative values.
     // Have to copy over the implementation from OpenAddressingHashTable; no biggie.
     public int hash(String key){
+        if(seededHash != null)
+            return seededHash.hash31(key) % table.length;
         return (key.hashCode() & 0x7fffffff) % table.length;
     }
+
+    /**
+     * Makes {@link #hash(String)} use seed instead of {@link String#hashCode()}, so that keys from untrusted sources
+     * cannot all be sent down the same list. See {@link OpenAddressingHashTable#useSeededHash(SipHash)}.
+     * @param seed The keyed hash function to use, or {@code null} to go back to {@link String#hashCode()}.
+     * @throws IllegalStateException if this already holds records, which would have to be rehashed.
+     */
+    public void useSeededHash(SipHash seed) {
+        if(count > 0)
+            throw new IllegalStateException("Cannot change the hash function of a table that holds " + count + " records.");
+        this.seededHash = seed;
+    }
     
     /* **************************************** */
     /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS:  */
@@ -56,22 +81,33 @@ public class SeparateChainingHashTable implements HashTable{
 
     @Override
     public String put(String key, String value) {
-    	System.out.println("Insertion SC--> Key: " + key + ", Value: " + value);
-    	
         if(key == null || value == null) {
         	return null;
         }
-        int target_index = this.hash(key);
-        
-        //add KVPair to end of list at the target index
-        this.table[target_index].addBack(key, value);
-        //increment count
-        this.count++;
+        upsert(key, value);
         //return value associated with key
 		return value;
         
     }
 
+    @Override
+    public String upsert(String key, String value) {
+        if(key == null || value == null) {
+        	throw new IllegalArgumentException();
+        }
+        if(Trace.OPERATIONS) Trace.record("SC.put", key, value);
+        int target_index = this.hash(key);
+        
+        //overwrite the pair in the list at the target index, or add it to the end of the list
+        String previous = this.table[target_index].upsert(key, value);
+        recordProbes(previous == null ? Operation.PUT_INSERT : Operation.PUT_UPDATE, this.table[target_index].getLastProbes());
+        if(previous == null) {
+        	//increment count
+        	this.count++;
+        }
+        return previous;
+    }
+
     @Override
     public String get(String key) {
     	
@@ -79,25 +115,46 @@ public class SeparateChainingHashTable implements HashTable{
     		return null;
     	}
     	
-        return this.table[this.hash(key)].getValue(key).getValue();
+    	KVPairList list = this.table[this.hash(key)];
+    	String value = list.lookup(key);
+    	recordProbes(value != null ? Operation.GET_HIT : Operation.GET_MISS, list.getLastProbes());
+        return value;
+    }
+
+    @Override
+    public String[] getAll(String[] keys) {
+    	//hash every key first, then visit the lists in ascending address order
+    	int[] homes = new int[keys.length];
+    	for(int i = 0; i < keys.length; i++) {
+    		homes[i] = (keys[i] == null) ? -1 : this.hash(keys[i]);
+    	}
+    	String[] values = new String[keys.length];
+    	for(int i : SlotOrder.byHome(homes)) {
+    		values[i] = this.table[homes[i]].lookup(keys[i]);
+    		recordProbes(values[i] != null ? Operation.GET_HIT : Operation.GET_MISS, this.table[homes[i]].getLastProbes());
+    	}
+    	return values;
     }
 
     @Override
     public String remove(String key) {
     
-    	System.out.println("Removal SC--> Key: " + key);
+    	if(Trace.OPERATIONS) Trace.record("SC.remove", key, null);
     	
     	if(key == null) {
     		return null;
     	}
     	
     	int target_index = this.hash(key);
-    	// use KVPair List removeByKey to remove key 
-        Probes removed = this.table[target_index].removeByKey(key);
+    	// use KVPairList delete to remove key 
+        String removed = this.table[target_index].delete(key);
+        recordProbes(removed != null ? Operation.REMOVE_HIT : Operation.REMOVE_MISS, this.table[target_index].getLastProbes());
         //if successful then decrement count
-        this.count--;
+        if(removed != null) {
+        	this.count--;
+        }
         //return value associated with key used for deletion
-        return removed.getValue();
+        return removed;
     }
 
     @Override
@@ -136,10 +193,53 @@ public class SeparateChainingHashTable implements HashTable{
         return table.length; // Or the value of the current prime.
     }
 
+    @Override
+    public TableStats snapshot() {
+    	// chains never leave tombstones behind; the longest chain is the longest list
+    	int longest = 0;
+    	for(KVPairList list : this.table) {
+    		longest = Math.max(longest, list.size());
+    	}
+    	return this.probeCounter.snapshot(getClass().getSimpleName(), this.count, this.table.length, 0,
+    			longest, this.resizes, this.primeGenerator.getCurrIndex());
+    }
+
+    @Override
+    public int tombstones() {
+    	return 0;
+    }
+
+    @Override
+    public int resizes() {
+    	return this.resizes;
+    }
+
+    @Override
+    public int primeIndex() {
+    	return this.primeGenerator.getCurrIndex();
+    }
+
     public KVPairList get(int idx) throws IndexOutOfBoundsException {
     	return table[idx];
     }
 
+    /**
+     * Walks the lists of the current array, a whole list at a time. A resize does not affect a {@link Spliterator}
+     * that was created before it, which keeps walking the old array.
+     * @param record Makes an element out of the key and the value of a record.
+     * @param <T> The type of the elements.
+     * @return A {@link Spliterator} over the records of this, sized until it is split.
+     */
+    @Override
+    public <T> Spliterator<T> spliterator(BiFunction<String, String, T> record) {
+    	KVPairList[] lists = table;
+    	return new SlotSpliterator<>((cell, sink) -> {
+    		for(KVPair pair : lists[cell]) {
+    			sink.accept(pair.getKey(), pair.getValue());
+    		}
+    	}, lists.length, count, false, record);
+    }
+
     /**
      * Enlarges this hash table. At the very minimum, this method should increase the <b>capacity</b> of the hash table and ensure
      * that the new size is prime. The class {@link PrimeGenerator} implements the enlargement heuristic that
@@ -147,29 +247,8 @@ public class SeparateChainingHashTable implements HashTable{
      * @see PrimeGenerator#getNextPrime()
      */
     public void enlarge() {
-        //set up array list to use for re-insertion
-    	ArrayList<KVPair> new_table = new ArrayList<>();
-    	for(int i = 0; i < this.table.length; i++) {
-    		for(KVPair pairs : this.table[i]) {
-    			new_table.add(pairs);
-    		}
-    	}
     	//create new hash table with next prime available;
-    	int capacity_resize = primeGenerator.getNextPrime();
-    	this.table = new KVPairList[capacity_resize];
-    	//reset count
-    	this.count = 0;
-    	//make each bucket have a new list for separate chaining
-    	for(int i = 0; i < this.table.length; i++) {
-    		this.table[i] = new KVPairList();
-    	}
-    	
-    	//transfer KV pairs if array list has any 
-    	if(new_table.size() > 0) {
-    		for(KVPair pairs : new_table) {
-    			this.put(pairs.getKey(), pairs.getValue());
-    		}
-    	}
+    	rehash(primeGenerator.getNextPrime());
     }
 
     /**
@@ -180,28 +259,73 @@ public class SeparateChainingHashTable implements HashTable{
      * @see PrimeGenerator#getPreviousPrime()
      */
     public void shrink(){
-    	//set up array list to use for re-insertion
+    	//create new hash table with previous prime available;
+    	rehash(primeGenerator.getPreviousPrime());
+    }
+
+    @Override
+    public void putAll(Iterable<Map.Entry<String, String>> entries) {
+    	//validate the whole batch before touching the table
+    	ArrayList<Map.Entry<String, String>> batch = new ArrayList<>();
+    	for(Map.Entry<String, String> entry : entries) {
+    		if(entry.getKey() == null || entry.getValue() == null) {
+    			throw new IllegalArgumentException();
+    		}
+    		batch.add(entry);
+    	}
+    	ensureCapacity(this.count + batch.size());
+    	for(Map.Entry<String, String> entry : batch) {
+    		upsert(entry.getKey(), entry.getValue());
+    	}
+    }
+
+    /**
+     * Enlarges this hash table, at most once, until it has at least as many lists as size. This keeps the expected
+     * length of every list at or below one.
+     * @param size The number of records that this should be able to hold.
+     */
+    @Override
+    public void ensureCapacity(int size) {
+    	int capacity = this.table.length;
+    	while(capacity < size) {
+    		capacity = primeGenerator.getNextPrime();
+    	}
+    	if(capacity != this.table.length) {
+    		rehash(capacity);
+    	}
+    }
+
+    /* Moves every pair into a fresh table of the given capacity. */
+    private void rehash(int capacity) {
+    	ResizeEvent event = new ResizeEvent();
+    	event.begin();
+    	int old_capacity = this.table.length;
+        //set up array list to use for re-insertion
     	ArrayList<KVPair> new_table = new ArrayList<>();
     	for(int i = 0; i < this.table.length; i++) {
     		for(KVPair pairs : this.table[i]) {
     			new_table.add(pairs);
     		}
     	}
-    	//create new hash table with next prime available;
-    	int capacity_resize = primeGenerator.getPreviousPrime();
-    	this.table = new KVPairList[capacity_resize];
-    	//reset count
-    	this.count = 0;
+    	this.table = new KVPairList[capacity];
     	//make each bucket have a new list for separate chaining
     	for(int i = 0; i < this.table.length; i++) {
     		this.table[i] = new KVPairList();
     	}
     	
-    	//transfer KV pairs if array list has any 
-    	if(new_table.size() > 0) {
-    		for(KVPair pairs : new_table) {
-    			this.put(pairs.getKey(), pairs.getValue());
-    		}
+    	//transfer KV pairs; the count does not change
+    	for(KVPair pairs : new_table) {
+    		this.table[this.hash(pairs.getKey())].addBack(pairs.getKey(), pairs.getValue());
+    	}
+    	if(capacity != old_capacity) {
+    		this.resizes++;
     	}
+    	event.report(this, old_capacity, capacity, new_table.size());
+    }
+
+    /* Counts one operation, and reports it to Flight Recorder if its list walk was unusually long. */
+    private void recordProbes(Operation op, int probes) {
+    	this.probeCounter.record(op, probes);
+    	LongProbeEvent.check(this, op, probes);
     }
 }
@@ -0,0 +1,109 @@
+package phonebook.hashes;
+
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * <p>{@link SlotSpliterator} is the {@link Spliterator} behind {@link HashTable#spliterator(BiFunction)}. It walks a
+ * range of the cells of a table in address order and splits by halving that range, so that every worker of a parallel
+ * stream scans a contiguous part of the table. What a cell holds is up to the table, through {@link Cells}: at most one
+ * record for an openly addressed table, and a whole chain for separate chaining.</p>
+ *
+ * <p>Before it is split, a {@link SlotSpliterator} over a table that is not thread-safe knows its exact size, the size
+ * of the table. Records are not spread evenly over the cells, so the halves only know an estimate.</p>
+ */
+final class SlotSpliterator<T> implements Spliterator<T> {
+
+    /* Reports the records of a cell to a sink, as pairs of a key and a value. */
+    interface Cells {
+        void forEachIn(int cell, BiConsumer<String, String> sink);
+    }
+
+    private final Cells cells;
+    private final BiFunction<String, String, T> record;
+    private final int to;
+    private int from;
+    private long estimate;
+    private int characteristics;
+    // records of a chain that tryAdvance() has read but not reported yet
+    private ArrayDeque<T> pending;
+
+    /**
+     * Creates a {@link SlotSpliterator} over every cell of a table.
+     * @param cells The cells of the table.
+     * @param capacity The number of cells of the table.
+     * @param size The number of records of the table.
+     * @param concurrent {@code true} if the table may change during the traversal, in which case size is an estimate.
+     * @param record Makes the elements of the traversal out of the keys and values of the records.
+     */
+    SlotSpliterator(Cells cells, int capacity, long size, boolean concurrent, BiFunction<String, String, T> record) {
+        this(cells, record, 0, capacity, size, NONNULL | (concurrent ? CONCURRENT : SIZED));
+    }
+
+    private SlotSpliterator(Cells cells, BiFunction<String, String, T> record, int from, int to, long estimate,
+                            int characteristics) {
+        this.cells = cells;
+        this.record = record;
+        this.from = from;
+        this.to = to;
+        this.estimate = estimate;
+        this.characteristics = characteristics;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if(pending == null) {
+            pending = new ArrayDeque<>();
+        }
+        while(pending.isEmpty() && from < to) {
+            cells.forEachIn(from++, (key, value) -> pending.add(record.apply(key, value)));
+        }
+        if(pending.isEmpty()) {
+            return false;
+        }
+        estimate = Math.max(0, estimate - 1);
+        action.accept(pending.poll());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        if(pending != null) {
+            while(!pending.isEmpty()) {
+                action.accept(pending.poll());
+            }
+        }
+        BiConsumer<String, String> sink = (key, value) -> action.accept(record.apply(key, value));
+        while(from < to) {
+            cells.forEachIn(from++, sink);
+        }
+        estimate = 0;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int middle = (from + to) >>> 1;
+        if(middle <= from) {
+            return null;
+        }
+        long half = estimate * (middle - from) / (to - from);
+        estimate -= half;
+        characteristics &= ~SIZED;
+        Spliterator<T> prefix = new SlotSpliterator<>(cells, record, from, middle, half, characteristics);
+        from = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return characteristics;
+    }
+}
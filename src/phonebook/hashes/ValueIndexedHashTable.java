@@ -0,0 +1,187 @@
+package phonebook.hashes;
+
+import phonebook.utils.TableStats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+
+/**
+ * <p>{@link ValueIndexedHashTable} adds a secondary index of values to another {@link HashTable}, so that
+ * {@link #containsValue(String)} runs in <em>constant time</em> instead of scanning every cell. The index counts the keys
+ * of every value, since different keys may map to the same value, and is maintained on every {@code put},
+ * {@code upsert} and {@code remove}, from the previous values that those operations report anyway. The price is an
+ * index entry per distinct value, and an index update per write.</p>
+ *
+ * <p>Every other operation is served by the wrapped table, which should not be used directly once wrapped, or the
+ * index would miss its changes. Like the tables it wraps, this class is <b>not</b> thread-safe.</p>
+ *
+ * @see HashTable#containsValueParallel(String)
+ * @see phonebook.benchmarks.ContainsValueBenchmark
+ */
+public class ValueIndexedHashTable implements HashTable {
+
+    private final HashTable table;
+    private final Map<String, Integer> keysOfValue = new HashMap<>();
+
+    /**
+     * Indexes the values of table, including the records that it already holds.
+     * @param table The {@link HashTable} to index.
+     * @throws IllegalArgumentException if table is {@code null}.
+     */
+    public ValueIndexedHashTable(HashTable table) {
+        if(table == null)
+            throw new IllegalArgumentException("Provided a null table.");
+        this.table = table;
+        if(table.size() > 0) {
+            table.values().forEach(this::index);
+        }
+    }
+
+    @Override
+    public String put(String key, String value) {
+        upsert(key, value);
+        return value;
+    }
+
+    @Override
+    public String upsert(String key, String value) {
+        if(key == null || value == null)
+            throw new IllegalArgumentException("Provided: key=" + key + " and value= " + value);
+        String previous = table.upsert(key, value);
+        unindex(previous);
+        index(value);
+        return previous;
+    }
+
+    @Override
+    public void putAll(Iterable<Map.Entry<String, String>> entries) {
+        List<Map.Entry<String, String>> batch = new ArrayList<>();
+        for(Map.Entry<String, String> entry : entries) {
+            if(entry == null || entry.getKey() == null || entry.getValue() == null)
+                throw new IllegalArgumentException("Provided: entry=" + entry);
+            batch.add(entry);
+        }
+        table.ensureCapacity(table.size() + batch.size());
+        for(Map.Entry<String, String> entry : batch) {
+            upsert(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void removeAll(Iterable<String> keys) {
+        // look the values up before the wrapped table removes the keys as a batch; a key may be listed twice
+        Set<String> distinct = new LinkedHashSet<>();
+        for(String key : keys) {
+            if(key != null && distinct.add(key)) {
+                unindex(table.get(key));
+            }
+        }
+        table.removeAll(distinct);
+    }
+
+    @Override
+    public String remove(String key) {
+        String previous = table.remove(key);
+        unindex(previous);
+        return previous;
+    }
+
+    @Override
+    public void ensureCapacity(int size) {
+        table.ensureCapacity(size);
+    }
+
+    @Override
+    public void compact() {
+        table.compact();
+    }
+
+    @Override
+    public String get(String key) {
+        return table.get(key);
+    }
+
+    @Override
+    public String[] getAll(String[] keys) {
+        return table.getAll(keys);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return table.containsKey(key);
+    }
+
+    /**
+     * Looks value up in the index, in <em>constant time</em>.
+     * @param value The value to search for.
+     * @return {@code true} if value is the value of some record in our hash table, {@code false} otherwise.
+     */
+    @Override
+    public boolean containsValue(String value) {
+        return value != null && keysOfValue.containsKey(value);
+    }
+
+    @Override
+    public boolean containsValueParallel(String value) {
+        return containsValue(value);
+    }
+
+    @Override
+    public <T> Spliterator<T> spliterator(BiFunction<String, String, T> record) {
+        return table.spliterator(record);
+    }
+
+    @Override
+    public int size() {
+        return table.size();
+    }
+
+    @Override
+    public int capacity() {
+        return table.capacity();
+    }
+
+    @Override
+    public TableStats snapshot() {
+        return table.snapshot();
+    }
+
+    @Override
+    public int tombstones() {
+        return table.tombstones();
+    }
+
+    @Override
+    public int resizes() {
+        return table.resizes();
+    }
+
+    @Override
+    public int primeIndex() {
+        return table.primeIndex();
+    }
+
+    /**
+     * Returns the number of distinct values stored, i.e the number of entries of the index.
+     * @return the number of distinct values stored.
+     */
+    public int distinctValues() {
+        return keysOfValue.size();
+    }
+
+    private void index(String value) {
+        keysOfValue.merge(value, 1, Integer::sum);
+    }
+
+    private void unindex(String value) {
+        if(value != null) {
+            keysOfValue.computeIfPresent(value, (v, keys) -> (keys == 1) ? null : keys - 1);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package phonebook.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import phonebook.utils.TableStats.Operation;
+
+/**
+ * <p>{@link ConcurrentProbeCounter} keeps the probe count histograms of a thread-safe hash table. Every thread records
+ * into a {@link ProbeCounter} of its own, so recording stays one array increment that never contends with other
+ * threads, and {@link #snapshot(String, int, int, int, int, int, int)} merges the counters of all threads on read.
+ * Once a thread has terminated, its counts are folded into a counter shared by all terminated threads, so an instance
+ * holds the counters of the threads that are alive, and one more, however many threads have used the table over its
+ * lifetime, such as one thread per request.</p>
+ *
+ * @see ProbeCounter
+ * @see LatencyRecorder
+ */
+public class ConcurrentProbeCounter {
+
+    /* The number of registered threads below which register() does not look for terminated ones. */
+    private static final int SWEEP_MIN = 16;
+
+    /* The counter of a thread, until it terminates. */
+    private static final class Registration {
+        final WeakReference<Thread> thread;
+        final ProbeCounter counter;
+
+        Registration(Thread thread, ProbeCounter counter) {
+            this.thread = new WeakReference<>(thread);
+            this.counter = counter;
+        }
+    }
+
+    // all guarded by this; record() only touches the counter of its own thread
+    private final List<Registration> threads = new ArrayList<>();
+    private final ProbeCounter terminated = new ProbeCounter();
+    private int sweepAt = SWEEP_MIN;
+    private final ThreadLocal<ProbeCounter> local = ThreadLocal.withInitial(this::register);
+
+    /**
+     * Counts one operation in the counter of the calling thread.
+     * @param op The kind of operation.
+     * @param probes The number of cells, or list nodes, that the operation inspected.
+     */
+    public void record(Operation op, int probes) {
+        local.get().record(op, probes);
+    }
+
+    /**
+     * Merges the counters of every thread that has recorded to this into an immutable {@link TableStats}.
+     * @param table A short description of the table.
+     * @param size The number of records in the table.
+     * @param capacity The capacity of the table.
+     * @param tombstones The number of tombstones in the table.
+     * @param longestChain The length of the longest probe sequence or list of the table.
+     * @param resizes The number of times the table has changed capacity.
+     * @param primeIndex The index of the current prime of the table.
+     * @return A snapshot of the counters and of the provided table state.
+     */
+    public synchronized TableStats snapshot(String table, int size, int capacity, int tombstones, int longestChain,
+                                            int resizes, int primeIndex) {
+        sweep();
+        ProbeCounter merged = new ProbeCounter();
+        merged.add(terminated);
+        for (Registration thread : threads) {
+            merged.add(thread.counter);
+        }
+        return merged.snapshot(table, size, capacity, tombstones, longestChain, resizes, primeIndex);
+    }
+
+    /* Called once per thread, on its first record(). Looks for terminated threads whenever the number of
+     * registrations has doubled since the last time, so that registering stays amortized constant time. */
+    private synchronized ProbeCounter register() {
+        if (threads.size() >= sweepAt) {
+            sweep();
+            sweepAt = Math.max(SWEEP_MIN, 2 * threads.size());
+        }
+        ProbeCounter counter = new ProbeCounter();
+        threads.add(new Registration(Thread.currentThread(), counter));
+        return counter;
+    }
+
+    /* Folds the counter of every terminated thread into terminated. A thread that has terminated records nothing
+     * more, and seeing it terminated makes all of its records visible. */
+    private void sweep() {
+        threads.removeIf(registration -> {
+            Thread thread = registration.thread.get();
+            if (thread != null && thread.isAlive()) {
+                return false;
+            }
+            terminated.add(registration.counter);
+            return true;
+        });
+    }
+}
@@ -35,6 +35,7 @@ public class KVPairList implements Iterable<KVPair>{
 
     private Node head, tail;
     private int count;
+    private int lastProbes;
 
     /**
      * Default constructor. Initializes an empty {@link KVPairList}.
@@ -72,6 +73,90 @@ public class KVPairList implements Iterable<KVPair>{
     }
 
 
+    /**
+     * Updates the value of the <b>first</b> pair with key key, or appends &lt; key, value &gt; to the back of the list
+     * if key does not exist in this. Unlike {@link #updateValue(String, String)} followed by {@link #addBack(String, String)},
+     * this traverses the list only once. The number of nodes inspected is available from {@link #getLastProbes()}.
+     * @param key The &quot;key&quot; {@link String} in the pair.
+     * @param value The &quot;value&quot; {@link String} in the pair.
+     * @return {@code null} if key was appended, otherwise the value that was overwritten.
+     */
+    public String upsert(String key, String value){
+        Node current = head;
+        lastProbes = 1;
+        while(current != null){
+            if(current.pair.getKey().equals(key)){
+                String previous = current.pair.getValue();
+                current.pair.setValue(value);
+                return previous;
+            }
+            lastProbes++;
+            current = current.next;
+        }
+        addBack(key, value);
+        return null;
+    }
+
+    /**
+     * Allocation-free version of {@link #getValue(String)}. The number of nodes inspected is available from
+     * {@link #getLastProbes()}.
+     * @param key the &quot;key&quot; {@link String} to search for.
+     * @return The &quot;value&quot; {@link String} or {@code null} if key could not be found in this.
+     */
+    public String lookup(String key){
+        Node current = head;
+        lastProbes = 1;
+        while(current != null) {
+            if (current.pair.getKey().equals(key)){
+                return current.pair.getValue();
+            }
+            current = current.next;
+            lastProbes++;
+        }
+        return null;
+    }
+
+    /**
+     * Allocation-free version of {@link #removeByKey(String)}. The number of nodes inspected is available from
+     * {@link #getLastProbes()}.
+     * @param key The &quot; key &quot; {@link String} to match with entries.
+     * @return {@code null} if it is an unsuccessful remove, otherwise the value associated with the key.
+     */
+    public String delete(String key){
+        Node current = head;
+        Node previous = null;
+        lastProbes = 1;
+        while(current != null){
+            if(current.pair.getKey().equals(key)){ // Found it
+                if(previous != null) {
+                    previous.next = current.next;
+                }
+                if(current == head) {
+                    head = head.next;
+                }
+                if(current == tail){
+                    tail = previous;
+                }
+                count--;
+                return current.pair.getValue();
+            }
+            lastProbes++;
+            previous = current;
+            current = current.next;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of nodes inspected by the last call to {@link #upsert(String, String)}, {@link #lookup(String)}
+     * or {@link #delete(String)}. An unsuccessful search counts the end of the list as one extra probe, like
+     * {@link Probes} does.
+     * @return The number of probes of the last counted operation.
+     */
+    public int getLastProbes(){
+        return lastProbes;
+    }
+
     /**
      * Updates the value of the pair &lt; key, value &gt; based on the provided key. If key does not exist
      * in this, this method has <b>no effect</b>.
@@ -0,0 +1,131 @@
+package phonebook.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>{@link LatencyHistogram} counts latencies, in nanoseconds, in the log-linear buckets popularized by
+ * HdrHistogram: every power of two is split into {@link #SUB_BUCKETS} equal buckets, so that every recorded value is
+ * reported with a relative error of at most 1 / {@link #SUB_BUCKETS} (about 3&#37;) over the whole range of
+ * {@code long}, in a fixed 15 KB of counters.</p>
+ *
+ * <p>A {@link LatencyHistogram} has a <b>single writer</b>: only one thread may call {@link #record(long)}. Recording
+ * is then a plain read-modify-write followed by an ordered store, without locks or atomic read-modify-write
+ * instructions. Any number of threads may read the histogram, or {@link #add(LatencyHistogram) add} it to another one,
+ * at the same time; they see a slightly stale, but never corrupt, state.</p>
+ *
+ * @see LatencyRecorder
+ */
+public class LatencyHistogram {
+
+    /** The number of buckets that every power of two is split into. */
+    public static final int SUB_BUCKETS = 32;
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Counts one latency. Only the owning thread may call this method.
+     * @param nanos The latency, in nanoseconds. Negative values, which {@link System#nanoTime()} never yields for
+     *              an interval, are counted as 0.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int bucket = bucketOf(nanos);
+        counts.lazySet(bucket, counts.get(bucket) + 1);
+        if (nanos > max.get()) {
+            max.lazySet(nanos);
+        }
+    }
+
+    /**
+     * Adds every latency counted by other to this histogram. Unlike {@link #record(long)}, this method may be called
+     * by any thread, as long as this histogram is not being recorded to at the same time.
+     * @param other The histogram to merge into this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.set(i, counts.get(i) + count);
+            }
+        }
+        max.set(Math.max(max.get(), other.max.get()));
+    }
+
+    /**
+     * Returns how many latencies have been counted.
+     * @return The number of latencies counted.
+     */
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the largest latency counted, exactly.
+     * @return The largest latency counted, in nanoseconds, or 0 if none has been counted.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns the latency that percentile percent of all counted latencies do not exceed, e.g {@code percentile(99.9)}
+     * for the p999. The result is the upper end of the bucket that holds that latency, and never more than
+     * {@link #max()}.
+     * @param percentile A percentage, between 0 and 100.
+     * @return The latency at percentile, in nanoseconds, or 0 if no latency has been counted.
+     * @throws IllegalArgumentException if percentile is not between 0 and 100.
+     */
+    public long percentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100))
+            throw new IllegalArgumentException("A percentile must be between 0 and 100, provided " + percentile + ".");
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max());
+            }
+        }
+        return max();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count() + ", p50=" + percentile(50) + "ns, p99=" + percentile(99) + "ns, p999="
+                + percentile(99.9) + "ns, max=" + max() + "ns";
+    }
+
+    /* Values below SUB_BUCKETS get a bucket each. Above that, the SUB_BUCKET_BITS bits that follow the highest
+     * one bit select one of the SUB_BUCKETS buckets of that power of two. */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket - shift * SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
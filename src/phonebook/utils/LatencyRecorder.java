@@ -0,0 +1,131 @@
+package phonebook.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * <p>{@link LatencyRecorder} records the latencies of a fixed set of operations, described by the constants of
+ * an {@code enum}, from any number of threads. Every thread records into <b>its own</b> {@link LatencyHistogram}s,
+ * so the hot path never contends with other threads; {@link #snapshot()} merges the histograms of all threads on
+ * read. Once a thread has terminated, its counts are folded into a histogram shared by all terminated threads, so a
+ * recorder holds the histograms of the threads that are alive, and one more, however many threads have recorded
+ * to it over time, such as one thread per request.</p>
+ *
+ * <p>Latency recording is a diagnostic, like {@link Trace}, and is switched on for the whole JVM with the system
+ * property {@code phonebook.latency=true}. Callers guard both of their calls to {@link System#nanoTime()} with the
+ * {@code static final} flag {@link #ENABLED}, so that a disabled recorder costs nothing at all:</p>
+ *
+ * <pre>
+ *     long start = LatencyRecorder.ENABLED ? System.nanoTime() : 0;
+ *     ...
+ *     if(LatencyRecorder.ENABLED) recorder.record(Operation.GET, System.nanoTime() - start);
+ * </pre>
+ *
+ * @param <E> The {@code enum} of the recorded operations.
+ * @see LatencyHistogram
+ */
+public class LatencyRecorder<E extends Enum<E>> {
+
+    /** The system property that switches latency recording on. */
+    public static final String PROPERTY = "phonebook.latency";
+
+    /** {@code true} if, and only if, latencies should be recorded. */
+    public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+    /* The number of registered threads below which register() does not look for terminated ones. */
+    private static final int SWEEP_MIN = 16;
+
+    /* The histograms of a thread, until it terminates. */
+    private static final class Registration {
+        final WeakReference<Thread> thread;
+        final LatencyHistogram[] histograms;
+
+        Registration(Thread thread, LatencyHistogram[] histograms) {
+            this.thread = new WeakReference<>(thread);
+            this.histograms = histograms;
+        }
+    }
+
+    private final Class<E> operations;
+    // both guarded by this; record() only touches the histograms of its own thread
+    private final List<Registration> threads = new ArrayList<>();
+    private final LatencyHistogram[] terminated;
+    private int sweepAt = SWEEP_MIN;
+    private final ThreadLocal<LatencyHistogram[]> local = ThreadLocal.withInitial(this::register);
+
+    /**
+     * Creates a recorder for every constant of operations.
+     * @param operations The {@code enum} class of the recorded operations.
+     * @throws IllegalArgumentException if operations is {@code null}.
+     */
+    public LatencyRecorder(Class<E> operations) {
+        if (operations == null)
+            throw new IllegalArgumentException("Provided a null enum class.");
+        this.operations = operations;
+        this.terminated = histograms();
+    }
+
+    /**
+     * Counts one latency of op in the histogram of the calling thread.
+     * @param op The operation.
+     * @param nanos How long the operation took, in nanoseconds.
+     */
+    public void record(E op, long nanos) {
+        local.get()[op.ordinal()].record(nanos);
+    }
+
+    /**
+     * Merges the histograms of every thread that has recorded to this, operation by operation.
+     * @return A fresh {@link LatencyHistogram} for every operation, including the ones never recorded.
+     */
+    public synchronized EnumMap<E, LatencyHistogram> snapshot() {
+        sweep();
+        EnumMap<E, LatencyHistogram> merged = new EnumMap<>(operations);
+        for (E op : operations.getEnumConstants()) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.add(terminated[op.ordinal()]);
+            for (Registration thread : threads) {
+                histogram.add(thread.histograms[op.ordinal()]);
+            }
+            merged.put(op, histogram);
+        }
+        return merged;
+    }
+
+    /* Called once per thread, on its first record(). Looks for terminated threads whenever the number of
+     * registrations has doubled since the last time, so that registering stays amortized constant time. */
+    private synchronized LatencyHistogram[] register() {
+        if (threads.size() >= sweepAt) {
+            sweep();
+            sweepAt = Math.max(SWEEP_MIN, 2 * threads.size());
+        }
+        LatencyHistogram[] histograms = histograms();
+        threads.add(new Registration(Thread.currentThread(), histograms));
+        return histograms;
+    }
+
+    /* Folds the histograms of every terminated thread into terminated. A thread that has terminated records
+     * nothing more, and seeing it terminated makes all of its records visible. */
+    private void sweep() {
+        threads.removeIf(registration -> {
+            Thread thread = registration.thread.get();
+            if (thread != null && thread.isAlive()) {
+                return false;
+            }
+            for (int i = 0; i < terminated.length; i++) {
+                terminated[i].add(registration.histograms[i]);
+            }
+            return true;
+        });
+    }
+
+    private LatencyHistogram[] histograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[operations.getEnumConstants().length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+}
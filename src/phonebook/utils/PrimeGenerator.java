@@ -141,6 +141,15 @@ public class PrimeGenerator {
         return PRIME_LIST[currIdx];
     }
 
+    /**
+     * Retrieves the position of the current prime in the list of primes stored by this class. A new
+     * {@link PrimeGenerator} instance is at position 3.
+     * @return The index of the prime returned by {@link #getCurrPrime()}.
+     */
+    public int getCurrIndex(){
+        return currIdx;
+    }
+
     /**
      * Returns the greatest prime <b>smaller than twice the current prime</b>. This is an approach that allows instances of
      * {@link HashTable} to find new hash table sizes which provide a good trade-off between memory footprint and making
@@ -0,0 +1,68 @@
+package phonebook.utils;
+
+import java.util.Arrays;
+
+import phonebook.utils.TableStats.Operation;
+
+/**
+ * <p>{@link ProbeCounter} keeps always-on probe count histograms for a single hash table. Recording an operation is
+ * one array increment: it never allocates, so the counters can stay enabled in production. Like the tables that own
+ * them, instances are <b>not</b> thread-safe; {@link ConcurrentProbeCounter} gives every thread one of its own.</p>
+ *
+ * @see ConcurrentProbeCounter
+ * @see TableStats
+ */
+public class ProbeCounter {
+
+    private final long[][] histograms = new long[Operation.values().length][TableStats.MAX_PROBES + 1];
+
+    /**
+     * Counts one operation.
+     * @param op The kind of operation.
+     * @param probes The number of cells, or list nodes, that the operation inspected.
+     */
+    public void record(Operation op, int probes) {
+        histograms[op.ordinal()][Math.min(probes, TableStats.MAX_PROBES)]++;
+    }
+
+    /**
+     * Adds every operation counted by other to this.
+     * @param other The {@link ProbeCounter} whose counts to add.
+     */
+    public void add(ProbeCounter other) {
+        for (int op = 0; op < histograms.length; op++) {
+            for (int probes = 0; probes < histograms[op].length; probes++) {
+                histograms[op][probes] += other.histograms[op][probes];
+            }
+        }
+    }
+
+    /**
+     * Forgets every operation counted so far.
+     */
+    public void reset() {
+        for (long[] histogram : histograms) {
+            Arrays.fill(histogram, 0);
+        }
+    }
+
+    /**
+     * Copies the counters into an immutable {@link TableStats}.
+     * @param table A short description of the table.
+     * @param size The number of records in the table.
+     * @param capacity The capacity of the table.
+     * @param tombstones The number of tombstones in the table.
+     * @param longestChain The length of the longest probe sequence or list of the table.
+     * @param resizes The number of times the table has changed capacity.
+     * @param primeIndex The index of the current prime of the table.
+     * @return A snapshot of the counters and of the provided table state.
+     */
+    public TableStats snapshot(String table, int size, int capacity, int tombstones, int longestChain, int resizes,
+                               int primeIndex) {
+        long[][] copy = new long[histograms.length][];
+        for (int i = 0; i < histograms.length; i++) {
+            copy[i] = histograms[i].clone();
+        }
+        return new TableStats(table, size, capacity, tombstones, longestChain, resizes, primeIndex, copy);
+    }
+}
@@ -0,0 +1,88 @@
+package phonebook.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>{@link RingBufferTraceSink} is a lock-free {@link TraceSink} that keeps the most recent events in a
+ * fixed-size ring. Recording claims a sequence number with a single atomic increment and publishes the event with a
+ * lazy store, so recording threads never wait on each other or on readers. When the ring is full, the oldest
+ * events are overwritten.</p>
+ *
+ * @see Trace
+ */
+public class RingBufferTraceSink implements TraceSink {
+
+    private static class Entry {
+        final long sequence;
+        final String event;
+        final String first;
+        final String second;
+
+        Entry(long sequence, String event, String first, String second) {
+            this.sequence = sequence;
+            this.event = event;
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public String toString() {
+            return event + " " + first + (second == null ? "" : " " + second);
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> ring;
+    private final AtomicLong cursor;
+    private final int mask;
+
+    /**
+     * Creates a ring that holds the most recent capacity events.
+     * @param capacity The number of events to keep. It is rounded up to the next power of two.
+     * @throws IllegalArgumentException if capacity is not positive.
+     */
+    public RingBufferTraceSink(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Ring capacity must be positive, provided " + capacity + ".");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.cursor = new AtomicLong();
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void record(String event, String first, String second) {
+        long sequence = cursor.getAndIncrement();
+        ring.lazySet((int) (sequence & mask), new Entry(sequence, event, first, second));
+    }
+
+    /**
+     * Renders the events currently held by the ring, oldest first. Events that are being overwritten while this
+     * method runs are skipped.
+     * @return The events held by the ring, as text.
+     */
+    public List<String> events() {
+        long end = cursor.get();
+        long start = Math.max(0, end - ring.length());
+        List<String> events = new ArrayList<>();
+        for (long sequence = start; sequence < end; sequence++) {
+            Entry entry = ring.get((int) (sequence & mask));
+            if (entry != null && entry.sequence == sequence) {
+                events.add(entry.toString());
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Returns how many events have been recorded since this sink was created, including overwritten ones.
+     * @return The number of events recorded.
+     */
+    public long recorded() {
+        return cursor.get();
+    }
+}
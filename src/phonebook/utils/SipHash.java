@@ -0,0 +1,109 @@
+package phonebook.utils;
+
+import java.security.SecureRandom;
+
+/**
+ * <p>{@link SipHash} is a keyed hash function: SipHash-2-4, by Aumasson and Bernstein. Without its 128-bit key, an
+ * attacker cannot tell which {@link String}s collide, so, unlike {@link String#hashCode()}, it cannot be flooded with
+ * keys that all land in the same cell. A {@link String} is hashed as the bytes of its UTF-16LE encoding, four
+ * characters per block.</p>
+ *
+ * <p>Instances are immutable and thread-safe. {@link #random()} creates instances with a fresh random key, which is
+ * what a hash table should use: each table then collides on different keys.</p>
+ *
+ * @see phonebook.hashes.OpenAddressingHashTable#useSeededHash(SipHash)
+ * @see phonebook.hashes.SeparateChainingHashTable#useSeededHash(SipHash)
+ */
+public final class SipHash {
+
+    private static final SecureRandom KEYS = new SecureRandom();
+
+    private final long k0;
+    private final long k1;
+
+    /**
+     * Creates an instance with the given key.
+     * @param k0 The first 64 bits of the key, read as a little-endian number.
+     * @param k1 The last 64 bits of the key, read as a little-endian number.
+     */
+    public SipHash(long k0, long k1) {
+        this.k0 = k0;
+        this.k1 = k1;
+    }
+
+    /**
+     * Creates an instance with a key drawn from a {@link SecureRandom}.
+     * @return A new {@link SipHash}.
+     */
+    public static SipHash random() {
+        synchronized (KEYS) {
+            return new SipHash(KEYS.nextLong(), KEYS.nextLong());
+        }
+    }
+
+    /**
+     * Hashes the UTF-16LE encoding of s.
+     * @param s The {@link String} to hash.
+     * @return The 64-bit SipHash-2-4 of s.
+     */
+    public long hash(String s) {
+        State v = new State(k0, k1);
+        int length = s.length();
+        int end = length - (length & 3);
+        for (int i = 0; i < end; i += 4) {
+            v.compress(s.charAt(i) | (long) s.charAt(i + 1) << 16 | (long) s.charAt(i + 2) << 32
+                    | (long) s.charAt(i + 3) << 48);
+        }
+
+        // the last block holds the remaining characters and the length of the input in bytes
+        long m = (long) (2 * length) << 56;
+        for (int i = end; i < length; i++) {
+            m |= (long) s.charAt(i) << (16 * (i - end));
+        }
+        v.compress(m);
+
+        v.v2 ^= 0xff;
+        v.rounds(4);
+        return v.v0 ^ v.v1 ^ v.v2 ^ v.v3;
+    }
+
+    /**
+     * Hashes s to 31 bits, the range of a masked {@link String#hashCode()}.
+     * @param s The {@link String} to hash.
+     * @return A non-negative {@code int}.
+     */
+    public int hash31(String s) {
+        long h = hash(s);
+        return (int) (h ^ (h >>> 32)) & 0x7fffffff;
+    }
+
+    /* The four words of internal state of one hash() call. It never escapes hash(), so escape analysis
+     * usually keeps it in registers rather than on the heap. */
+    private static final class State {
+        long v0, v1, v2, v3;
+
+        State(long k0, long k1) {
+            v0 = k0 ^ 0x736f6d6570736575L;
+            v1 = k1 ^ 0x646f72616e646f6dL;
+            v2 = k0 ^ 0x6c7967656e657261L;
+            v3 = k1 ^ 0x7465646279746573L;
+        }
+
+        /* Mixes in one 8-byte block of the message. */
+        void compress(long m) {
+            v3 ^= m;
+            rounds(2);
+            v0 ^= m;
+        }
+
+        /* Applies SipRound the given number of times. */
+        void rounds(int times) {
+            for (int round = 0; round < times; round++) {
+                v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+                v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+                v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+                v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+            }
+        }
+    }
+}
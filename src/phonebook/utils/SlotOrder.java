@@ -0,0 +1,39 @@
+package phonebook.utils;
+
+import java.util.Arrays;
+
+/**
+ * <p>{@link SlotOrder} is a small helper for bulk lookups. Given the home slot of every key in a batch, it
+ * computes the order in which the keys should be probed so that the table is walked in <b>ascending address
+ * order</b>. Walking the table sequentially lets the hardware prefetcher run ahead and the cache misses of
+ * consecutive probes overlap, instead of jumping around the table in the caller's order.</p>
+ *
+ * @see phonebook.hashes.HashTable#getAll(String[])
+ */
+public class SlotOrder {
+
+    private SlotOrder() {
+    }
+
+    /**
+     * Sorts positions of a batch by home slot.
+     * @param homes The home slot of every key in the batch, or a negative number for keys that should be skipped.
+     * @return The positions of all non-negative entries of homes, ordered by ascending home slot. Positions that
+     * share a home slot keep their relative order.
+     */
+    public static int[] byHome(int[] homes) {
+        long[] packed = new long[homes.length];
+        int n = 0;
+        for (int i = 0; i < homes.length; i++) {
+            if (homes[i] >= 0) {
+                packed[n++] = ((long) homes[i] << 32) | i;
+            }
+        }
+        Arrays.sort(packed, 0, n);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) packed[i];
+        }
+        return order;
+    }
+}
@@ -0,0 +1,183 @@
+package phonebook.utils;
+
+import java.util.Arrays;
+
+/**
+ * <p>{@link TableStats} is an immutable snapshot of the health of a hash table: its size, capacity and tombstone
+ * count, together with a <b>histogram of probe counts</b> for every kind of {@link Operation} the table has served
+ * since it was created. A probe is a single cell (or list node) inspected by an operation. Comparing the histograms of
+ * successful and unsuccessful operations against the load factor tells clustering, tombstone build-up and an
+ * inappropriate load factor apart.</p>
+ *
+ * <p>A snapshot also describes the shape of the table: its <b>longest chain</b>, i.e the most probes any stored
+ * record currently needs to be found (for openly addressed tables) or the length of the longest list (for
+ * separate chaining), the number of times the table has been resized and the index of its capacity in the list of
+ * primes of {@link PrimeGenerator}.</p>
+ *
+ * <p>Bucket i of a histogram counts the operations that took exactly i probes, except for the last bucket,
+ * {@link #MAX_PROBES}, which counts every operation that took {@link #MAX_PROBES} probes or more.</p>
+ *
+ * @see ProbeCounter
+ * @see phonebook.hashes.HashTable#snapshot()
+ */
+public class TableStats {
+
+    /**
+     * The kinds of operation whose probe counts are tracked.
+     */
+    public enum Operation {
+        /** A {@code get} that found its key. */
+        GET_HIT,
+        /** A {@code get} that did not find its key. */
+        GET_MISS,
+        /** A {@code put} that overwrote the value of an existing key. */
+        PUT_UPDATE,
+        /** A {@code put} that inserted a new key. */
+        PUT_INSERT,
+        /** A {@code remove} that found its key. */
+        REMOVE_HIT,
+        /** A {@code remove} that did not find its key. */
+        REMOVE_MISS
+    }
+
+    /** The last bucket of every histogram, which also counts all longer probe sequences. */
+    public static final int MAX_PROBES = 64;
+
+    private final String table;
+    private final int size;
+    private final int capacity;
+    private final int tombstones;
+    private final int longestChain;
+    private final int resizes;
+    private final int primeIndex;
+    private final long[][] histograms;
+
+    /**
+     * Creates a snapshot. The histograms are <b>not</b> copied;
+     * {@link ProbeCounter#snapshot(String, int, int, int, int, int, int)} is the intended way to create instances.
+     * @param table A short description of the table, e.g its class name.
+     * @param size The number of records in the table.
+     * @param capacity The capacity of the table.
+     * @param tombstones The number of tombstones in the table.
+     * @param longestChain The length of the longest probe sequence or list of the table.
+     * @param resizes The number of times the table has changed capacity.
+     * @param primeIndex The index of the current prime of the {@link PrimeGenerator} of the table.
+     * @param histograms One histogram of {@link #MAX_PROBES} + 1 buckets per {@link Operation}, in declaration order.
+     */
+    public TableStats(String table, int size, int capacity, int tombstones, int longestChain, int resizes,
+                      int primeIndex, long[][] histograms) {
+        this.table = table;
+        this.size = size;
+        this.capacity = capacity;
+        this.tombstones = tombstones;
+        this.longestChain = longestChain;
+        this.resizes = resizes;
+        this.primeIndex = primeIndex;
+        this.histograms = histograms;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getTombstones() {
+        return tombstones;
+    }
+
+    public int getLongestChain() {
+        return longestChain;
+    }
+
+    public int getResizes() {
+        return resizes;
+    }
+
+    public int getPrimeIndex() {
+        return primeIndex;
+    }
+
+    /**
+     * Returns the fraction of the capacity that is occupied by records.
+     * @return size / capacity.
+     */
+    public double getLoadFactor() {
+        return (capacity == 0) ? 0 : (double) size / capacity;
+    }
+
+    /**
+     * Returns a copy of the probe count histogram of op.
+     * @param op The kind of operation.
+     * @return An array of {@link #MAX_PROBES} + 1 buckets.
+     */
+    public long[] histogram(Operation op) {
+        return Arrays.copyOf(histograms[op.ordinal()], histograms[op.ordinal()].length);
+    }
+
+    /**
+     * Returns how many operations of kind op have been served.
+     * @param op The kind of operation.
+     * @return The number of operations.
+     */
+    public long count(Operation op) {
+        long count = 0;
+        for (long bucket : histograms[op.ordinal()]) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the mean number of probes of operations of kind op. Operations that overflowed into the last bucket
+     * are counted as {@link #MAX_PROBES} probes.
+     * @param op The kind of operation.
+     * @return The mean number of probes, or 0 if no such operation has been served.
+     */
+    public double meanProbes(Operation op) {
+        long count = 0;
+        long probes = 0;
+        long[] histogram = histograms[op.ordinal()];
+        for (int i = 0; i < histogram.length; i++) {
+            count += histogram[i];
+            probes += histogram[i] * i;
+        }
+        return (count == 0) ? 0 : (double) probes / count;
+    }
+
+    /**
+     * Returns the largest number of probes of any operation of kind op, capped at {@link #MAX_PROBES}.
+     * @param op The kind of operation.
+     * @return The largest number of probes, or 0 if no such operation has been served.
+     */
+    public int maxProbes(Operation op) {
+        long[] histogram = histograms[op.ordinal()];
+        for (int i = histogram.length - 1; i > 0; i--) {
+            if (histogram[i] > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder ret = new StringBuilder();
+        ret.append(table).append(": size=").append(size).append(", capacity=").append(capacity)
+                .append(", tombstones=").append(tombstones)
+                .append(String.format(", load=%.3f", getLoadFactor()))
+                .append(", longest chain=").append(longestChain).append(", resizes=").append(resizes)
+                .append(", prime index=").append(primeIndex);
+        for (Operation op : Operation.values()) {
+            ret.append("\n  ").append(op).append(": count=").append(count(op))
+                    .append(String.format(", mean=%.2f", meanProbes(op))).append(", max=").append(maxProbes(op));
+        }
+        return ret.toString();
+    }
+}
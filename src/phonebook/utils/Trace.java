@@ -0,0 +1,73 @@
+package phonebook.utils;
+
+/**
+ * <p>{@link Trace} is the diagnostic trace facility of the phonebook. Hot paths guard every event with one of the
+ * {@code static final} level flags of this class:</p>
+ *
+ * <pre>
+ *     if(Trace.OPERATIONS) Trace.record("LP.put", key, value);
+ * </pre>
+ *
+ * <p>The level is read <b>once</b>, from the system property {@code phonebook.trace} (one of {@code off},
+ * {@code operations} or {@code details}), when this class is initialized. Since the flags are compile-time
+ * constants as far as the JIT compiler is concerned, a disabled guard is folded away together with the code it
+ * protects: production runs pay nothing, not even for building the arguments. When tracing is enabled, events go
+ * to a pluggable {@link TraceSink}, by default a lock-free {@link RingBufferTraceSink}.</p>
+ *
+ * @see TraceSink
+ * @see RingBufferTraceSink
+ */
+public final class Trace {
+
+    /** The system property that selects the trace level. */
+    public static final String PROPERTY = "phonebook.trace";
+
+    /** {@code true} if, and only if, every table and phonebook operation should be traced. */
+    public static final boolean OPERATIONS;
+
+    /** {@code true} if, and only if, the internal steps of operations (e.g swaps during insertion) should be traced too. */
+    public static final boolean DETAILS;
+
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    private static volatile TraceSink sink = new RingBufferTraceSink(DEFAULT_CAPACITY);
+
+    static {
+        String level = System.getProperty(PROPERTY, "off").trim().toLowerCase();
+        DETAILS = level.equals("details");
+        OPERATIONS = DETAILS || level.equals("operations");
+    }
+
+    private Trace() {
+    }
+
+    /**
+     * Records an event to the current {@link TraceSink}. Callers should guard calls with {@link #OPERATIONS} or
+     * {@link #DETAILS}.
+     * @param event A short, constant name for the event.
+     * @param first The first argument of the event. May be {@code null}.
+     * @param second The second argument of the event. May be {@code null}.
+     */
+    public static void record(String event, String first, String second) {
+        sink.record(event, first, second);
+    }
+
+    /**
+     * Replaces the {@link TraceSink} that events are recorded to.
+     * @param newSink The new {@link TraceSink}.
+     * @throws IllegalArgumentException if newSink is {@code null}.
+     */
+    public static void setSink(TraceSink newSink) {
+        if (newSink == null)
+            throw new IllegalArgumentException("Provided a null TraceSink.");
+        sink = newSink;
+    }
+
+    /**
+     * Returns the {@link TraceSink} that events are currently recorded to.
+     * @return The current {@link TraceSink}.
+     */
+    public static TraceSink getSink() {
+        return sink;
+    }
+}
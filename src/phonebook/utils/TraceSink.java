@@ -0,0 +1,20 @@
+package phonebook.utils;
+
+/**
+ * <p>{@link TraceSink} is the destination of the events recorded through {@link Trace}. Implementations must be
+ * safe to call from several threads at once and should never block the caller.</p>
+ *
+ * @see Trace
+ * @see RingBufferTraceSink
+ */
+public interface TraceSink {
+
+    /**
+     * Records a single trace event. The arguments are passed as they are; implementations that need text should
+     * only build it when it is actually read, never on the recording thread.
+     * @param event A short, constant name for the event, e.g &quot;LP.put&quot;.
+     * @param first The first argument of the event, usually a key. May be {@code null}.
+     * @param second The second argument of the event, usually a value. May be {@code null}.
+     */
+    void record(String event, String first, String second);
+}